@@ -0,0 +1,268 @@
+package smarthome;
+
+import java.io.Closeable;
+import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Timer service for automations, built on a hashed timing wheel.
+//
+// The wheel is an array of buckets, one per tick; a timer goes into the bucket of its
+// deadline tick with the number of full turns still to wait. Buckets are doubly linked
+// lists, so adding a timer and cancelling one are O(1) whatever the number pending, and
+// each tick only walks one bucket. New timers and cancellations are handed to the wheel
+// thread through lock-free queues, so callers never block and the wheel needs no locks.
+//
+// Ticks are timed against the start time rather than slept one after another, so lateness
+// never accumulates: a timer fires within about one tick of its deadline, and recurring and
+// cron timers are re-armed from their scheduled time, not from when they happened to run.
+// Tasks run on the given executor (Platform::runLater in the GUI) so the wheel thread only
+// keeps time.
+public class AutomationScheduler implements Closeable {
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final long startNanos = System.nanoTime();
+    private final Executor runOn;
+    private final Queue<Timer> added = new ConcurrentLinkedQueue<>();
+    private final Queue<Timer> cancelled = new ConcurrentLinkedQueue<>();
+    private final ArrayDeque<Timer> rearm = new ArrayDeque<>();
+    private final Thread worker;
+    private volatile boolean running = true;
+    private long tick;
+
+    private final LongAdder pending = new LongAdder();
+    private final LongAdder fired = new LongAdder();
+    private final LongAdder cancels = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile long maxLateNanos;
+
+    public AutomationScheduler(Executor runOn, long tickMillis, int wheelSize) {
+        this.runOn = runOn;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMillis));
+        int size = Integer.highestOneBit(Math.max(2, wheelSize - 1)) << 1;
+        this.wheel = new Bucket[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        worker = new Thread(this::run, "automation-scheduler");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // automation.tickMs (default 10) and automation.wheelSize (default 1024)
+    public static AutomationScheduler fromSystemProperties(Executor runOn) {
+        return new AutomationScheduler(runOn, Long.getLong("automation.tickMs", 10),
+                Integer.getInteger("automation.wheelSize", 1024));
+    }
+
+    public Timer schedule(Runnable task, long delay, TimeUnit unit) {
+        return add(new Timer(task, System.nanoTime() + unit.toNanos(Math.max(0, delay)), 0, null));
+    }
+
+    public Timer scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0) throw new IllegalArgumentException("Period must be positive");
+        return add(new Timer(task, System.nanoTime() + unit.toNanos(Math.max(0, initialDelay)), unit.toNanos(period), null));
+    }
+
+    public Timer scheduleCron(Runnable task, CronExpression cron) {
+        Timer timer = new Timer(task, 0, 0, cron);
+        if (!timer.nextCron(ZonedDateTime.now())) throw new IllegalArgumentException("Cron never fires: " + cron);
+        return add(timer);
+    }
+
+    public long pending() { return pending.sum(); }
+    public long fired() { return fired.sum(); }
+
+    public String stats() {
+        return String.format("⏰ %d pending, %d fired, %d cancelled, %d failed, max late %.1f ms (tick %d ms)",
+                pending(), fired(), cancels.sum(), failures.sum(), maxLateNanos / 1e6, TimeUnit.NANOSECONDS.toMillis(tickNanos));
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Timer add(Timer timer) {
+        if (!running) throw new IllegalStateException("Scheduler is closed");
+        pending.increment();
+        added.add(timer);
+        return timer;
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = startNanos + (tick + 1) * tickNanos;
+            long wait;
+            while ((wait = deadline - System.nanoTime()) > 0 && running) {
+                LockSupport.parkNanos(wait);
+            }
+            if (!running) break;
+            processCancelled();
+            transferAdded();
+            expire(wheel[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    private void processCancelled() {
+        Timer timer;
+        while ((timer = cancelled.poll()) != null) {
+            if (timer.bucket != null) timer.bucket.remove(timer);
+        }
+    }
+
+    // Caps the work per tick so a burst of schedules cannot stall the wheel
+    private void transferAdded() {
+        for (int i = 0; i < 100_000; i++) {
+            Timer timer = added.poll();
+            if (timer == null) return;
+            if (timer.state.get() == Timer.CANCELLED) continue;
+            place(timer, tick);
+        }
+    }
+
+    private void place(Timer timer, long earliestTick) {
+        long ticks = Math.max(earliestTick, (timer.deadline - startNanos) / tickNanos);
+        // Turns to wait counted from the first walk that can see the timer
+        timer.rounds = (ticks - earliestTick) >> Integer.numberOfTrailingZeros(wheel.length);
+        wheel[(int) (ticks & mask)].add(timer);
+    }
+
+    private void expire(Bucket bucket) {
+        long now = System.nanoTime();
+        Timer timer = bucket.head;
+        while (timer != null) {
+            Timer next = timer.next;
+            if (timer.rounds <= 0) {
+                bucket.remove(timer);
+                fire(timer, now);
+            } else {
+                timer.rounds--;
+            }
+            timer = next;
+        }
+        // Recurring timers go back in after the walk, never into the bucket being expired
+        while ((timer = rearm.poll()) != null) {
+            place(timer, tick + 1);
+        }
+    }
+
+    private void fire(Timer timer, long now) {
+        if (timer.state.get() == Timer.CANCELLED) return;
+        long late = now - timer.deadline;
+        if (late > maxLateNanos) maxLateNanos = late;
+        fired.increment();
+        Runnable task = timer.task;
+        runOn.execute(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                failures.increment();
+                EventLog.global().message(EventLog.Level.ERROR, "❌ Automation failed: " + e);
+            }
+        });
+        boolean again;
+        if (timer.period > 0) {
+            timer.deadline += timer.period;
+            // A long pause (laptop sleep) skips the missed runs instead of replaying them all
+            if (timer.deadline < now) timer.deadline += ((now - timer.deadline) / timer.period + 1) * timer.period;
+            again = true;
+        } else if (timer.cron != null) {
+            again = timer.nextCron(timer.scheduledAt);
+        } else {
+            again = false;
+        }
+        if (again && timer.state.get() != Timer.CANCELLED) {
+            rearm.add(timer);
+        } else {
+            if (timer.state.compareAndSet(Timer.WAITING, Timer.DONE)) pending.decrement();
+        }
+    }
+
+    public class Timer {
+        static final int WAITING = 0, CANCELLED = 1, DONE = 2;
+
+        final Runnable task;
+        final long period;
+        final CronExpression cron;
+        final AtomicInteger state = new AtomicInteger(WAITING);
+        long deadline;
+        ZonedDateTime scheduledAt;
+        long rounds;
+        Bucket bucket;
+        Timer prev, next;
+
+        Timer(Runnable task, long deadline, long period, CronExpression cron) {
+            this.task = task;
+            this.deadline = deadline;
+            this.period = period;
+            this.cron = cron;
+        }
+
+        // Cancels future runs; returns false if the timer had already finished or been cancelled
+        public boolean cancel() {
+            if (!state.compareAndSet(WAITING, CANCELLED)) return false;
+            pending.decrement();
+            cancels.increment();
+            cancelled.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        // Milliseconds until the next run (negative if due)
+        public long delayMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        }
+
+        boolean nextCron(ZonedDateTime after) {
+            ZonedDateTime next = cron.next(after);
+            if (next == null) return false;
+            scheduledAt = next;
+            long millis = next.toInstant().toEpochMilli() - System.currentTimeMillis();
+            deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+            return true;
+        }
+    }
+
+    // Only touched by the wheel thread
+    private static class Bucket {
+        Timer head, tail;
+
+        void add(Timer timer) {
+            timer.bucket = this;
+            timer.prev = tail;
+            timer.next = null;
+            if (tail == null) head = timer;
+            else tail.next = timer;
+            tail = timer;
+        }
+
+        void remove(Timer timer) {
+            if (timer.bucket != this) return;
+            if (timer.prev == null) head = timer.next;
+            else timer.prev.next = timer.next;
+            if (timer.next == null) tail = timer.prev;
+            else timer.next.prev = timer.prev;
+            timer.prev = timer.next = null;
+            timer.bucket = null;
+        }
+    }
+}
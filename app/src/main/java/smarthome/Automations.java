@@ -0,0 +1,87 @@
+package smarthome;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Automation rules loaded from a text file, one per line: "<trigger> => <voice command>".
+//   cron 30 22 * * * => good night
+//   every 15m => set living room temperature to 21
+//   after 10s => turn on bedroom lights
+// Durations take ms, s, m, h or d. The command goes through the voice engine, so anything
+// that can be said can be automated; its reply is passed to report.
+public class Automations {
+    private Automations() {
+    }
+
+    // automations.file (default automations.txt); a missing file means no automations
+    public static List<AutomationScheduler.Timer> loadFromSystemProperties(AutomationScheduler scheduler,
+            Function<String, String> command, Consumer<String> report) {
+        Path file = Paths.get(System.getProperty("automations.file", "automations.txt"));
+        if (!Files.exists(file)) return List.of();
+        try {
+            List<AutomationScheduler.Timer> timers = load(Files.readAllLines(file, StandardCharsets.UTF_8), scheduler, command, report);
+            report.accept("⏰ Scheduled " + timers.size() + " automations from " + file);
+            return timers;
+        } catch (IOException | IllegalArgumentException e) {
+            report.accept("❌ Could not load automations from " + file + ": " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    public static List<AutomationScheduler.Timer> load(List<String> lines, AutomationScheduler scheduler,
+            Function<String, String> command, Consumer<String> report) {
+        List<AutomationScheduler.Timer> timers = new ArrayList<>();
+        int lineNo = 0;
+        for (String raw : lines) {
+            lineNo++;
+            String line = raw.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            int arrow = line.indexOf("=>");
+            if (arrow < 0) throw new IllegalArgumentException("line " + lineNo + ": expected '<trigger> => <command>'");
+            String trigger = line.substring(0, arrow).trim();
+            String spoken = line.substring(arrow + 2).trim();
+            Runnable task = () -> report.accept("⏰ " + spoken + ": " + command.apply(spoken));
+            String[] parts = trigger.split("\\s+", 2);
+            String kind = parts[0].toLowerCase(Locale.ROOT);
+            String spec = parts.length > 1 ? parts[1] : "";
+            switch (kind) {
+                case "cron":
+                    timers.add(scheduler.scheduleCron(task, new CronExpression(spec)));
+                    break;
+                case "every": {
+                    long period = millis(spec, lineNo);
+                    timers.add(scheduler.scheduleAtFixedRate(task, period, period, TimeUnit.MILLISECONDS));
+                    break;
+                }
+                case "after":
+                    timers.add(scheduler.schedule(task, millis(spec, lineNo), TimeUnit.MILLISECONDS));
+                    break;
+                default:
+                    throw new IllegalArgumentException("line " + lineNo + ": unknown trigger '" + kind + "' (cron, every, after)");
+            }
+        }
+        return timers;
+    }
+
+    // "500ms", "10s", "15m", "2h", "1d"
+    static long millis(String text, int lineNo) {
+        String spec = text.trim().toLowerCase(Locale.ROOT);
+        int split = 0;
+        while (split < spec.length() && Character.isDigit(spec.charAt(split))) split++;
+        if (split == 0) throw new IllegalArgumentException("line " + lineNo + ": bad duration '" + text + "'");
+        long amount = Long.parseLong(spec.substring(0, split));
+        switch (spec.substring(split).trim()) {
+            case "ms": return amount;
+            case "s": return amount * 1000;
+            case "m": return TimeUnit.MINUTES.toMillis(amount);
+            case "h": return TimeUnit.HOURS.toMillis(amount);
+            case "d": return TimeUnit.DAYS.toMillis(amount);
+            default: throw new IllegalArgumentException("line " + lineNo + ": bad duration unit in '" + text + "'");
+        }
+    }
+}
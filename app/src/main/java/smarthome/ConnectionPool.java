@@ -0,0 +1,264 @@
+package smarthome;
+
+import java.io.Closeable;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// Small bounded JDBC connection pool.
+//
+// - At most maxSize physical connections; borrowers wait up to borrowTimeout for one.
+// - Idle connections are reused most-recently-used first and validated on borrow with
+//   Connection.isValid once they have sat idle longer than the validation interval.
+// - A background evictor closes connections idle past idleTimeout, and every connection is
+//   retired once it reaches maxLifetime.
+// - Each connection keeps an LRU cache of prepared statements, so hot queries are parsed
+//   and planned by the server once per connection.
+public class ConnectionPool implements Closeable {
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long validationIntervalMillis;
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+    private final int statementCacheSize;
+
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    private final LongAdder created = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+    private final LongAdder destroyed = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    public ConnectionPool(String url, String user, String password, int maxSize) {
+        this(url, user, password, maxSize, 5_000, 1_000, 60_000, 30 * 60_000, 32);
+    }
+
+    public ConnectionPool(String url, String user, String password, int maxSize,
+                          long borrowTimeoutMillis, long validationIntervalMillis,
+                          long idleTimeoutMillis, long maxLifetimeMillis, int statementCacheSize) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.validationIntervalMillis = validationIntervalMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1_000, idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public PooledConnection borrow() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed");
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLException("Timed out after " + borrowTimeoutMillis + " ms waiting for a connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+
+        try {
+            PooledConnection conn;
+            while ((conn = pollIdle()) != null) {
+                if (usable(conn)) {
+                    reused.increment();
+                    conn.borrowed = true;
+                    return conn;
+                }
+                destroy(conn);
+            }
+            conn = new PooledConnection(this, DriverManager.getConnection(url, user, password));
+            created.increment();
+            conn.borrowed = true;
+            return conn;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public int maxSize() { return maxSize; }
+
+    public synchronized int idleCount() { return idle.size(); }
+
+    public String stats() {
+        return "created=" + created.sum() + " reused=" + reused.sum()
+                + " destroyed=" + destroyed.sum() + " timeouts=" + timeouts.sum()
+                + " idle=" + idleCount() + " inUse=" + (maxSize - permits.availablePermits());
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        List<PooledConnection> drained;
+        synchronized (this) {
+            drained = new ArrayList<>(idle);
+            idle.clear();
+        }
+        drained.forEach(this::destroy);
+    }
+
+    // Called by PooledConnection.close()
+    void release(PooledConnection conn) {
+        conn.borrowed = false;
+        try {
+            boolean keep = !closed && !conn.broken && !expired(conn, System.currentTimeMillis()) && reset(conn);
+            if (keep) {
+                conn.lastUsed = System.currentTimeMillis();
+                synchronized (this) {
+                    idle.push(conn);
+                }
+            } else {
+                destroy(conn);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private synchronized PooledConnection pollIdle() {
+        return idle.poll();
+    }
+
+    private boolean usable(PooledConnection conn) {
+        long now = System.currentTimeMillis();
+        if (expired(conn, now)) return false;
+        if (now - conn.lastUsed < validationIntervalMillis) return true;
+        try {
+            return conn.connection.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean expired(PooledConnection conn, long now) {
+        return now - conn.created >= maxLifetimeMillis;
+    }
+
+    // Leave the connection the way the next borrower expects it
+    private boolean reset(PooledConnection conn) {
+        try {
+            if (conn.connection.isClosed()) return false;
+            if (!conn.connection.getAutoCommit()) {
+                conn.connection.rollback();
+                conn.connection.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        List<PooledConnection> evicted = new ArrayList<>();
+        synchronized (this) {
+            Iterator<PooledConnection> it = idle.iterator();
+            while (it.hasNext()) {
+                PooledConnection conn = it.next();
+                if (now - conn.lastUsed >= idleTimeoutMillis || expired(conn, now)) {
+                    it.remove();
+                    evicted.add(conn);
+                }
+            }
+        }
+        evicted.forEach(this::destroy);
+    }
+
+    private void destroy(PooledConnection conn) {
+        destroyed.increment();
+        conn.closeStatements();
+        try {
+            conn.connection.close();
+        } catch (SQLException e) {
+            // Already gone
+        }
+    }
+
+    // A borrowed connection; close() hands it back to the pool instead of closing it
+    public static class PooledConnection implements AutoCloseable {
+        private final ConnectionPool pool;
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements;
+        private final long created = System.currentTimeMillis();
+        private long lastUsed = created;
+        private boolean broken;
+        private boolean borrowed;
+
+        PooledConnection(ConnectionPool pool, Connection connection) {
+            this.pool = pool;
+            this.connection = connection;
+            int cacheSize = pool.statementCacheSize;
+            this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() <= cacheSize) return false;
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+            };
+        }
+
+        // Cached per connection; parameters are cleared, do not close the returned statement
+        public PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null || statement.isClosed()) {
+                statement = connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            } else {
+                statement.clearParameters();
+                statement.clearBatch();
+            }
+            return statement;
+        }
+
+        public Connection raw() { return connection; }
+
+        // Drop the physical connection on release, e.g. after a connection-level SQLException
+        public void markBroken() { broken = true; }
+
+        // Marks the connection broken when the error says the link itself failed (SQLState class 08)
+        public void checkError(SQLException e) {
+            String state = e.getSQLState();
+            if (state == null || state.startsWith("08")) broken = true;
+        }
+
+        @Override
+        public void close() {
+            if (borrowed) pool.release(this);
+        }
+
+        void closeStatements() {
+            for (PreparedStatement statement : statements.values()) {
+                closeQuietly(statement);
+            }
+            statements.clear();
+        }
+
+        private static void closeQuietly(Statement statement) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                // Ignore
+            }
+        }
+    }
+}
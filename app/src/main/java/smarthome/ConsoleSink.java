@@ -0,0 +1,25 @@
+package smarthome;
+
+import java.io.PrintStream;
+
+// Prints the human-readable line, like the model's old println calls did. Lines
+// are gathered per batch and handed to System.out in one print.
+class ConsoleSink implements EventSink {
+    private final StringBuilder batch = new StringBuilder(4096);
+
+    @Override
+    public void write(EventLog.Event event, CharSequence line) {
+        batch.append(line).append(System.lineSeparator());
+        if (batch.length() > 64 * 1024) flush();
+    }
+
+    @Override
+    public void flush() {
+        if (batch.length() == 0) return;
+        // Looked up each time so a redirected System.out (benchmarks, tests) is honored
+        PrintStream out = System.out;
+        out.print(batch);
+        out.flush();
+        batch.setLength(0);
+    }
+}
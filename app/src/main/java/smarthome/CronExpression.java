@@ -0,0 +1,116 @@
+package smarthome;
+
+import java.time.*;
+import java.time.temporal.ChronoUnit;
+import java.util.BitSet;
+import java.util.Locale;
+
+// Five-field cron schedule: minute hour day-of-month month day-of-week.
+// Fields take *, numbers, ranges (1-5), lists (1,15) and steps (*/15, 8-18/2); day-of-week
+// 0 and 7 are Sunday. As in classic cron, if both day fields are restricted a day matches
+// either one. @hourly, @daily, @weekly and @monthly are accepted as shorthands.
+public class CronExpression {
+    private final String text;
+    private final BitSet minutes, hours, days, months, weekdays;
+    private final boolean anyDay, anyWeekday;
+
+    public CronExpression(String expression) {
+        text = expression.trim();
+        String spec = shorthand(text);
+        String[] fields = spec.split("\\s+");
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("Cron needs 5 fields (minute hour day month weekday): " + expression);
+        }
+        minutes = field(fields[0], 0, 59);
+        hours = field(fields[1], 0, 23);
+        days = field(fields[2], 1, 31);
+        months = field(fields[3], 1, 12);
+        weekdays = field(fields[4], 0, 7);
+        if (weekdays.get(7)) weekdays.set(0);
+        anyDay = fields[2].equals("*");
+        anyWeekday = fields[4].equals("*");
+    }
+
+    // First matching minute strictly after the given time, or null if none within five years
+    public ZonedDateTime next(ZonedDateTime after) {
+        ZonedDateTime t = after.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        ZonedDateTime limit = t.plusYears(5);
+        while (t.isBefore(limit)) {
+            if (!months.get(t.getMonthValue())) {
+                t = t.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).plusMonths(1);
+            } else if (!dayMatches(t)) {
+                t = t.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+            } else if (!hours.get(t.getHour())) {
+                t = t.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+            } else if (!minutes.get(t.getMinute())) {
+                t = t.plusMinutes(1);
+            } else {
+                return t;
+            }
+        }
+        return null;
+    }
+
+    private boolean dayMatches(ZonedDateTime t) {
+        boolean day = days.get(t.getDayOfMonth());
+        boolean weekday = weekdays.get(t.getDayOfWeek().getValue() % 7);
+        if (anyDay && anyWeekday) return true;
+        if (anyDay) return weekday;
+        if (anyWeekday) return day;
+        return day || weekday;
+    }
+
+    private static String shorthand(String text) {
+        switch (text.toLowerCase(Locale.ROOT)) {
+            case "@hourly": return "0 * * * *";
+            case "@daily": case "@midnight": return "0 0 * * *";
+            case "@weekly": return "0 0 * * 0";
+            case "@monthly": return "0 0 1 * *";
+            default: return text;
+        }
+    }
+
+    private static BitSet field(String field, int min, int max) {
+        BitSet bits = new BitSet(max + 1);
+        for (String part : field.split(",")) {
+            int step = 1;
+            int slash = part.indexOf('/');
+            if (slash >= 0) {
+                step = number(part.substring(slash + 1), 1, max, field);
+                part = part.substring(0, slash);
+            }
+            int from, to;
+            if (part.equals("*")) {
+                from = min;
+                to = max;
+            } else if (part.indexOf('-') > 0) {
+                int dash = part.indexOf('-');
+                from = number(part.substring(0, dash), min, max, field);
+                to = number(part.substring(dash + 1), min, max, field);
+            } else {
+                from = number(part, min, max, field);
+                to = slash >= 0 ? max : from;
+            }
+            if (from > to) throw new IllegalArgumentException("Empty cron range '" + part + "' in " + field);
+            for (int v = from; v <= to; v += step) {
+                bits.set(v);
+            }
+        }
+        return bits;
+    }
+
+    private static int number(String text, int min, int max, String field) {
+        try {
+            int value = Integer.parseInt(text.trim());
+            if (value >= min && value <= max) return value;
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Bad cron value '" + text + "' in " + field + " (allowed " + min + "-" + max + ")");
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
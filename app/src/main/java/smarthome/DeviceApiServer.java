@@ -0,0 +1,550 @@
+package smarthome;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Embedded HTTP API for the web dashboard (index.html/script.js), served from the JDK's
+// built-in HttpServer alongside the dashboard files themselves:
+//
+//   GET  /api/devices[?room=R]   every device (or one room's), in registry order, with the
+//                                stream position it reflects as "since"
+//   GET  /api/devices/{id}       one device
+//   POST /api/devices/{id}       apply {"on":true,"brightness":40,...} and return the device
+//   POST /api/batch              apply [{"id":1,"on":false},{"id":7,"temperature":21.5},...] in
+//                                one request; a command with only an id just reads the device
+//   GET  /api/energy             home and per-room power from the EnergyMonitor
+//   GET  /api/stream[?since=P]   server-sent deltas from then on (see DeviceEventStream)
+//
+// Control keys: on, brightness (0-100) and color for lights, temperature (-50 to 100) and
+// mode (Heating, Cooling, Auto) for thermostats, armed and level (Normal, High, Maximum) for
+// security devices. Every key of a command is checked before any of it is applied, so a bad
+// command changes nothing and answers 400.
+//
+// The API is for the dashboard it serves, from the same origin: it sends no CORS headers and
+// only takes commands sent as application/json. A browser will not send such a request from
+// another site without a CORS preflight, which this server never approves, so a page the user
+// happens to visit cannot forge one. It is off unless api.port is set.
+//
+// Handlers run one virtual thread per request when the runtime has them (Java 21+), else on
+// a fixed pool. They call the thread-safe device setters directly, alongside the console, the
+// GUI and automations. The full listing is encoded once per registry change and reused until
+// the next one.
+public class DeviceApiServer implements Closeable, DeviceListener {
+    private static final int MAX_BODY = 1 << 20;
+    private static final int MAX_BATCH = 10_000;
+    private static final String JSON = "application/json; charset=utf-8";
+
+    private final DeviceRegistry registry;
+    private final EnergyMonitor energy;
+    private final Path webRoot;
+    private final HttpServer server;
+    private final ExecutorService pool;
+    private final DeviceEventStream stream;
+    private final AtomicLong version = new AtomicLong();
+    private volatile Listing listing;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder commands = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    // energy and webRoot may be null (no /api/energy, no dashboard files); port 0 picks a free one.
+    // Unless sun.net.httpserver.nodelay is already set, this sets it to true for the whole JVM.
+    public DeviceApiServer(DeviceRegistry registry, EnergyMonitor energy, InetSocketAddress address,
+                           Path webRoot, int threads) throws IOException {
+        this.registry = registry;
+        this.energy = energy;
+        this.webRoot = webRoot == null ? null : webRoot.toAbsolutePath().normalize();
+        ThreadFactory virtual = FleetSimulator.virtualThreadFactory();
+        // The JDK server leaves Nagle on, so a small response waits out the client's delayed ACK
+        // (~40 ms each on Linux). The switch is a system property the JDK reads once, when the
+        // first server is created, so it also applies to any other HttpServer in this JVM;
+        // -Dsun.net.httpserver.nodelay=false keeps Nagle on.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        server = HttpServer.create(address, 1024);
+        if (virtual != null) {
+            pool = null;
+            server.setExecutor(r -> virtual.newThread(r).start());
+        } else {
+            AtomicInteger counter = new AtomicInteger();
+            pool = Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "api-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            server.setExecutor(pool);
+        }
+        server.createContext("/api/devices", this::devices);
+        server.createContext("/api/batch", this::batch);
+        server.createContext("/api/energy", this::energy);
+        server.createContext("/api/stream", this::stream);
+        server.createContext("/", this::files);
+        stream = new DeviceEventStream(registry, Integer.getInteger("api.streamHistory", 4096),
+                Integer.getInteger("api.streamBuffer", 1024), Integer.getInteger("api.streamClients", 1000),
+                Long.getLong("api.streamStallMs", 10_000));
+    }
+
+    // Off unless api.port is set above 0; api.host binds other interfaces (default localhost only)
+    public static DeviceApiServer fromSystemProperties(DeviceRegistry registry, EnergyMonitor energy)
+            throws IOException {
+        int port = Integer.getInteger("api.port", 0);
+        if (port <= 0) return null;
+        String host = System.getProperty("api.host", "localhost");
+        return new DeviceApiServer(registry, energy, new InetSocketAddress(host, port),
+                Paths.get(System.getProperty("api.webRoot", ".")),
+                Integer.getInteger("api.threads", Math.max(4, Runtime.getRuntime().availableProcessors() * 2)));
+    }
+
+    public DeviceApiServer start() {
+        registry.addListener(this);
+        server.start();
+        return this;
+    }
+
+    public int port() { return server.getAddress().getPort(); }
+
+    @Override
+    public void close() {
+        registry.removeListener(this);
+        stream.close();
+        server.stop(0);
+        if (pool == null) return;
+        pool.shutdown();
+        try {
+            pool.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public String stats() {
+        return String.format("🌐 API: %,d requests, %,d commands, %,d failed, %s threads, %s%n%s",
+                requests.sum(), commands.sum(), failures.sum(), pool == null ? "virtual" : "pooled",
+                latency.summary(), stream.stats());
+    }
+
+    // Any change makes the cached listing stale; it is rebuilt by the next request that needs it
+    @Override
+    public void deviceAdded(SmartDevice device) { version.incrementAndGet(); }
+
+    @Override
+    public void deviceRemoved(SmartDevice device) { version.incrementAndGet(); }
+
+    @Override
+    public void deviceChanged(SmartDevice device, DeviceProperty property) { version.incrementAndGet(); }
+
+    // Compact device JSON: {"id":1,"name":"...","room":"...","type":"Light","on":true,"power":12.1,...}
+    static StringBuilder appendDevice(StringBuilder out, SmartDevice device) {
+        out.append("{\"id\":").append(device.getId()).append(",\"name\":");
+        Json.quote(out, device.getName()).append(",\"room\":");
+        Json.quote(out, device.getRoom()).append(",\"type\":");
+        Json.quote(out, device.getType()).append(",\"on\":").append(device.isOn()).append(",\"power\":");
+        Json.number(out, device.getPowerWatts());
+        if (device instanceof SmartLight) {
+            SmartLight light = (SmartLight) device;
+            out.append(",\"brightness\":").append(light.getBrightness()).append(",\"color\":");
+            Json.quote(out, light.getColor());
+        } else if (device instanceof SmartThermostat) {
+            SmartThermostat thermostat = (SmartThermostat) device;
+            out.append(",\"temperature\":");
+            Json.number(out, thermostat.getTemperature()).append(",\"mode\":");
+            Json.quote(out, thermostat.getMode());
+        } else if (device instanceof SmartSecurity) {
+            SmartSecurity security = (SmartSecurity) device;
+            out.append(",\"armed\":").append(security.isArmed()).append(",\"level\":");
+            Json.quote(out, security.getSecurityLevel());
+        }
+        return out.append('}');
+    }
+
+    // Checks every key first, then applies them in order; throws IllegalArgumentException
+    // naming the first bad key
+    static int control(SmartDevice device, Map<String, Object> command) {
+        List<Runnable> actions = new ArrayList<>(command.size());
+        for (Map.Entry<String, Object> entry : command.entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+            switch (key) {
+                case "id":
+                    break;
+                case "on": {
+                    boolean on = bool(key, value);
+                    actions.add(on ? device::turnOn : device::turnOff);
+                    break;
+                }
+                case "brightness": {
+                    SmartLight light = as(SmartLight.class, device, key);
+                    double level = num(key, value);
+                    if (level < 0 || level > SmartLight.MAX_BRIGHTNESS || level != Math.rint(level)) {
+                        throw new IllegalArgumentException("brightness must be a whole number 0-" + SmartLight.MAX_BRIGHTNESS);
+                    }
+                    actions.add(() -> light.setBrightness((int) level));
+                    break;
+                }
+                case "color": {
+                    SmartLight light = as(SmartLight.class, device, key);
+                    String color = text(key, value);
+                    actions.add(() -> light.setColor(color));
+                    break;
+                }
+                case "temperature": {
+                    SmartThermostat thermostat = as(SmartThermostat.class, device, key);
+                    double temperature = num(key, value);
+                    if (temperature < SmartThermostat.MIN_TEMPERATURE || temperature > SmartThermostat.MAX_TEMPERATURE) {
+                        throw new IllegalArgumentException("temperature must be from " + SmartThermostat.MIN_TEMPERATURE
+                                + " to " + SmartThermostat.MAX_TEMPERATURE);
+                    }
+                    actions.add(() -> thermostat.setTemperature(temperature));
+                    break;
+                }
+                case "mode": {
+                    SmartThermostat thermostat = as(SmartThermostat.class, device, key);
+                    String mode = oneOf(key, value, SmartThermostat.MODES);
+                    actions.add(() -> thermostat.setMode(mode));
+                    break;
+                }
+                case "armed": {
+                    SmartSecurity security = as(SmartSecurity.class, device, key);
+                    boolean armed = bool(key, value);
+                    actions.add(armed ? security::armSystem : security::disarmSystem);
+                    break;
+                }
+                case "level": {
+                    SmartSecurity security = as(SmartSecurity.class, device, key);
+                    String level = oneOf(key, value, SmartSecurity.LEVELS);
+                    actions.add(() -> security.setSecurityLevel(level));
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown control '" + key + "'");
+            }
+        }
+        for (Runnable action : actions) {
+            action.run();
+        }
+        return actions.size();
+    }
+
+    private void devices(HttpExchange exchange) throws IOException {
+        handle(exchange, () -> {
+            String path = exchange.getRequestURI().getPath();
+            String rest = path.length() > "/api/devices".length() ? path.substring("/api/devices/".length()) : "";
+            String method = exchange.getRequestMethod();
+            if (rest.isEmpty()) {
+                if (!method.equals("GET")) return Response.error(405, "Use GET");
+                String room = query(exchange, "room");
+                return room == null ? Response.json(listing())
+                        : Response.json(list(registry.inRoom(room), stream.position()));
+            }
+            SmartDevice device = findById(rest);
+            if (device == null) return Response.error(404, "No device " + rest);
+            if (method.equals("GET")) return Response.json(appendDevice(new StringBuilder(256), device));
+            if (!method.equals("POST") && !method.equals("PUT")) return Response.error(405, "Use GET or POST");
+            if (!isJson(exchange)) return Response.error(415, "Send commands as application/json");
+            Object body = Json.parse(body(exchange));
+            if (!(body instanceof Map)) return Response.error(400, "Expected a JSON object");
+            commands.add(control(device, cast(body)));
+            return Response.json(appendDevice(new StringBuilder(256), device));
+        });
+    }
+
+    // Results line up with the commands; a failed command gives {"id":..,"error":".."} and the
+    // rest still run
+    private void batch(HttpExchange exchange) throws IOException {
+        handle(exchange, () -> {
+            if (!exchange.getRequestMethod().equals("POST")) return Response.error(405, "Use POST");
+            if (!isJson(exchange)) return Response.error(415, "Send commands as application/json");
+            Object body = Json.parse(body(exchange));
+            if (!(body instanceof List)) return Response.error(400, "Expected a JSON array of commands");
+            List<?> batch = (List<?>) body;
+            if (batch.size() > MAX_BATCH) return Response.error(413, "At most " + MAX_BATCH + " commands per batch");
+            StringBuilder out = new StringBuilder(64 + batch.size() * 128).append("{\"results\":[");
+            int applied = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                if (i > 0) out.append(',');
+                Object item = batch.get(i);
+                Object id = item instanceof Map ? ((Map<?, ?>) item).get("id") : null;
+                // 1.7 is not device 1
+                boolean whole = id instanceof Double && (Double) id == Math.rint((Double) id)
+                        && Math.abs((Double) id) <= Integer.MAX_VALUE;
+                SmartDevice device = whole ? registry.findById(((Double) id).intValue()) : null;
+                if (device == null) {
+                    out.append("{\"id\":");
+                    if (id instanceof Double) Json.number(out, (Double) id);
+                    else out.append("null");
+                    out.append(",\"error\":\"").append(whole ? "No such device" : "id must be a whole number").append("\"}");
+                    continue;
+                }
+                try {
+                    applied += control(device, cast(item));
+                    appendDevice(out, device);
+                } catch (IllegalArgumentException e) {
+                    out.append("{\"id\":").append(device.getId()).append(",\"error\":");
+                    Json.quote(out, e.getMessage()).append('}');
+                }
+            }
+            commands.add(applied);
+            return Response.json(out.append("]}"));
+        });
+    }
+
+    private void energy(HttpExchange exchange) throws IOException {
+        handle(exchange, () -> {
+            if (energy == null) return Response.error(404, "Energy monitoring is off");
+            StringBuilder out = new StringBuilder(256).append("{\"watts\":");
+            Json.number(out, energy.homeWatts()).append(",\"averages\":{");
+            EnergyMonitor.Window[] windows = EnergyMonitor.Window.values();
+            for (int i = 0; i < windows.length; i++) {
+                if (i > 0) out.append(',');
+                Json.quote(out, windows[i].name().toLowerCase(Locale.ROOT)).append(':');
+                Json.number(out, energy.homeAverageWatts(windows[i]));
+            }
+            out.append("},\"kwh\":").append(String.format(Locale.ROOT, "%.3f", energy.homeKilowattHours()));
+            out.append(",\"rooms\":[");
+            boolean first = true;
+            for (String room : registry.rooms()) {
+                if (!first) out.append(',');
+                first = false;
+                out.append("{\"room\":");
+                Json.quote(out, room).append(",\"watts\":");
+                Json.number(out, energy.roomWatts(room)).append('}');
+            }
+            return Response.json(out.append("]}"));
+        });
+    }
+
+    // Hands the exchange over to the stream, which keeps it open; not timed like the others
+    private void stream(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            handle(exchange, () -> Response.error(405, "Use GET"));
+            return;
+        }
+        requests.increment();
+        String since = exchange.getRequestHeaders().getFirst("Last-Event-ID");
+        if (since == null) since = query(exchange, "since");
+        stream.connect(exchange, since);
+    }
+
+    // The dashboard's own files, so it can call the API from the same origin
+    private void files(HttpExchange exchange) throws IOException {
+        handle(exchange, () -> {
+            if (webRoot == null) return Response.error(404, "Not found");
+            if (!exchange.getRequestMethod().equals("GET")) return Response.error(405, "Use GET");
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/")) path = "/index.html";
+            String type = contentType(path);
+            Path file = webRoot.resolve(path.substring(1)).normalize();
+            if (type == null || !file.startsWith(webRoot) || !Files.isRegularFile(file)) {
+                return Response.error(404, "Not found");
+            }
+            return new Response(200, type, Files.readAllBytes(file));
+        });
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        long started = System.nanoTime();
+        requests.increment();
+        Response response;
+        try {
+            response = handler.handle();
+        } catch (IllegalArgumentException e) {
+            response = Response.error(400, e.getMessage());
+        } catch (TooLarge e) {
+            response = Response.error(413, "Request body over " + MAX_BODY + " bytes");
+        } catch (IOException e) {
+            response = Response.error(500, e.getMessage());
+        }
+        if (response.status >= 400) failures.increment();
+        try {
+            Headers headers = exchange.getResponseHeaders();
+            headers.set("Cache-Control", "no-store");
+            if (response.type != null) headers.set("Content-Type", response.type);
+            exchange.sendResponseHeaders(response.status, response.body.length == 0 ? -1 : response.body.length);
+            if (response.body.length > 0) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(response.body);
+                }
+            }
+        } finally {
+            exchange.close();
+            latency.record(System.nanoTime() - started);
+        }
+    }
+
+    // Registry listing, re-encoded only after a change
+    private byte[] listing() {
+        long current = version.get();
+        Listing cached = listing;
+        if (cached != null && cached.version == current) return cached.json;
+        // Taken before encoding, so the listing reflects at least everything up to it
+        String since = stream.position();
+        byte[] json = list(registry, since).toString().getBytes(StandardCharsets.UTF_8);
+        listing = new Listing(current, json);
+        return json;
+    }
+
+    private StringBuilder list(Iterable<SmartDevice> devices, String since) {
+        StringBuilder out = new StringBuilder(4096).append("{\"since\":");
+        Json.quote(out, since).append(",\"devices\":[");
+        boolean first = true;
+        for (SmartDevice device : devices) {
+            if (!first) out.append(',');
+            first = false;
+            appendDevice(out, device);
+        }
+        return out.append("]}");
+    }
+
+    private SmartDevice findById(String id) {
+        try {
+            return registry.findById(Integer.parseInt(id));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String body(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int n; (n = in.read(buffer)) > 0; ) {
+                if (out.size() + n > MAX_BODY) throw new TooLarge();
+                out.write(buffer, 0, n);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    // Parameters after the media type are fine: application/json; charset=utf-8
+    private static boolean isJson(HttpExchange exchange) {
+        String type = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (type == null) return false;
+        int semicolon = type.indexOf(';');
+        return (semicolon < 0 ? type : type.substring(0, semicolon)).trim().equalsIgnoreCase("application/json");
+    }
+
+    private static String query(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) return null;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                return URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private static String contentType(String path) {
+        if (path.endsWith(".html")) return "text/html; charset=utf-8";
+        if (path.endsWith(".js")) return "text/javascript; charset=utf-8";
+        if (path.endsWith(".css")) return "text/css; charset=utf-8";
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> cast(Object command) {
+        return (Map<String, Object>) command;
+    }
+
+    private static <T extends SmartDevice> T as(Class<T> type, SmartDevice device, String key) {
+        if (!type.isInstance(device)) {
+            throw new IllegalArgumentException(device.getType() + " has no '" + key + "'");
+        }
+        return type.cast(device);
+    }
+
+    private static boolean bool(String key, Object value) {
+        if (!(value instanceof Boolean)) throw new IllegalArgumentException(key + " must be true or false");
+        return (Boolean) value;
+    }
+
+    private static double num(String key, Object value) {
+        if (!(value instanceof Double) || !Double.isFinite((Double) value)) {
+            throw new IllegalArgumentException(key + " must be a number");
+        }
+        return (Double) value;
+    }
+
+    private static String text(String key, Object value) {
+        if (!(value instanceof String) || ((String) value).isBlank()) {
+            throw new IllegalArgumentException(key + " must be a non-empty string");
+        }
+        return (String) value;
+    }
+
+    // Matched ignoring case and stored as spelled in the list
+    private static String oneOf(String key, Object value, String[] allowed) {
+        String text = text(key, value).trim();
+        for (String candidate : allowed) {
+            if (candidate.equalsIgnoreCase(text)) return candidate;
+        }
+        throw new IllegalArgumentException(key + " must be one of " + String.join(", ", allowed));
+    }
+
+    private interface Handler {
+        Response handle() throws IOException;
+    }
+
+    private static final class TooLarge extends IOException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    private static final class Listing {
+        final long version;
+        final byte[] json;
+
+        Listing(long version, byte[] json) {
+            this.version = version;
+            this.json = json;
+        }
+    }
+
+    private static final class Response {
+        final int status;
+        final String type;
+        final byte[] body;
+
+        Response(int status, String type, byte[] body) {
+            this.status = status;
+            this.type = type;
+            this.body = body;
+        }
+
+        static Response json(byte[] json) { return new Response(200, JSON, json); }
+
+        static Response json(StringBuilder json) {
+            return json(json.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Response error(int status, String message) {
+            StringBuilder out = new StringBuilder("{\"error\":");
+            return new Response(status, JSON, Json.quote(out, message).append('}').toString()
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package smarthome;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// Coalesces rapid writes to the same device property.
+//
+// A command submitted for (device, property) waits out the window; any command submitted for
+// the same pair in the meantime replaces it, so only the latest value is applied when the
+// window closes. Dragging a slider across 100 positions in 200 ms therefore turns into a
+// handful of writes instead of 100. Commands run on the given executor (Platform::runLater
+// in the GUI), which keeps the model single-threaded; the timers live on a private thread.
+public class DeviceCommandPipeline implements Closeable {
+    private final Executor applyOn;
+    private final long windowMillis;
+    private final ConcurrentHashMap<Key, Runnable> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "device-commands");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder merged = new LongAdder();
+
+    public DeviceCommandPipeline(Executor applyOn, long windowMillis) {
+        this.applyOn = applyOn;
+        this.windowMillis = windowMillis;
+    }
+
+    public void submit(SmartDevice device, DeviceProperty property, Runnable command) {
+        submitted.increment();
+        if (windowMillis <= 0) {
+            applied.increment();
+            applyOn.execute(command);
+            return;
+        }
+        Key key = new Key(device, property);
+        if (pending.put(key, command) == null) {
+            timer.schedule(() -> fire(key), windowMillis, TimeUnit.MILLISECONDS);
+        } else {
+            merged.increment();
+        }
+    }
+
+    // Applies everything still waiting, e.g. when the control dialog closes
+    public void flush() {
+        for (Key key : new ArrayList<>(pending.keySet())) {
+            fire(key);
+        }
+    }
+
+    public long submitted() { return submitted.sum(); }
+    public long applied() { return applied.sum(); }
+    public long merged() { return merged.sum(); }
+
+    public String stats() {
+        return submitted() + " commands, " + merged() + " merged, " + applied() + " applied";
+    }
+
+    // Runs whatever is still pending right here; call it from the thread commands apply on
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        for (Key key : new ArrayList<>(pending.keySet())) {
+            Runnable command = pending.remove(key);
+            if (command != null) {
+                applied.increment();
+                command.run();
+            }
+        }
+    }
+
+    private void fire(Key key) {
+        Runnable command = pending.remove(key);
+        if (command != null) {
+            applied.increment();
+            applyOn.execute(command);
+        }
+    }
+
+    private static class Key {
+        final SmartDevice device;
+        final DeviceProperty property;
+
+        Key(SmartDevice device, DeviceProperty property) {
+            this.device = device;
+            this.property = property;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return device == other.device && property == other.property;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(device) * 31 + property.hashCode();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package smarthome;
+
+// One state transition, as delivered by DeviceEventBus.
+//
+// CHANGED events carry the property with its value before and after: Boolean for POWER and
+// ARMED, Integer for BRIGHTNESS, Double for TEMPERATURE, String for COLOR, MODE and
+// SECURITY_LEVEL. ADDED and REMOVED carry just the device. RESYNC is sent to a subscriber
+// that lost events to back-pressure: re-read the registry instead of applying deltas.
+// Sequence numbers are per bus and increase with every published event. One device's events
+// are numbered, and reach every subscriber, in the order its state changed; events of
+// different devices published at the same time may arrive slightly out of sequence order.
+public final class DeviceEvent {
+    public enum Type { ADDED, REMOVED, CHANGED, RESYNC }
+
+    private final long sequence;
+    private final long timeNanos;
+    private final Type type;
+    private final SmartDevice device;
+    private final DeviceProperty property;
+    private final Object before;
+    private final Object after;
+
+    DeviceEvent(long sequence, Type type, SmartDevice device, DeviceProperty property, Object before, Object after) {
+        this.sequence = sequence;
+        this.timeNanos = System.nanoTime();
+        this.type = type;
+        this.device = device;
+        this.property = property;
+        this.before = before;
+        this.after = after;
+    }
+
+    public long sequence() { return sequence; }
+    public long timeNanos() { return timeNanos; }
+    public Type type() { return type; }
+    public SmartDevice device() { return device; }
+    public DeviceProperty property() { return property; }
+    public Object before() { return before; }
+    public Object after() { return after; }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case CHANGED: return "#" + sequence + " " + device.getName() + " " + property + ": " + before + " -> " + after;
+            case RESYNC: return "#" + sequence + " RESYNC";
+            default: return "#" + sequence + " " + type + " " + device.getName();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package smarthome;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+// Publish/subscribe for device state transitions.
+//
+// Every subscriber has its own bounded lock-free RingBuffer, so publishing is one offer per
+// subscriber and never takes a lock; a slow subscriber only fills its own buffer. Delivery
+// runs on the subscriber's executor (Platform::runLater for the GUI, a worker thread for
+// anything else) in batches: the first event into an empty buffer schedules a drain, and
+// the drain keeps going until the buffer is empty.
+//
+// When a buffer is full the subscriber's policy decides:
+//   BLOCK  - the publisher waits for room (at most a second, then the event is dropped)
+//   DROP   - the event is dropped and counted
+//   RESYNC - the event is dropped and the subscriber later gets one RESYNC event telling
+//            it to re-read the registry, which suits views that can rebuild themselves
+// Each subscription counts what it was offered, delivered and dropped, its current lag
+// (events waiting) and how long events waited before being handled.
+public class DeviceEventBus {
+    public enum Policy { BLOCK, DROP, RESYNC }
+
+    private static final int DRAIN_BATCH = 1024;
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public Subscription subscribe(String name, int capacity, Policy policy, Executor executor,
+                                  Consumer<DeviceEvent> handler) {
+        Subscription subscription = new Subscription(name, capacity, policy, executor, handler);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    // Lets publishers skip building events nobody will see
+    public boolean hasSubscribers() {
+        return !subscriptions.isEmpty();
+    }
+
+    public long lastSequence() {
+        return sequence.get();
+    }
+
+    // Called with the device's monitor held, so the sequence number and the order of the
+    // offers match the order of that device's state changes
+    void publish(DeviceEvent.Type type, SmartDevice device, DeviceProperty property, Object before, Object after) {
+        if (subscriptions.isEmpty()) return;
+        DeviceEvent event = new DeviceEvent(sequence.incrementAndGet(), type, device, property, before, after);
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    public String stats() {
+        StringBuilder sb = new StringBuilder("📡 Event bus: ").append(sequence.get()).append(" events");
+        for (Subscription subscription : subscriptions) {
+            sb.append("\n  ").append(subscription.stats());
+        }
+        return sb.toString();
+    }
+
+    public class Subscription {
+        private final String name;
+        private final Policy policy;
+        private final Executor executor;
+        private final Consumer<DeviceEvent> handler;
+        private final RingBuffer<DeviceEvent> buffer;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean resync = new AtomicBoolean();
+        private final Runnable drain = this::drain;
+        private volatile boolean active = true;
+
+        private final LongAdder offered = new LongAdder();
+        private final LongAdder delivered = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private volatile int maxLag;
+        private volatile long maxWaitNanos;
+        private volatile long lastWaitNanos;
+
+        Subscription(String name, int capacity, Policy policy, Executor executor, Consumer<DeviceEvent> handler) {
+            this.name = name;
+            this.policy = policy;
+            this.executor = executor;
+            this.handler = handler;
+            this.buffer = new RingBuffer<>(capacity);
+        }
+
+        public void cancel() {
+            active = false;
+            subscriptions.remove(this);
+        }
+
+        public String name() { return name; }
+        public long offered() { return offered.sum(); }
+        public long delivered() { return delivered.sum(); }
+        public long dropped() { return dropped.sum(); }
+        // Events published but not handled yet
+        public int lag() { return buffer.size(); }
+
+        public String stats() {
+            return String.format("%s (%s): %d delivered, %d dropped, lag %d (max %d), wait %.2f ms (max %.2f ms)",
+                    name, policy, delivered(), dropped(), lag(), maxLag, lastWaitNanos / 1e6, maxWaitNanos / 1e6);
+        }
+
+        private void offer(DeviceEvent event) {
+            offered.increment();
+            if (!buffer.offer(event) && !overflow(event)) return;
+            int lag = buffer.size();
+            if (lag > maxLag) maxLag = lag;
+            schedule();
+        }
+
+        // Returns true if the event got in after all
+        private boolean overflow(DeviceEvent event) {
+            if (policy == Policy.BLOCK) {
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+                while (active && System.nanoTime() < deadline) {
+                    schedule();
+                    LockSupport.parkNanos(50_000);
+                    if (buffer.offer(event)) return true;
+                }
+            }
+            dropped.increment();
+            if (policy == Policy.RESYNC) {
+                resync.set(true);
+                schedule();
+            }
+            return false;
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) executor.execute(drain);
+        }
+
+        private void drain() {
+            int handled = 0;
+            DeviceEvent event;
+            while (active && handled < DRAIN_BATCH && (event = buffer.poll()) != null) {
+                deliver(event);
+                handled++;
+            }
+            if (active && buffer.size() == 0 && resync.getAndSet(false)) {
+                deliver(new DeviceEvent(sequence.get(), DeviceEvent.Type.RESYNC, null, null, null, null));
+            }
+            scheduled.set(false);
+            // Something may have arrived after the last poll; a full batch also hands the
+            // executor back (the FX thread has frames to draw) before carrying on
+            if (active && (buffer.size() > 0 || resync.get())) schedule();
+        }
+
+        private void deliver(DeviceEvent event) {
+            long wait = System.nanoTime() - event.timeNanos();
+            lastWaitNanos = wait;
+            if (wait > maxWaitNanos) maxWaitNanos = wait;
+            try {
+                handler.accept(event);
+            } catch (RuntimeException e) {
+                EventLog.global().message(EventLog.Level.ERROR, "❌ Event subscriber '" + name + "' failed: " + e);
+            }
+            delivered.increment();
+        }
+    }
+}
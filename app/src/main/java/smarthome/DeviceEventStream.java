@@ -0,0 +1,354 @@
+package smarthome;
+
+import com.sun.net.httpserver.HttpExchange;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Server-sent events for the web dashboard: each device change goes out once as a small
+// delta instead of clients polling the full list.
+//
+//   event: changed   data: {"seq":42,"id":3,"on":true,"power":12.1}
+//   event: added     data: {"seq":43,"device":{...same as GET /api/devices/{id}...}}
+//   event: removed   data: {"seq":44,"id":3}
+//   event: resync    data: {"seq":44}   -> re-read GET /api/devices, then keep applying deltas
+//
+// One event bus subscription feeds every client: a delta is encoded once and the same bytes
+// are queued for all of them, so a hundred dashboards cost a hundred queue offers per change.
+// Every client has its own bounded RingBuffer and writer thread; a client whose buffer fills
+// up (a burst of changes, a slow network) has its backlog dropped and gets one resync instead.
+// A client that is still full with no write getting through for the stall time (a sleeping
+// laptop, a dead connection) counts as slow and is dropped: nothing more is queued for it and
+// its writer quits once the blocked write returns. Nobody else is held up either way.
+//
+// Frames carry the device's state as the hub finds it, not the event's after value, and are
+// numbered by the hub in the order it sends them: the bus keeps each device's events in order,
+// but two devices' events can reach the hub out of sequence order, so "seq" is the stream's
+// own position and not the bus sequence.
+//
+// Event ids are "<epoch>:<position>", the epoch telling this server run apart from earlier
+// ones. A reconnecting EventSource sends the last id back as Last-Event-ID (the first connect
+// can pass the listing's "since" as ?since=); whatever is still in the recent history is
+// replayed, and a client that fell further behind gets a resync.
+final class DeviceEventStream implements AutoCloseable {
+    private static final long HEARTBEAT_NANOS = TimeUnit.SECONDS.toNanos(15);
+    private static final byte[] HELLO = ("retry: 2000\n: device deltas\n\n").getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PING = ": ping\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final int clientBuffer;
+    private final int maxClients;
+    private final long stallNanos;
+    private final ThreadFactory writers;
+    private final ExecutorService hub;
+    private final DeviceEventBus.Subscription subscription;
+    private final List<Client> clients = new CopyOnWriteArrayList<>();
+
+    // Recent frames for resuming, guarded by this; only the hub thread appends
+    private final Frame[] history;
+    private int historyNext;
+    private int historySize;
+    // Frames sent so far; only the hub thread advances it
+    private long position;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder connects = new LongAdder();
+    private final LongAdder resumed = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+    private final LongAdder resyncs = new LongAdder();
+    private final LongAdder slowDisconnects = new LongAdder();
+
+    DeviceEventStream(DeviceRegistry registry, int historySize, int clientBuffer, int maxClients, long stallMillis) {
+        this.history = new Frame[Math.max(1, historySize)];
+        this.clientBuffer = clientBuffer;
+        this.maxClients = maxClients;
+        this.stallNanos = TimeUnit.MILLISECONDS.toNanos(stallMillis);
+        ThreadFactory virtual = FleetSimulator.virtualThreadFactory();
+        AtomicInteger counter = new AtomicInteger();
+        this.writers = virtual != null ? virtual : r -> {
+            Thread t = new Thread(r, "sse-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        this.hub = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "sse-hub");
+            t.setDaemon(true);
+            return t;
+        });
+        this.subscription = registry.events().subscribe("sse", 65_536, DeviceEventBus.Policy.RESYNC, hub, this::publish);
+    }
+
+    // The id a listing should hand to the stream as ?since=; taken before the listing is
+    // encoded, every frame up to it was encoded earlier and the listing is at least as new
+    synchronized String position() {
+        return epoch + ":" + position;
+    }
+
+    String stats() {
+        return String.format("📺 Stream: %d clients, %,d deltas, %,d connects (%,d resumed), %,d overflows, %,d resyncs, %,d slow clients dropped",
+                clients.size(), published.sum(), connects.sum(), resumed.sum(), overflows.sum(), resyncs.sum(),
+                slowDisconnects.sum());
+    }
+
+    // Takes over the exchange: the handler thread returns and a writer thread keeps the
+    // response open until the client goes away or the stream closes
+    void connect(HttpExchange exchange, String since) throws IOException {
+        if (clients.size() >= maxClients) {
+            byte[] body = "{\"error\":\"Too many streams\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(503, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        exchange.sendResponseHeaders(200, 0);
+        Client client = new Client(exchange, new RingBuffer<>(clientBuffer));
+        connects.increment();
+        synchronized (this) {
+            long from = resumePoint(since);
+            if (from < 0) {
+                client.resync.set(true);
+            } else {
+                // Everything after 'from' is either in the history or still to come
+                client.after = from;
+                for (int i = historySize; i > 0; i--) {
+                    Frame frame = history[Math.floorMod(historyNext - i, history.length)];
+                    if (frame.position > from && !client.buffer.offer(frame)) {
+                        client.resync.set(true);
+                        break;
+                    }
+                }
+                if (since != null) resumed.increment();
+            }
+            clients.add(client);
+        }
+        client.thread = writers.newThread(client::run);
+        client.thread.start();
+    }
+
+    @Override
+    public void close() {
+        subscription.cancel();
+        hub.shutdown();
+        for (Client client : clients) {
+            client.stop();
+        }
+    }
+
+    // The position to replay after, or -1 if the client must resync. No position means "from
+    // now"; a position from another server run, ahead of this one, or older than the history
+    // cannot be resumed.
+    private long resumePoint(String since) {
+        if (since == null || since.isEmpty()) return position;
+        int colon = since.indexOf(':');
+        if (colon < 0 || !since.substring(0, colon).equals(epoch)) return -1;
+        long from;
+        try {
+            from = Long.parseLong(since.substring(colon + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        if (from > position) return -1;
+        if (from == position) return from;
+        long oldest = historySize == 0 ? position + 1
+                : history[Math.floorMod(historyNext - historySize, history.length)].position;
+        return from >= oldest - 1 ? from : -1;
+    }
+
+    // Runs on the hub thread, one event at a time
+    private void publish(DeviceEvent event) {
+        if (event.type() == DeviceEvent.Type.RESYNC) {
+            // The hub itself fell behind the bus: nobody can be resumed across that gap
+            synchronized (this) {
+                historySize = 0;
+                for (Client client : clients) {
+                    client.requestResync();
+                }
+            }
+            return;
+        }
+        // Only this thread moves the position, so the next one can be read without the lock
+        Frame frame = new Frame(position + 1, encode(event, position + 1));
+        published.increment();
+        synchronized (this) {
+            history[historyNext] = frame;
+            historyNext = (historyNext + 1) % history.length;
+            if (historySize < history.length) historySize++;
+            position = frame.position;
+            for (Client client : clients) {
+                client.offer(frame);
+            }
+        }
+    }
+
+    private byte[] encode(DeviceEvent event, long position) {
+        SmartDevice device = event.device();
+        StringBuilder out = new StringBuilder(160);
+        out.append("id: ").append(epoch).append(':').append(position).append('\n');
+        out.append("event: ").append(event.type().name().toLowerCase(Locale.ROOT)).append('\n');
+        out.append("data: {\"seq\":").append(position);
+        switch (event.type()) {
+            case ADDED:
+                DeviceApiServer.appendDevice(out.append(",\"device\":"), device);
+                break;
+            case REMOVED:
+                out.append(",\"id\":").append(device.getId());
+                break;
+            default:
+                out.append(",\"id\":").append(device.getId()).append(',');
+                Json.quote(out, key(event.property())).append(':');
+                // The device may have moved on since this event; its next event follows this
+                // frame, so sending what it holds now can never leave the client behind
+                value(out, current(device, event.property()));
+                // Power follows from the rest of the state, so it rides along with every change
+                out.append(",\"power\":");
+                Json.number(out, device.getPowerWatts());
+        }
+        return out.append("}\n\n").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Same names as the control API and the device JSON
+    static String key(DeviceProperty property) {
+        switch (property) {
+            case POWER: return "on";
+            case SECURITY_LEVEL: return "level";
+            default: return property.name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static Object current(SmartDevice device, DeviceProperty property) {
+        switch (property) {
+            case POWER: return device.isOn();
+            case BRIGHTNESS: return ((SmartLight) device).getBrightness();
+            case COLOR: return ((SmartLight) device).getColor();
+            case TEMPERATURE: return ((SmartThermostat) device).getTemperature();
+            case MODE: return ((SmartThermostat) device).getMode();
+            case ARMED: return ((SmartSecurity) device).isArmed();
+            default: return ((SmartSecurity) device).getSecurityLevel();
+        }
+    }
+
+    private static void value(StringBuilder out, Object value) {
+        if (value instanceof String) Json.quote(out, (String) value);
+        else if (value instanceof Double) Json.number(out, (Double) value);
+        else out.append(value);
+    }
+
+    private static final class Frame {
+        final long position;
+        final byte[] bytes;
+
+        Frame(long position, byte[] bytes) {
+            this.position = position;
+            this.bytes = bytes;
+        }
+    }
+
+    private final class Client {
+        final HttpExchange exchange;
+        final RingBuffer<Frame> buffer;
+        final AtomicBoolean resync = new AtomicBoolean();
+        volatile boolean stopped;
+        volatile Thread thread;
+        // When a write last got through to the client
+        volatile long flushed = System.nanoTime();
+        // Frames up to here were already seen by the client
+        long after;
+
+        Client(HttpExchange exchange, RingBuffer<Frame> buffer) {
+            this.exchange = exchange;
+            this.buffer = buffer;
+        }
+
+        // Hub thread only
+        void offer(Frame frame) {
+            if (stopped || frame.position <= after) return;
+            if (!buffer.offer(frame)) {
+                overflows.increment();
+                if (resync.get() && System.nanoTime() - flushed > stallNanos) {
+                    slowDisconnects.increment();
+                    stop();
+                    return;
+                }
+                requestResync();
+                return;
+            }
+            Thread writer = thread;
+            if (writer != null) LockSupport.unpark(writer);
+        }
+
+        // The backlog is useless once the client has to re-read the list anyway
+        void requestResync() {
+            if (resync.getAndSet(true)) return;
+            Thread writer = thread;
+            if (writer != null) LockSupport.unpark(writer);
+        }
+
+        void stop() {
+            stopped = true;
+            clients.remove(this);
+            Thread writer = thread;
+            if (writer != null) LockSupport.unpark(writer);
+        }
+
+        // Writes whatever is queued in one go, then waits for more or for the next heartbeat
+        void run() {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(HELLO);
+                out.flush();
+                long idleSince = System.nanoTime();
+                while (!stopped) {
+                    boolean wrote = false;
+                    if (resync.get()) {
+                        while (buffer.poll() != null) { }
+                        resync.set(false);
+                        long at;
+                        synchronized (DeviceEventStream.this) {
+                            at = position;
+                        }
+                        resyncs.increment();
+                        out.write(("id: " + epoch + ":" + at + "\nevent: resync\ndata: {\"seq\":" + at + "}\n\n")
+                                .getBytes(StandardCharsets.UTF_8));
+                        wrote = true;
+                    }
+                    for (Frame frame; (frame = buffer.poll()) != null; ) {
+                        out.write(frame.bytes);
+                        wrote = true;
+                    }
+                    long now = System.nanoTime();
+                    if (!wrote && now - idleSince >= HEARTBEAT_NANOS) {
+                        out.write(PING);
+                        wrote = true;
+                    }
+                    if (wrote) {
+                        out.flush();
+                        flushed = System.nanoTime();
+                        idleSince = now;
+                    } else {
+                        LockSupport.parkNanos(this, HEARTBEAT_NANOS);
+                    }
+                }
+            } catch (IOException e) {
+                // The client went away
+            } finally {
+                stopped = true;
+                clients.remove(this);
+                exchange.close();
+            }
+        }
+    }
+}
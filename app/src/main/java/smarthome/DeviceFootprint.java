@@ -0,0 +1,97 @@
+package smarthome;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.*;
+
+// Measures retained heap per device for the object model and for DeviceStateStore.
+// Usage: java DeviceFootprint [deviceCount]
+public class DeviceFootprint {
+    private static final String[] COLORS = {"White", "Warm White", "Red", "Blue"};
+    private static final String[] MODES = {"Heating", "Cooling", "Auto"};
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        System.out.println("📏 Measuring footprint for " + count + " devices...");
+
+        long before = usedHeap();
+        List<SmartDevice> objects = buildObjects(count);
+        long objectBytes = usedHeap() - before;
+
+        before = usedHeap();
+        DeviceStateStore store = buildStore(count);
+        long storeBytes = usedHeap() - before;
+
+        System.out.printf("🧱 Object model:  %,d bytes (%.1f bytes/device)%n", objectBytes, (double) objectBytes / count);
+        System.out.printf("📦 Columnar store: %,d bytes (%.1f bytes/device, estimate %.1f)%n",
+                storeBytes, (double) storeBytes / count, store.bytesPerDevice());
+
+        // Keep both alive until after the measurements
+        System.out.println("✅ " + objects.size() + " objects, " + store.size() + " rows");
+    }
+
+    // Rooms and names are built per device, the way a file loader produces them
+    private static List<SmartDevice> buildObjects(int count) {
+        List<SmartDevice> devices = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String name = "Device " + i;
+            String room = "Room " + (i % 500);
+            switch (i % 3) {
+                case 0:
+                    SmartLight light = new SmartLight(name, room);
+                    light.applyColor(new String(COLORS[i % COLORS.length]));
+                    light.applyBrightness(i % 101);
+                    devices.add(light);
+                    break;
+                case 1:
+                    SmartThermostat thermostat = new SmartThermostat(name, room);
+                    thermostat.applyMode(new String(MODES[i % MODES.length]));
+                    thermostat.applyTemperature(18 + (i % 80) / 10.0);
+                    devices.add(thermostat);
+                    break;
+                default:
+                    SmartSecurity security = new SmartSecurity(name, room);
+                    security.applyArmed(i % 2 == 0);
+                    devices.add(security);
+            }
+            devices.get(i).applyOn(i % 2 == 0);
+        }
+        return devices;
+    }
+
+    private static DeviceStateStore buildStore(int count) {
+        DeviceStateStore store = new DeviceStateStore();
+        for (int i = 0; i < count; i++) {
+            String name = "Device " + i;
+            String room = "Room " + (i % 500);
+            int row;
+            switch (i % 3) {
+                case 0:
+                    row = store.addLight(name, room);
+                    SmartLight light = (SmartLight) store.view(row);
+                    light.applyColor(COLORS[i % COLORS.length]);
+                    light.applyBrightness(i % 101);
+                    break;
+                case 1:
+                    row = store.addThermostat(name, room);
+                    SmartThermostat thermostat = (SmartThermostat) store.view(row);
+                    thermostat.applyMode(MODES[i % MODES.length]);
+                    thermostat.applyTemperature(18 + (i % 80) / 10.0);
+                    break;
+                default:
+                    row = store.addSecurity(name, room);
+                    ((SmartSecurity) store.view(row)).applyArmed(i % 2 == 0);
+            }
+            store.view(row).applyOn(i % 2 == 0);
+        }
+        return store;
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,248 @@
+package smarthome;
+
+import java.util.*;
+import java.util.function.Consumer;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.scene.Node;
+import javafx.scene.control.*;
+import javafx.scene.layout.*;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+
+// Virtualized grid of device cards.
+//
+// The grid is a ListView whose items are row numbers; each cell lays out one row of cards
+// and is reused as the user scrolls, so only the visible rows ever have nodes, whether the
+// home has 10 devices or 10,000. Cards are bound to devices by identity while visible: a
+// registry change updates just that card's status label and toggle button, and adds/removes
+// only shift the order list and redraw the visible rows. Nothing is rebuilt per click.
+// Changes arrive from the registry's event bus in batches on the FX thread; if the grid
+// falls behind it gets a RESYNC and simply reloads.
+public class DeviceGrid {
+    private static final double CARD_WIDTH = 280;
+    private static final double CARD_HEIGHT = 140;
+    private static final double GAP = 15;
+
+    private final DeviceRegistry registry;
+    private final Consumer<SmartDevice> onToggle;
+    private final Consumer<SmartDevice> onControl;
+    private final Consumer<SmartDevice> onRemove;
+
+    private final List<SmartDevice> order = new ArrayList<>();
+    // Usually one card per visible device; the list covers VirtualFlow briefly binding a spare cell too
+    private final Map<SmartDevice, List<DeviceCard>> visible = new IdentityHashMap<>();
+    private final ObservableList<Integer> rows = FXCollections.observableArrayList();
+    private final ListView<Integer> view = new ListView<>(rows);
+    private int columns = 1;
+    private DeviceEventBus.Subscription subscription;
+
+    public DeviceGrid(DeviceRegistry registry, Consumer<SmartDevice> onToggle,
+                      Consumer<SmartDevice> onControl, Consumer<SmartDevice> onRemove) {
+        this.registry = registry;
+        this.onToggle = onToggle;
+        this.onControl = onControl;
+        this.onRemove = onRemove;
+
+        view.setFixedCellSize(CARD_HEIGHT + GAP);
+        view.setFocusTraversable(false);
+        view.setStyle("-fx-background-color: transparent; -fx-control-inner-background: transparent;");
+        view.setPlaceholder(new Label("No devices yet."));
+        view.setCellFactory(list -> new RowCell());
+        view.widthProperty().addListener((obs, oldWidth, width) -> {
+            int fit = Math.max(1, (int) ((width.doubleValue() - GAP - 20) / (CARD_WIDTH + GAP)));
+            if (fit != columns) {
+                columns = fit;
+                resizeRows();
+                view.refresh();
+            }
+        });
+    }
+
+    public Node node() {
+        return view;
+    }
+
+    public int size() {
+        return order.size();
+    }
+
+    // Takes the registry's current contents; later changes arrive through the listener
+    public void reload() {
+        order.clear();
+        for (SmartDevice device : registry) {
+            order.add(device);
+        }
+        resizeRows();
+        view.refresh();
+    }
+
+    // Loads the registry's contents and follows its event bus from then on
+    public void follow() {
+        if (subscription != null) subscription.cancel();
+        reload();
+        subscription = registry.events().subscribe("device-grid", 8192, DeviceEventBus.Policy.RESYNC,
+                Platform::runLater, this::apply);
+    }
+
+    public void unfollow() {
+        if (subscription != null) subscription.cancel();
+        subscription = null;
+    }
+
+    private void apply(DeviceEvent event) {
+        switch (event.type()) {
+            case ADDED:
+                order.add(event.device());
+                // Appends only touch the last row; refresh() redraws just the visible rows
+                resizeRows();
+                view.refresh();
+                break;
+            case REMOVED: {
+                int index = indexOf(event.device());
+                if (index < 0) return;
+                order.remove(index);
+                resizeRows();
+                view.refresh();
+                break;
+            }
+            case CHANGED: {
+                List<DeviceCard> cards = visible.get(event.device());
+                if (cards == null) return;
+                for (DeviceCard card : cards) {
+                    card.refresh();
+                }
+                break;
+            }
+            default:
+                reload();
+        }
+    }
+
+    private int indexOf(SmartDevice device) {
+        for (int i = order.size() - 1; i >= 0; i--) {
+            if (order.get(i) == device) return i;
+        }
+        return -1;
+    }
+
+    private void resizeRows() {
+        int needed = (order.size() + columns - 1) / columns;
+        if (rows.size() > needed) {
+            rows.remove(needed, rows.size());
+        } else if (rows.size() < needed) {
+            List<Integer> added = new ArrayList<>(needed - rows.size());
+            for (int i = rows.size(); i < needed; i++) {
+                added.add(i);
+            }
+            rows.addAll(added);
+        }
+    }
+
+    private class RowCell extends ListCell<Integer> {
+        private final HBox box = new HBox(GAP);
+        private final List<DeviceCard> cards = new ArrayList<>();
+
+        RowCell() {
+            box.setPadding(new Insets(0, GAP / 2, GAP, GAP / 2));
+            // Inline style wins over the selected/focused cell colors
+            setStyle("-fx-background-color: transparent; -fx-padding: 0;");
+        }
+
+        @Override
+        protected void updateItem(Integer row, boolean empty) {
+            super.updateItem(row, empty);
+            if (empty || row == null) {
+                for (DeviceCard card : cards) {
+                    card.bind(null);
+                }
+                setGraphic(null);
+                return;
+            }
+            while (cards.size() < columns) {
+                DeviceCard card = new DeviceCard();
+                cards.add(card);
+                box.getChildren().add(card);
+            }
+            int first = row * columns;
+            for (int i = 0; i < cards.size(); i++) {
+                int index = first + i;
+                DeviceCard card = cards.get(i);
+                boolean used = i < columns && index < order.size();
+                card.bind(used ? order.get(index) : null);
+                card.setVisible(used);
+                card.setManaged(i < columns);
+            }
+            setGraphic(box);
+        }
+    }
+
+    private class DeviceCard extends VBox {
+        private final Label nameLabel = new Label();
+        private final Label roomLabel = new Label();
+        private final Label statusLabel = new Label();
+        private final Button toggleBtn = new Button();
+        private SmartDevice device;
+        private Boolean shownOn;
+
+        DeviceCard() {
+            super(10);
+            setPadding(new Insets(15));
+            setStyle("-fx-background-color: white; -fx-background-radius: 10; -fx-border-color: #e2e8f0; -fx-border-radius: 10;");
+            setPrefSize(CARD_WIDTH, CARD_HEIGHT);
+            setMinSize(CARD_WIDTH, CARD_HEIGHT);
+            setMaxSize(CARD_WIDTH, CARD_HEIGHT);
+
+            nameLabel.setFont(Font.font("Arial", FontWeight.BOLD, 14));
+            roomLabel.setFont(Font.font("Arial", 12));
+            statusLabel.setFont(Font.font("Arial", FontWeight.BOLD, 12));
+
+            toggleBtn.setOnAction(e -> { if (device != null) onToggle.accept(device); });
+
+            Button controlBtn = new Button("🎮 Control");
+            controlBtn.setStyle("-fx-background-color: #3182ce; -fx-text-fill: white;");
+            controlBtn.setOnAction(e -> { if (device != null) onControl.accept(device); });
+
+            Button removeBtn = new Button("❌ Remove");
+            removeBtn.setStyle("-fx-background-color: #c53030; -fx-text-fill: white;");
+            removeBtn.setOnAction(e -> { if (device != null) onRemove.accept(device); });
+
+            HBox buttons = new HBox(10, toggleBtn, controlBtn, removeBtn);
+            getChildren().addAll(nameLabel, roomLabel, statusLabel, buttons);
+        }
+
+        void bind(SmartDevice next) {
+            if (next == device) {
+                if (next != null) refresh();
+                return;
+            }
+            if (device != null) {
+                List<DeviceCard> cards = visible.get(device);
+                if (cards != null && cards.remove(this) && cards.isEmpty()) visible.remove(device);
+            }
+            device = next;
+            shownOn = null;
+            if (next == null) return;
+            visible.computeIfAbsent(next, d -> new ArrayList<>(1)).add(this);
+            nameLabel.setText(SmartHomeGUI.deviceIcon(next) + " " + next.getName());
+            roomLabel.setText("🏠 " + next.getRoom());
+            refresh();
+        }
+
+        // Touches the nodes only when the power state actually changed
+        void refresh() {
+            boolean on = device.isOn();
+            if (shownOn != null && shownOn == on) return;
+            shownOn = on;
+            statusLabel.setText(on ? "🟢 ONLINE" : "🔴 OFFLINE");
+            statusLabel.setTextFill(on ? Color.GREEN : Color.RED);
+            toggleBtn.setText(on ? "⚫ Turn Off" : "🔆 Turn On");
+            toggleBtn.setStyle(on ?
+                "-fx-background-color: #e53e3e; -fx-text-fill: white;" :
+                "-fx-background-color: #38a169; -fx-text-fill: white;");
+        }
+    }
+}
@@ -0,0 +1,637 @@
+package smarthome;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+// Write-ahead journal of device mutations with group-commit fsync and background compaction.
+//
+// Every change the registry reports is encoded into a small record and copied into an
+// in-memory buffer, which is all the calling thread pays for. A flusher thread writes the
+// buffer and fsyncs once per commit interval, so one fsync covers every command issued in
+// that window. The journal is split into numbered segments next to the snapshot
+// (smart_home_data.journal.000001, ...). Once a segment passes the compaction threshold a new
+// one is started and a background thread folds the sealed segments into the snapshot; the
+// snapshot header records the last generation it contains, so folding is crash-safe.
+//
+// Record: u16 bodyLength | body | i32 crc32(body), where body = u8 op | i32 deviceId | payload.
+// Replay stops at the first torn or corrupt record, which can only be the unsynced tail.
+public class DeviceJournal implements DeviceListener, Closeable {
+    private static final byte OP_ADD = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final byte OP_POWER = 3;
+    private static final byte OP_BRIGHTNESS = 4;
+    private static final byte OP_COLOR = 5;
+    private static final byte OP_TEMPERATURE = 6;
+    private static final byte OP_MODE = 7;
+    private static final byte OP_ARMED = 8;
+    private static final byte OP_SECURITY_LEVEL = 9;
+
+    private static final int MAX_RECORD_BYTES = 0xFFFF;
+    private static final long DEFAULT_COMMIT_INTERVAL_MILLIS = 5;
+    private static final long DEFAULT_COMPACT_THRESHOLD = 4 * 1024 * 1024;
+    private static final int BUFFER_BYTES = 256 * 1024;
+
+    private final Path snapshot;
+    private final String segmentPrefix;
+    private final long commitIntervalNanos;
+    private final long compactThreshold;
+
+    // Append side, guarded by lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition work = lock.newCondition();
+    private final Condition space = lock.newCondition();
+    private final Condition durable = lock.newCondition();
+    private ByteBuffer pending = newBuffer(BUFFER_BYTES);
+    private ByteBuffer spare = newBuffer(BUFFER_BYTES);
+    private final ByteBuffer record = newBuffer(MAX_RECORD_BYTES + 6);
+    private final CRC32 crc = new CRC32();
+    private long appendedSeq;
+    private long durableSeq;
+    private boolean flushNow;
+    private boolean closed;
+    private IOException failure;
+    // While a checkpoint runs: devices whose ADD record was appended, with the record's number
+    private Map<SmartDevice, Long> checkpointAdds;
+
+    // File side, guarded by ioLock; snapshot rewrites are guarded by snapshotLock
+    private final Object ioLock = new Object();
+    private final Object snapshotLock = new Object();
+    private FileChannel channel;
+    private long generation;
+    private long segmentBytes;
+    // Records numbered up to here were written to the segments sealed by the last rotate
+    private long rotatedSeq;
+
+    private final Thread flusher;
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "device-journal-compactor");
+        t.setDaemon(true);
+        return t;
+    });
+    private boolean compacting;
+
+    private DeviceJournal(Path snapshot, long commitIntervalMillis, long compactThreshold) {
+        this.snapshot = snapshot.toAbsolutePath();
+        String base = this.snapshot.getFileName().toString();
+        int dot = base.lastIndexOf('.');
+        this.segmentPrefix = (dot > 0 ? base.substring(0, dot) : base) + ".journal.";
+        this.commitIntervalNanos = TimeUnit.MILLISECONDS.toNanos(commitIntervalMillis);
+        this.compactThreshold = compactThreshold;
+        this.flusher = new Thread(this::runFlusher, "device-journal-flusher");
+        this.flusher.setDaemon(true);
+    }
+
+    public static DeviceJournal open(Path snapshot, DeviceRegistry registry) throws IOException {
+        return open(snapshot, registry, DEFAULT_COMMIT_INTERVAL_MILLIS, DEFAULT_COMPACT_THRESHOLD);
+    }
+
+    // Replays any journal segments newer than the snapshot into the registry, writes a fresh
+    // checkpoint if anything was replayed, then starts journaling the registry's changes.
+    // The registry must already hold the snapshot (or legacy import) contents.
+    public static DeviceJournal open(Path snapshot, DeviceRegistry registry,
+                                     long commitIntervalMillis, long compactThreshold) throws IOException {
+        DeviceJournal journal = new DeviceJournal(snapshot, commitIntervalMillis, compactThreshold);
+        long base = Files.exists(journal.snapshot) ? DeviceSnapshot.journalGeneration(journal.snapshot) : 0;
+        List<Long> segments = journal.segments();
+        long last = base;
+        boolean replayed = false;
+        for (long gen : segments) {
+            if (gen > base) {
+                journal.replay(journal.segment(gen), new RegistryTarget(registry));
+                replayed = true;
+            }
+            last = Math.max(last, gen);
+        }
+
+        journal.generation = last + 1;
+        journal.channel = FileChannel.open(journal.segment(journal.generation),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        if (replayed || !Files.exists(journal.snapshot)
+                || DeviceSnapshot.version(journal.snapshot) < DeviceSnapshot.VERSION) {
+            // Start from a snapshot that carries device ids and covers everything replayed so far
+            journal.writeSnapshot(registry.all(), last);
+        }
+        journal.flusher.start();
+        registry.addListener(journal);
+        return journal;
+    }
+
+    // Registry callbacks: encode and buffer, never touch the disk on the caller's thread
+
+    @Override
+    public void deviceAdded(SmartDevice device) {
+        try {
+            byte kind = DeviceSnapshot.kindOf(device);
+            lock.lock();
+            try {
+                begin(OP_ADD, device.getId());
+                record.put(kind);
+                record.put((byte) (device.isOn() ? 1 : 0));
+                record.put((byte) (device instanceof SmartSecurity && ((SmartSecurity) device).isArmed() ? 1 : 0));
+                record.put((byte) (device instanceof SmartLight ? ((SmartLight) device).getBrightness() : 0));
+                record.putDouble(device instanceof SmartThermostat ? ((SmartThermostat) device).getTemperature() : 0);
+                putString(device.getName());
+                putString(device.getRoom());
+                putString(DeviceSnapshot.attributeOf(device));
+                commit();
+                if (checkpointAdds != null) checkpointAdds.put(device, appendedSeq);
+            } finally {
+                lock.unlock();
+            }
+        } catch (IOException e) {
+            System.out.println("❌ Journal error: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void deviceRemoved(SmartDevice device) {
+        lock.lock();
+        try {
+            begin(OP_REMOVE, device.getId());
+            commit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void deviceChanged(SmartDevice device, DeviceProperty property) {
+        lock.lock();
+        try {
+            switch (property) {
+                case POWER:
+                    begin(OP_POWER, device.getId());
+                    record.put((byte) (device.isOn() ? 1 : 0));
+                    break;
+                case BRIGHTNESS:
+                    begin(OP_BRIGHTNESS, device.getId());
+                    record.put((byte) ((SmartLight) device).getBrightness());
+                    break;
+                case COLOR:
+                    begin(OP_COLOR, device.getId());
+                    putString(((SmartLight) device).getColor());
+                    break;
+                case TEMPERATURE:
+                    begin(OP_TEMPERATURE, device.getId());
+                    record.putDouble(((SmartThermostat) device).getTemperature());
+                    break;
+                case MODE:
+                    begin(OP_MODE, device.getId());
+                    putString(((SmartThermostat) device).getMode());
+                    break;
+                case ARMED:
+                    begin(OP_ARMED, device.getId());
+                    record.put((byte) (((SmartSecurity) device).isArmed() ? 1 : 0));
+                    break;
+                case SECURITY_LEVEL:
+                    begin(OP_SECURITY_LEVEL, device.getId());
+                    putString(((SmartSecurity) device).getSecurityLevel());
+                    break;
+                default:
+                    return;
+            }
+            commit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Blocks until everything appended so far is on disk
+    public void sync() throws IOException {
+        lock.lock();
+        try {
+            long target = appendedSeq;
+            flushNow = true;
+            work.signal();
+            while (durableSeq < target && failure == null && !closed) {
+                durable.awaitUninterruptibly();
+            }
+            if (failure != null) throw failure;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Writes the registry's state as the new snapshot and drops every sealed segment, while
+    // other threads keep changing devices. The active segment is sealed first, then each
+    // device is copied under its monitor, which setters and the registry hold until their
+    // record is appended. So every record in a sealed segment is in the copy, and a record in
+    // the new segment either is not, or sets a value the copy already has and replays
+    // harmlessly. The exception is ADD: a device whose ADD record went to the new segment is
+    // left out of the copy, so replaying that record does not add it twice.
+    public void checkpoint(DeviceRegistry registry) throws IOException {
+        synchronized (snapshotLock) {
+            Map<SmartDevice, Long> adds = new ConcurrentHashMap<>();
+            setCheckpointAdds(adds);
+            try {
+                long sealed;
+                long boundary;
+                synchronized (ioLock) {
+                    sealed = rotate();
+                    boundary = rotatedSeq;
+                }
+                List<SmartDevice> copies = new ArrayList<>(registry.size());
+                for (SmartDevice device : registry) {
+                    synchronized (device) {
+                        // Removed meanwhile: its REMOVE record is sealed, or replays as a no-op
+                        if (device.registry != registry) continue;
+                        Long added = adds.get(device);
+                        if (added == null || added <= boundary) copies.add(copyOf(device));
+                    }
+                }
+                writeSnapshot(copies, sealed);
+            } finally {
+                setCheckpointAdds(null);
+            }
+        }
+    }
+
+    public long generation() {
+        synchronized (ioLock) {
+            return generation;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            work.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+            compactor.shutdown();
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (ioLock) {
+            flush();
+            channel.close();
+        }
+        if (failure != null) throw failure;
+    }
+
+    private void setCheckpointAdds(Map<SmartDevice, Long> adds) {
+        lock.lock();
+        try {
+            checkpointAdds = adds;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Record encoding; callers hold lock
+
+    private void begin(byte op, int deviceId) {
+        record.clear();
+        record.position(2);
+        record.put(op).putInt(deviceId);
+    }
+
+    private void putString(String value) {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_RECORD_BYTES - record.position() - 6) {
+            throw new IllegalArgumentException("Value too long for journal: " + bytes.length + " bytes");
+        }
+        record.putShort((short) bytes.length).put(bytes);
+    }
+
+    private void commit() {
+        int bodyLength = record.position() - 2;
+        record.putShort(0, (short) bodyLength);
+        crc.reset();
+        crc.update(record.array(), 2, bodyLength);
+        record.putInt((int) crc.getValue());
+        record.flip();
+
+        while (pending.remaining() < record.remaining() && failure == null) {
+            flushNow = true;
+            work.signal();
+            space.awaitUninterruptibly();
+        }
+        boolean wasEmpty = pending.position() == 0;
+        pending.put(record);
+        appendedSeq++;
+        if (wasEmpty) work.signal();
+    }
+
+    // Flusher: wait for the first record, give the group one commit interval to fill, then write+fsync
+
+    private void runFlusher() {
+        while (true) {
+            lock.lock();
+            try {
+                while (pending.position() == 0 && !closed && !flushNow) {
+                    work.awaitUninterruptibly();
+                }
+                if (closed) return;
+                if (!flushNow) {
+                    work.awaitNanos(commitIntervalNanos);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                flush();
+                maybeCompact();
+            } catch (IOException e) {
+                fail(e);
+                return;
+            }
+        }
+    }
+
+    // Returns the number of the last record written
+    private long flush() throws IOException {
+        synchronized (ioLock) {
+            ByteBuffer batch;
+            long seq;
+            lock.lock();
+            try {
+                flushNow = false;
+                seq = appendedSeq;
+                if (pending.position() == 0) {
+                    durableSeq = seq;
+                    durable.signalAll();
+                    return seq;
+                }
+                batch = pending;
+                pending = spare;
+                spare = batch;
+                space.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            batch.flip();
+            segmentBytes += batch.remaining();
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+            channel.force(false);
+            batch.clear();
+
+            lock.lock();
+            try {
+                durableSeq = seq;
+                durable.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            return seq;
+        }
+    }
+
+    private void fail(IOException e) {
+        System.out.println("❌ Journal write failed: " + e.getMessage());
+        lock.lock();
+        try {
+            failure = e;
+            durable.signalAll();
+            space.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Seals the active segment and starts the next one; returns the sealed generation
+    private long rotate() throws IOException {
+        synchronized (ioLock) {
+            rotatedSeq = flush();
+            channel.close();
+            long sealed = generation++;
+            channel = FileChannel.open(segment(generation),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            segmentBytes = 0;
+            return sealed;
+        }
+    }
+
+    private void maybeCompact() throws IOException {
+        long sealed;
+        synchronized (ioLock) {
+            if (segmentBytes < compactThreshold || compacting) return;
+            compacting = true;
+            sealed = rotate();
+        }
+        compactor.execute(() -> {
+            try {
+                fold(sealed);
+            } catch (IOException e) {
+                System.out.println("❌ Journal compaction failed: " + e.getMessage());
+            } finally {
+                synchronized (ioLock) {
+                    compacting = false;
+                }
+            }
+        });
+    }
+
+    // Background compaction: snapshot + sealed segments -> new snapshot, without touching live state
+    private void fold(long upTo) throws IOException {
+        synchronized (snapshotLock) {
+            long base = Files.exists(snapshot) ? DeviceSnapshot.journalGeneration(snapshot) : 0;
+            if (base >= upTo) return;
+            MapTarget state = new MapTarget(Files.exists(snapshot)
+                    ? DeviceSnapshot.read(snapshot) : Collections.emptyList());
+            for (long gen : segments()) {
+                if (gen > base && gen <= upTo) {
+                    replay(segment(gen), state);
+                }
+            }
+            writeSnapshot(state.devices.values(), upTo);
+        }
+    }
+
+    private void writeSnapshot(Collection<? extends SmartDevice> devices, long upTo) throws IOException {
+        synchronized (snapshotLock) {
+            DeviceSnapshot.write(snapshot, devices, upTo);
+            for (long gen : segments()) {
+                if (gen <= upTo) {
+                    Files.deleteIfExists(segment(gen));
+                }
+            }
+        }
+    }
+
+    // Replay
+
+    private void replay(Path file, ReplayTarget target) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        CRC32 check = new CRC32();
+        while (buf.remaining() >= 2) {
+            int start = buf.position();
+            int bodyLength = buf.getShort() & 0xFFFF;
+            if (bodyLength < 5 || buf.remaining() < bodyLength + 4) break;
+            check.reset();
+            check.update(buf.array(), start + 2, bodyLength);
+            if (buf.getInt(start + 2 + bodyLength) != (int) check.getValue()) break;
+
+            byte op = buf.get();
+            int id = buf.getInt();
+            if (op == OP_ADD) {
+                byte kind = buf.get();
+                boolean on = buf.get() != 0;
+                boolean armed = buf.get() != 0;
+                int brightness = brightness(buf.get() & 0xFF);
+                double temperature = buf.getDouble();
+                String name = getString(buf);
+                String room = getString(buf);
+                String attr = getString(buf);
+                SmartDevice device = create(kind, name, room, attr, brightness, temperature, armed);
+                device.applyOn(on);
+                device.id = id;
+                target.add(device);
+            } else if (op == OP_REMOVE) {
+                target.remove(id);
+            } else {
+                SmartDevice device = target.find(id);
+                if (device != null) {
+                    apply(device, op, buf, bodyLength);
+                }
+            }
+            buf.position(start + 2 + bodyLength + 4);
+        }
+    }
+
+    private static void apply(SmartDevice device, byte op, ByteBuffer buf, int bodyLength) {
+        switch (op) {
+            case OP_POWER: device.applyOn(buf.get() != 0); break;
+            case OP_BRIGHTNESS:
+                // One byte, as in ADD records and the snapshot; older journals wrote an i32
+                int value = bodyLength == 6 ? buf.get() & 0xFF : buf.getInt();
+                ((SmartLight) device).applyBrightness(brightness(value));
+                break;
+            case OP_COLOR: ((SmartLight) device).applyColor(getString(buf)); break;
+            case OP_TEMPERATURE: ((SmartThermostat) device).applyTemperature(buf.getDouble()); break;
+            case OP_MODE: ((SmartThermostat) device).applyMode(getString(buf)); break;
+            case OP_ARMED: ((SmartSecurity) device).applyArmed(buf.get() != 0); break;
+            case OP_SECURITY_LEVEL: ((SmartSecurity) device).applySecurityLevel(getString(buf)); break;
+            default: break;
+        }
+    }
+
+    // Journals written before brightness was checked can hold any value
+    private static int brightness(int value) {
+        return Math.max(0, Math.min(SmartLight.MAX_BRIGHTNESS, value));
+    }
+
+    // A detached copy with the same id and state, for writing a snapshot of a live device
+    private static SmartDevice copyOf(SmartDevice device) throws IOException {
+        SmartDevice copy = create(DeviceSnapshot.kindOf(device), device.getName(), device.getRoom(),
+                DeviceSnapshot.attributeOf(device),
+                device instanceof SmartLight ? ((SmartLight) device).getBrightness() : 0,
+                device instanceof SmartThermostat ? ((SmartThermostat) device).getTemperature() : 0,
+                device instanceof SmartSecurity && ((SmartSecurity) device).isArmed());
+        copy.applyOn(device.isOn());
+        copy.id = device.id;
+        return copy;
+    }
+
+    private static SmartDevice create(byte kind, String name, String room, String attr,
+                                      int brightness, double temperature, boolean armed) throws IOException {
+        switch (kind) {
+            case DeviceSnapshot.KIND_LIGHT:
+                SmartLight light = new SmartLight(name, room);
+                light.applyBrightness(brightness);
+                light.applyColor(attr);
+                return light;
+            case DeviceSnapshot.KIND_THERMOSTAT:
+                SmartThermostat thermostat = new SmartThermostat(name, room);
+                thermostat.applyTemperature(temperature);
+                thermostat.applyMode(attr);
+                return thermostat;
+            case DeviceSnapshot.KIND_SECURITY:
+                SmartSecurity security = new SmartSecurity(name, room);
+                security.applyArmed(armed);
+                security.applySecurityLevel(attr);
+                return security;
+            default:
+                throw new IOException("Unknown device kind " + kind + " in journal");
+        }
+    }
+
+    private static String getString(ByteBuffer buf) {
+        int length = buf.getShort() & 0xFFFF;
+        String value = new String(buf.array(), buf.position(), length, StandardCharsets.UTF_8);
+        buf.position(buf.position() + length);
+        return value;
+    }
+
+    private interface ReplayTarget {
+        void add(SmartDevice device);
+        void remove(int id);
+        SmartDevice find(int id);
+    }
+
+    // Live registry, used at start-up before the journal starts listening
+    private static class RegistryTarget implements ReplayTarget {
+        private final DeviceRegistry registry;
+        RegistryTarget(DeviceRegistry registry) { this.registry = registry; }
+        public void add(SmartDevice device) { registry.add(device); }
+        public void remove(int id) {
+            SmartDevice device = registry.findById(id);
+            if (device != null) registry.remove(device);
+        }
+        public SmartDevice find(int id) { return registry.findById(id); }
+    }
+
+    // Detached copy used by the compactor; ids are assigned exactly as DeviceRegistry would
+    private static class MapTarget implements ReplayTarget {
+        final Map<Integer, SmartDevice> devices = new LinkedHashMap<>();
+        private int lastId;
+
+        MapTarget(List<SmartDevice> initial) {
+            initial.forEach(this::add);
+        }
+
+        public void add(SmartDevice device) {
+            if (device.id == 0) device.id = ++lastId;
+            else lastId = Math.max(lastId, device.id);
+            devices.put(device.id, device);
+        }
+        public void remove(int id) { devices.remove(id); }
+        public SmartDevice find(int id) { return devices.get(id); }
+    }
+
+    // Segment files
+
+    private Path segment(long gen) {
+        return snapshot.resolveSibling(segmentPrefix + String.format("%06d", gen));
+    }
+
+    private List<Long> segments() throws IOException {
+        List<Long> gens = new ArrayList<>();
+        try (DirectoryStream<Path> dir = Files.newDirectoryStream(snapshot.getParent(), segmentPrefix + "*")) {
+            for (Path file : dir) {
+                try {
+                    gens.add(Long.parseLong(file.getFileName().toString().substring(segmentPrefix.length())));
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        Collections.sort(gens);
+        return gens;
+    }
+
+    private static ByteBuffer newBuffer(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
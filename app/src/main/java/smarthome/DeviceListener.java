@@ -0,0 +1,9 @@
+package smarthome;
+
+// Receives device changes from a DeviceRegistry. Loads and replays go through
+// the silent apply* hooks and are not reported.
+interface DeviceListener {
+    default void deviceAdded(SmartDevice device) {}
+    default void deviceRemoved(SmartDevice device) {}
+    default void deviceChanged(SmartDevice device, DeviceProperty property) {}
+}
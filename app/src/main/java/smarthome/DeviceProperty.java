@@ -0,0 +1,6 @@
+package smarthome;
+
+// Device state that can change after a device is created
+enum DeviceProperty {
+    POWER, BRIGHTNESS, COLOR, TEMPERATURE, MODE, ARMED, SECURITY_LEVEL
+}
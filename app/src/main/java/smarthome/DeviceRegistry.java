@@ -0,0 +1,206 @@
+package smarthome;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// Device collection with secondary indexes by id, room, type and name.
+// Room and name lookups are case-insensitive; every index is updated on add/remove
+// so lookups are O(1) and bulk operations only touch the k matching devices.
+// Devices get a stable id on add and report their changes to the registry's listeners,
+// which run synchronously, and to the event bus, whose subscribers get them asynchronously.
+//
+// The registry is safe to share between threads. Adds and removes take one lock, so the
+// indexes always change together, while reads never lock: every index is a concurrent map
+// keyed by insertion order, and iterating one sees a consistent walk that may or may not
+// include devices added or removed meanwhile, and never throws ConcurrentModificationException.
+// An add or remove holds the device's own monitor while it notifies, like a setter does, so
+// a device's ADDED, changes and REMOVED reach listeners and the bus in the order they happened.
+public class DeviceRegistry implements Iterable<SmartDevice> {
+    private final Object writeLock = new Object();
+    private final ConcurrentSkipListMap<Long, SmartDevice> devices = new ConcurrentSkipListMap<>();
+    private final Map<SmartDevice, Long> order = new ConcurrentHashMap<>();
+    private final Map<Integer, SmartDevice> byId = new ConcurrentHashMap<>();
+    private final Map<String, ConcurrentSkipListMap<Long, SmartDevice>> byRoom = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, String> roomOrder = new ConcurrentSkipListMap<>();
+    private final Map<String, Long> roomSeen = new ConcurrentHashMap<>();
+    private final Map<Class<?>, ConcurrentSkipListMap<Long, SmartDevice>> byType = new ConcurrentHashMap<>();
+    private final Map<String, ConcurrentSkipListMap<Long, SmartDevice>> byName = new ConcurrentHashMap<>();
+    private final List<DeviceListener> listeners = new CopyOnWriteArrayList<>();
+    private final DeviceEventBus events = new DeviceEventBus();
+    private volatile int size;
+    private int lastId;
+    private long lastOrder;
+
+    public void add(SmartDevice device) {
+        synchronized (device) {
+            synchronized (writeLock) {
+                if (device.id == 0) {
+                    device.id = ++lastId;
+                } else if (byId.containsKey(device.id)) {
+                    throw new IllegalArgumentException("Duplicate device id " + device.id);
+                } else {
+                    lastId = Math.max(lastId, device.id);
+                }
+                Long at = ++lastOrder;
+                device.registry = this;
+                order.put(device, at);
+                byId.put(device.id, device);
+                String roomKey = key(device.getRoom());
+                if (roomSeen.putIfAbsent(roomKey, at) == null) roomOrder.put(at, device.getRoom());
+                byRoom.computeIfAbsent(roomKey, k -> new ConcurrentSkipListMap<>()).put(at, device);
+                byType.computeIfAbsent(device.getClass(), k -> new ConcurrentSkipListMap<>()).put(at, device);
+                byName.computeIfAbsent(key(device.getName()), k -> new ConcurrentSkipListMap<>()).put(at, device);
+                // Last, so a reader that finds the device also finds it in every index
+                devices.put(at, device);
+                size++;
+            }
+            for (DeviceListener listener : listeners) {
+                listener.deviceAdded(device);
+            }
+            events.publish(DeviceEvent.Type.ADDED, device, null, null, null);
+        }
+    }
+
+    public boolean remove(SmartDevice device) {
+        synchronized (device) {
+            synchronized (writeLock) {
+                Long at = order.remove(device);
+                if (at == null) return false;
+                device.registry = null;
+                devices.remove(at);
+                size--;
+                byId.remove(device.id);
+                String roomKey = key(device.getRoom());
+                removeFrom(byRoom, roomKey, at);
+                if (!byRoom.containsKey(roomKey)) roomOrder.remove(roomSeen.remove(roomKey));
+                removeFrom(byType, device.getClass(), at);
+                removeFrom(byName, key(device.getName()), at);
+            }
+            for (DeviceListener listener : listeners) {
+                listener.deviceRemoved(device);
+            }
+            events.publish(DeviceEvent.Type.REMOVED, device, null, null, null);
+            return true;
+        }
+    }
+
+    public SmartDevice remove(int index) {
+        SmartDevice device = get(index);
+        remove(device);
+        return device;
+    }
+
+    // Drops every device without notifying listeners; ids keep counting up
+    public void clear() {
+        synchronized (writeLock) {
+            for (SmartDevice device : devices.values()) {
+                device.registry = null;
+            }
+            devices.clear();
+            order.clear();
+            byId.clear();
+            byRoom.clear();
+            roomOrder.clear();
+            roomSeen.clear();
+            byType.clear();
+            byName.clear();
+            size = 0;
+        }
+    }
+
+    // Positional access walks the insertion order; it is meant for numbered console menus
+    public SmartDevice get(int index) {
+        Objects.checkIndex(index, size);
+        int i = 0;
+        for (SmartDevice device : devices.values()) {
+            if (i++ == index) return device;
+        }
+        throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+    }
+
+    public SmartDevice findById(int id) { return byId.get(id); }
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    // A copy of all devices in insertion order
+    public List<SmartDevice> all() { return new ArrayList<>(devices.values()); }
+
+    @Override
+    public Iterator<SmartDevice> iterator() { return Collections.unmodifiableCollection(devices.values()).iterator(); }
+
+    // Room names as first entered, in the order rooms were first seen
+    public List<String> rooms() { return new ArrayList<>(roomOrder.values()); }
+
+    public boolean hasRoom(String room) { return byRoom.containsKey(key(room)); }
+
+    public Collection<SmartDevice> inRoom(String room) { return view(byRoom.get(key(room))); }
+
+    @SuppressWarnings("unchecked")
+    public <T extends SmartDevice> Collection<T> ofType(Class<T> type) {
+        return (Collection<T>) view(byType.get(type));
+    }
+
+    public Collection<SmartDevice> named(String name) { return view(byName.get(key(name))); }
+
+    // First device with this name, or null
+    public SmartDevice findByName(String name) {
+        ConcurrentSkipListMap<Long, SmartDevice> found = byName.get(key(name));
+        Map.Entry<Long, SmartDevice> first = found == null ? null : found.firstEntry();
+        return first == null ? null : first.getValue();
+    }
+
+    // Bulk operations return the number of devices touched
+    public int forEachInRoom(String room, Consumer<? super SmartDevice> action) {
+        ConcurrentSkipListMap<Long, SmartDevice> found = byRoom.get(key(room));
+        if (found == null) return 0;
+        int count = 0;
+        for (SmartDevice device : found.values()) {
+            action.accept(device);
+            count++;
+        }
+        return count;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends SmartDevice> int forEachOfType(Class<T> type, Consumer<? super T> action) {
+        ConcurrentSkipListMap<Long, SmartDevice> found = byType.get(type);
+        if (found == null) return 0;
+        int count = 0;
+        for (SmartDevice device : found.values()) {
+            action.accept((T) device);
+            count++;
+        }
+        return count;
+    }
+
+    public void addListener(DeviceListener listener) { listeners.add(listener); }
+    public void removeListener(DeviceListener listener) { listeners.remove(listener); }
+
+    public DeviceEventBus events() { return events; }
+
+    void fireChanged(SmartDevice device, DeviceProperty property, Object before, Object after) {
+        for (DeviceListener listener : listeners) {
+            listener.deviceChanged(device, property);
+        }
+        events.publish(DeviceEvent.Type.CHANGED, device, property, before, after);
+    }
+
+    private static Collection<SmartDevice> view(ConcurrentSkipListMap<Long, SmartDevice> found) {
+        return found == null ? Collections.emptySet() : Collections.unmodifiableCollection(found.values());
+    }
+
+    // Only called under the write lock, so an emptied index cannot be refilled in between
+    private static <K> void removeFrom(Map<K, ConcurrentSkipListMap<Long, SmartDevice>> index, K key, Long at) {
+        ConcurrentSkipListMap<Long, SmartDevice> devices = index.get(key);
+        if (devices != null && devices.remove(at) != null && devices.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private static String key(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+}
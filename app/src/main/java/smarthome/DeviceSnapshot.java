@@ -0,0 +1,273 @@
+package smarthome;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Versioned binary snapshot of every device and its full state.
+//
+// Layout (little-endian), version 2:
+//   header   magic "SHSN", u16 version, u16 reserved, i32 deviceCount, i32 stringCount, i32 stringBytes,
+//            i64 journalGeneration (every journal segment up to this one is folded in)
+//   strings  i32 offsets[stringCount + 1], then the UTF-8 bytes of every distinct string
+//   records  deviceCount fixed-size records:
+//            u8 kind, u8 flags (1 = on, 2 = armed), u8 brightness, u8 reserved, i32 deviceId,
+//            i32 nameId, i32 roomId, i32 attrId (color/mode/level), f64 temperature
+// Version 1 files have no journalGeneration and no deviceId; they are still readable.
+//
+// Loading maps the file with FileChannel.map and decodes records straight out of the
+// mapping. Each distinct string is decoded once, so repeated rooms/colors share one String.
+public class DeviceSnapshot {
+    static final int MAGIC = 0x4E534853; // "SHSN" read little-endian
+    static final short VERSION = 2;
+    static final int HEADER_BYTES = 28;
+    static final int RECORD_BYTES = 28;
+    private static final int V1_HEADER_BYTES = 20;
+    private static final int V1_RECORD_BYTES = 24;
+
+    static final byte KIND_LIGHT = 0;
+    static final byte KIND_THERMOSTAT = 1;
+    static final byte KIND_SECURITY = 2;
+    private static final byte FLAG_ON = 1;
+    private static final byte FLAG_ARMED = 2;
+
+    public static void write(Path file, Collection<? extends SmartDevice> devices) throws IOException {
+        write(file, devices, 0);
+    }
+
+    public static void write(Path file, Collection<? extends SmartDevice> devices, long journalGeneration)
+            throws IOException {
+        Map<String, Integer> stringIds = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        ByteBuffer records = ByteBuffer.allocate(devices.size() * RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        int stringBytes = 0;
+
+        for (SmartDevice device : devices) {
+            byte kind = kindOf(device);
+            byte flags = device.isOn() ? FLAG_ON : 0;
+            int brightness = 0;
+            double temperature = 0;
+            if (device instanceof SmartLight) {
+                brightness = ((SmartLight) device).getBrightness();
+            } else if (device instanceof SmartThermostat) {
+                temperature = ((SmartThermostat) device).getTemperature();
+            } else if (((SmartSecurity) device).isArmed()) {
+                flags |= FLAG_ARMED;
+            }
+
+            int[] ids = new int[3];
+            String[] values = {device.getName(), device.getRoom(), attributeOf(device)};
+            for (int i = 0; i < values.length; i++) {
+                String value = values[i] == null ? "" : values[i];
+                Integer id = stringIds.get(value);
+                if (id == null) {
+                    id = strings.size();
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    stringIds.put(value, id);
+                    strings.add(bytes);
+                    stringBytes += bytes.length;
+                }
+                ids[i] = id;
+            }
+
+            records.put(kind).put(flags).put((byte) brightness).put((byte) 0);
+            records.putInt(device.getId());
+            records.putInt(ids[0]).putInt(ids[1]).putInt(ids[2]);
+            records.putDouble(temperature);
+        }
+
+        ByteBuffer head = ByteBuffer.allocate(HEADER_BYTES + (strings.size() + 1) * 4 + stringBytes)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        head.putInt(MAGIC).putShort(VERSION).putShort((short) 0);
+        head.putInt(devices.size()).putInt(strings.size()).putInt(stringBytes);
+        head.putLong(journalGeneration);
+        int offset = 0;
+        for (byte[] bytes : strings) {
+            head.putInt(offset);
+            offset += bytes.length;
+        }
+        head.putInt(offset);
+        for (byte[] bytes : strings) {
+            head.put(bytes);
+        }
+        head.flip();
+        records.flip();
+
+        // Write to a temp file and swap it in, so a crash never leaves a half-written snapshot
+        Path dir = file.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            while (head.hasRemaining()) channel.write(head);
+            while (records.hasRemaining()) channel.write(records);
+            channel.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static List<SmartDevice> read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < V1_HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a device snapshot: " + file);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return decode(mapped.order(ByteOrder.LITTLE_ENDIAN), file);
+        }
+    }
+
+    public static short version(Path file) throws IOException {
+        return readHeader(file).getShort(4);
+    }
+
+    // Journal generation recorded in the header; 0 for version 1 files
+    public static long journalGeneration(Path file) throws IOException {
+        ByteBuffer head = readHeader(file);
+        return head.getShort(4) >= 2 && head.limit() == HEADER_BYTES ? head.getLong(20) : 0;
+    }
+
+    private static ByteBuffer readHeader(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (head.hasRemaining() && channel.read(head) >= 0) { }
+            if (head.position() < V1_HEADER_BYTES || head.getInt(0) != MAGIC) {
+                throw new IOException("Not a device snapshot: " + file);
+            }
+            head.flip();
+            return head;
+        }
+    }
+
+    private static List<SmartDevice> decode(ByteBuffer buf, Path file) throws IOException {
+        if (buf.getInt(0) != MAGIC) {
+            throw new IOException("Not a device snapshot: " + file);
+        }
+        short version = buf.getShort(4);
+        if (version != 1 && version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version + " in " + file);
+        }
+        boolean hasIds = version >= 2;
+        int recordBytes = hasIds ? RECORD_BYTES : V1_RECORD_BYTES;
+        int deviceCount = buf.getInt(8);
+        int stringCount = buf.getInt(12);
+        int stringBytes = buf.getInt(16);
+        int offsetsStart = hasIds ? HEADER_BYTES : V1_HEADER_BYTES;
+        long bytesStart = offsetsStart + (stringCount + 1L) * 4;
+        long recordsStart = bytesStart + stringBytes;
+        if (deviceCount < 0 || stringCount < 0 || stringBytes < 0
+                || recordsStart + (long) deviceCount * recordBytes != buf.capacity()) {
+            throw new IOException("Corrupt snapshot: " + file);
+        }
+
+        String[] strings = new String[stringCount];
+        byte[] scratch = new byte[256];
+        List<SmartDevice> devices = new ArrayList<>(deviceCount);
+        // Snapshots list devices in registry order, which is id order unless ids were imported
+        int lastId = 0;
+        int unnumbered = 0;
+        boolean ascending = true;
+
+        for (int i = 0; i < deviceCount; i++) {
+            int at = (int) recordsStart + i * recordBytes;
+            byte kind = buf.get(at);
+            byte flags = buf.get(at + 1);
+            // Files saved before brightness was checked can hold up to 255
+            int brightness = Math.min(buf.get(at + 2) & 0xFF, SmartLight.MAX_BRIGHTNESS);
+            int id = 0;
+            if (hasIds) {
+                id = buf.getInt(at + 4);
+                at += 4;
+            }
+            if (id < 0) {
+                throw new IOException("Corrupt snapshot: " + file);
+            }
+            if (id == 0) unnumbered++;
+            else if (id > lastId) lastId = id;
+            else ascending = false;
+            String name = string(buf, strings, buf.getInt(at + 4), offsetsStart, (int) bytesStart, stringBytes, scratch, file);
+            String room = string(buf, strings, buf.getInt(at + 8), offsetsStart, (int) bytesStart, stringBytes, scratch, file);
+            String attr = string(buf, strings, buf.getInt(at + 12), offsetsStart, (int) bytesStart, stringBytes, scratch, file);
+
+            SmartDevice device;
+            switch (kind) {
+                case KIND_LIGHT:
+                    SmartLight light = new SmartLight(name, room);
+                    light.applyBrightness(brightness);
+                    light.applyColor(attr);
+                    device = light;
+                    break;
+                case KIND_THERMOSTAT:
+                    SmartThermostat thermostat = new SmartThermostat(name, room);
+                    thermostat.applyTemperature(buf.getDouble(at + 16));
+                    thermostat.applyMode(attr);
+                    device = thermostat;
+                    break;
+                case KIND_SECURITY:
+                    SmartSecurity security = new SmartSecurity(name, room);
+                    security.applyArmed((flags & FLAG_ARMED) != 0);
+                    security.applySecurityLevel(attr);
+                    device = security;
+                    break;
+                default:
+                    throw new IOException("Unknown device kind " + kind + " in " + file);
+            }
+            device.applyOn((flags & FLAG_ON) != 0);
+            device.id = id;
+            devices.add(device);
+        }
+        // Either every device has an id or none has (never registered, or version 1); a mix or a
+        // repeated id would make the registry reject the load
+        if (unnumbered != 0 && unnumbered != deviceCount) throw new IOException("Corrupt snapshot: " + file);
+        if (!ascending) {
+            Set<Integer> ids = new HashSet<>();
+            for (SmartDevice device : devices) {
+                if (!ids.add(device.id)) throw new IOException("Corrupt snapshot: " + file);
+            }
+        }
+        return devices;
+    }
+
+    static byte kindOf(SmartDevice device) throws IOException {
+        if (device instanceof SmartLight) return KIND_LIGHT;
+        if (device instanceof SmartThermostat) return KIND_THERMOSTAT;
+        if (device instanceof SmartSecurity) return KIND_SECURITY;
+        throw new IOException("Unsupported device type: " + device.getType());
+    }
+
+    // The one free-text setting each device type has: color, mode or security level
+    static String attributeOf(SmartDevice device) {
+        if (device instanceof SmartLight) return ((SmartLight) device).getColor();
+        if (device instanceof SmartThermostat) return ((SmartThermostat) device).getMode();
+        return ((SmartSecurity) device).getSecurityLevel();
+    }
+
+    // Ids and offsets come from the file, so a damaged one is an IOException, not an index error
+    private static String string(ByteBuffer buf, String[] strings, int id, int offsetsStart, int bytesStart,
+                                 int stringBytes, byte[] scratch, Path file) throws IOException {
+        if (id < 0 || id >= strings.length) throw new IOException("Corrupt snapshot: " + file);
+        String value = strings[id];
+        if (value == null) {
+            int start = buf.getInt(offsetsStart + id * 4);
+            int end = buf.getInt(offsetsStart + id * 4 + 4);
+            if (start < 0 || end < start || end > stringBytes) throw new IOException("Corrupt snapshot: " + file);
+            int length = end - start;
+            byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+            buf.get(bytesStart + start, bytes, 0, length);
+            value = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            strings[id] = value;
+        }
+        return value;
+    }
+
+    // Reads the old colon-delimited "Type:name:room:isOn" text file
+    public static List<SmartDevice> importLegacy(Path file) throws IOException {
+        return ParallelDeviceLoader.load(file);
+    }
+}
@@ -0,0 +1,283 @@
+package smarthome;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Struct-of-arrays device state for very large installations.
+// Each device is a row: on/armed flags live in BitSets, brightness in a byte[],
+// temperature in a float[], and room/color/mode/level strings are dictionary-encoded
+// into int ids. Names are packed as UTF-8 into one shared byte pool.
+// view(row) hands out a lightweight SmartDevice that reads and writes the row,
+// so code written against the object model keeps working unchanged.
+public class DeviceStateStore {
+    static final byte LIGHT = 0;
+    static final byte THERMOSTAT = 1;
+    static final byte SECURITY = 2;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private int size;
+    private byte[] kinds = new byte[INITIAL_CAPACITY];
+    private int[] nameOffsets = new int[INITIAL_CAPACITY + 1];
+    private byte[] namePool = new byte[INITIAL_CAPACITY * 16];
+    private int[] roomIds = new int[INITIAL_CAPACITY];
+    private int[] attrIds = new int[INITIAL_CAPACITY]; // color, mode or security level depending on kind
+    private byte[] brightness = new byte[INITIAL_CAPACITY];
+    private float[] temperature = new float[INITIAL_CAPACITY];
+    private final BitSet on = new BitSet(INITIAL_CAPACITY);
+    private final BitSet armed = new BitSet(INITIAL_CAPACITY);
+    private final Dictionary rooms = new Dictionary();
+    private final Dictionary attrs = new Dictionary();
+
+    public int addLight(String name, String room) {
+        int row = addRow(LIGHT, name, room, "White");
+        brightness[row] = 100;
+        return row;
+    }
+
+    public int addThermostat(String name, String room) {
+        int row = addRow(THERMOSTAT, name, room, "Auto");
+        temperature[row] = 22.0f;
+        return row;
+    }
+
+    public int addSecurity(String name, String room) {
+        return addRow(SECURITY, name, room, "Normal");
+    }
+
+    // Copies the full state of an existing device into a new row
+    public int add(SmartDevice device) {
+        int row;
+        if (device instanceof SmartLight) {
+            SmartLight light = (SmartLight) device;
+            row = addLight(device.getName(), device.getRoom());
+            brightness[row] = (byte) light.getBrightness();
+            attrIds[row] = attrs.id(light.getColor());
+        } else if (device instanceof SmartThermostat) {
+            SmartThermostat thermostat = (SmartThermostat) device;
+            row = addThermostat(device.getName(), device.getRoom());
+            temperature[row] = (float) thermostat.getTemperature();
+            attrIds[row] = attrs.id(thermostat.getMode());
+        } else if (device instanceof SmartSecurity) {
+            SmartSecurity security = (SmartSecurity) device;
+            row = addSecurity(device.getName(), device.getRoom());
+            armed.set(row, security.isArmed());
+            attrIds[row] = attrs.id(security.getSecurityLevel());
+        } else {
+            throw new IllegalArgumentException("Unsupported device type: " + device.getType());
+        }
+        on.set(row, device.isOn());
+        return row;
+    }
+
+    public SmartDevice view(int row) {
+        Objects.checkIndex(row, size);
+        switch (kinds[row]) {
+            case LIGHT: return new LightView(this, row);
+            case THERMOSTAT: return new ThermostatView(this, row);
+            default: return new SecurityView(this, row);
+        }
+    }
+
+    public int size() { return size; }
+    public byte kind(int row) { return kinds[row]; }
+    public String room(int row) { return rooms.value(roomIds[row]); }
+
+    // Bulk power switch for one room, done as a single column scan without creating views
+    public int setPowerInRoom(String room, boolean power) {
+        int roomId = rooms.find(room);
+        if (roomId < 0) return 0;
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (roomIds[row] == roomId) {
+                on.set(row, power);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Heap held by this store (arrays, name pool, bitsets and dictionaries)
+    public long estimatedBytes() {
+        long bytes = 0;
+        bytes += arrayBytes(kinds.length, 1);
+        bytes += arrayBytes(nameOffsets.length, 4);
+        bytes += arrayBytes(namePool.length, 1);
+        bytes += arrayBytes(roomIds.length, 4);
+        bytes += arrayBytes(attrIds.length, 4);
+        bytes += arrayBytes(brightness.length, 1);
+        bytes += arrayBytes(temperature.length, 4);
+        bytes += arrayBytes(on.size() / 64, 8) + arrayBytes(armed.size() / 64, 8);
+        bytes += rooms.estimatedBytes() + attrs.estimatedBytes();
+        return bytes;
+    }
+
+    public double bytesPerDevice() {
+        return size == 0 ? 0 : (double) estimatedBytes() / size;
+    }
+
+    private int addRow(byte kind, String name, String room, String attr) {
+        ensureCapacity(size + 1);
+        int row = size++;
+        kinds[row] = kind;
+        roomIds[row] = rooms.id(room);
+        attrIds[row] = attrs.id(attr);
+        appendName(row, name);
+        return row;
+    }
+
+    private void appendName(int row, String name) {
+        byte[] bytes = (name == null ? "" : name).getBytes(StandardCharsets.UTF_8);
+        int start = nameOffsets[row];
+        if (start + bytes.length > namePool.length) {
+            namePool = Arrays.copyOf(namePool, Math.max(namePool.length * 2, start + bytes.length));
+        }
+        System.arraycopy(bytes, 0, namePool, start, bytes.length);
+        nameOffsets[row + 1] = start + bytes.length;
+    }
+
+    private String name(int row) {
+        int start = nameOffsets[row];
+        return new String(namePool, start, nameOffsets[row + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= kinds.length) return;
+        int capacity = Math.max(kinds.length * 2, needed);
+        kinds = Arrays.copyOf(kinds, capacity);
+        nameOffsets = Arrays.copyOf(nameOffsets, capacity + 1);
+        roomIds = Arrays.copyOf(roomIds, capacity);
+        attrIds = Arrays.copyOf(attrIds, capacity);
+        brightness = Arrays.copyOf(brightness, capacity);
+        temperature = Arrays.copyOf(temperature, capacity);
+    }
+
+    // Write-and-return-previous helpers for the views' apply* hooks. Unlike SmartDevice these
+    // are plain reads and writes: a store has a single writer, like the loaders that fill it.
+    private static boolean exchange(BitSet bits, int row, boolean value) {
+        boolean before = bits.get(row);
+        bits.set(row, value);
+        return before;
+    }
+
+    private String exchangeAttr(int row, String value) {
+        String before = attrs.value(attrIds[row]);
+        attrIds[row] = attrs.id(value);
+        return before;
+    }
+
+    private static long arrayBytes(int length, int elementSize) {
+        // 16 byte array header, padded to 8 bytes
+        return (16L + (long) length * elementSize + 7) & ~7L;
+    }
+
+    // Thermostats are set in tenths of a degree, so round away the float noise
+    private static double widen(float value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    // String <-> int id mapping for low-cardinality columns
+    static class Dictionary {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int id(String value) {
+            String key = value == null ? "" : value;
+            Integer id = ids.get(key);
+            if (id == null) {
+                id = values.size();
+                ids.put(key, id);
+                values.add(key);
+            }
+            return id;
+        }
+
+        int find(String value) {
+            Integer id = ids.get(value == null ? "" : value);
+            return id == null ? -1 : id;
+        }
+
+        String value(int id) { return values.get(id); }
+        int size() { return values.size(); }
+
+        long estimatedBytes() {
+            long bytes = 0;
+            for (String value : values) {
+                // String object + backing array + one HashMap entry
+                bytes += 24 + arrayBytes(value.length(), 1) + 32;
+            }
+            return bytes;
+        }
+    }
+
+    // Views carry only the store and row; the inherited fields stay unused
+    static class LightView extends SmartLight {
+        private final DeviceStateStore store;
+        private final int row;
+
+        LightView(DeviceStateStore store, int row) {
+            super(null, null);
+            this.store = store;
+            this.row = row;
+        }
+
+        @Override public String getName() { return store.name(row); }
+        @Override public String getRoom() { return store.room(row); }
+        @Override public boolean isOn() { return store.on.get(row); }
+        @Override protected boolean applyOn(boolean on) { return exchange(store.on, row, on); }
+        // One unsigned byte; SmartLight keeps the value within 0-100
+        @Override public int getBrightness() { return store.brightness[row] & 0xFF; }
+        @Override protected int applyBrightness(int brightness) {
+            checkBrightness(brightness);
+            int before = getBrightness();
+            store.brightness[row] = (byte) brightness;
+            return before;
+        }
+        @Override public String getColor() { return store.attrs.value(store.attrIds[row]); }
+        @Override protected String applyColor(String color) { return store.exchangeAttr(row, color); }
+    }
+
+    static class ThermostatView extends SmartThermostat {
+        private final DeviceStateStore store;
+        private final int row;
+
+        ThermostatView(DeviceStateStore store, int row) {
+            super(null, null);
+            this.store = store;
+            this.row = row;
+        }
+
+        @Override public String getName() { return store.name(row); }
+        @Override public String getRoom() { return store.room(row); }
+        @Override public boolean isOn() { return store.on.get(row); }
+        @Override protected boolean applyOn(boolean on) { return exchange(store.on, row, on); }
+        @Override public double getTemperature() { return widen(store.temperature[row]); }
+        @Override protected double applyTemperature(double temp) {
+            double before = getTemperature();
+            store.temperature[row] = (float) temp;
+            return before;
+        }
+        @Override public String getMode() { return store.attrs.value(store.attrIds[row]); }
+        @Override protected String applyMode(String mode) { return store.exchangeAttr(row, mode); }
+    }
+
+    static class SecurityView extends SmartSecurity {
+        private final DeviceStateStore store;
+        private final int row;
+
+        SecurityView(DeviceStateStore store, int row) {
+            super(null, null);
+            this.store = store;
+            this.row = row;
+        }
+
+        @Override public String getName() { return store.name(row); }
+        @Override public String getRoom() { return store.room(row); }
+        @Override public boolean isOn() { return store.on.get(row); }
+        @Override protected boolean applyOn(boolean on) { return exchange(store.on, row, on); }
+        @Override public boolean isArmed() { return store.armed.get(row); }
+        @Override protected boolean applyArmed(boolean armed) { return exchange(store.armed, row, armed); }
+        @Override public String getSecurityLevel() { return store.attrs.value(store.attrIds[row]); }
+        @Override protected String applySecurityLevel(String level) { return store.exchangeAttr(row, level); }
+    }
+}
@@ -0,0 +1,254 @@
+package smarthome;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+// Live power draw per room and for the whole home, kept up to date from registry changes.
+//
+// Every device change re-reads that one device's getPowerWatts() and adds the difference to
+// its room's meter and the home meter, so a change costs the same with 10 devices or 100,000,
+// and reading a total never walks the devices. Meters integrate their draw into energy as
+// time passes, and remember the energy at 60 evenly spaced marks per window, so a rolling
+// average is one subtraction: (energy now - energy a window ago) / window.
+//
+// Listeners run on the mutating thread, so any thread may change devices. Loads and journal
+// replays are silent; call resync() after one (or create the monitor after loading).
+public class EnergyMonitor implements DeviceListener, AutoCloseable {
+    // Rolling averages on offer; each window keeps MARKS energy readings
+    public enum Window {
+        MINUTE(TimeUnit.MINUTES.toNanos(1), "1 min"),
+        QUARTER_HOUR(TimeUnit.MINUTES.toNanos(15), "15 min"),
+        HOUR(TimeUnit.HOURS.toNanos(1), "1 h");
+
+        final long nanos;
+        final String label;
+
+        Window(long nanos, String label) {
+            this.nanos = nanos;
+            this.label = label;
+        }
+    }
+
+    private static final int MARKS = 60;
+    private static final Window[] WINDOWS = Window.values();
+
+    private final DeviceRegistry registry;
+    private final LongSupplier clock;
+    private final Map<SmartDevice, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Meter> rooms = new ConcurrentHashMap<>();
+    private final Meter home;
+
+    private EnergyMonitor(DeviceRegistry registry, LongSupplier clock) {
+        this.registry = registry;
+        this.clock = clock;
+        this.home = new Meter(clock.getAsLong());
+    }
+
+    // Starts listening, then seeds the meters from the devices already registered
+    public static EnergyMonitor follow(DeviceRegistry registry) {
+        return follow(registry, System::nanoTime);
+    }
+
+    static EnergyMonitor follow(DeviceRegistry registry, LongSupplier clock) {
+        EnergyMonitor monitor = new EnergyMonitor(registry, clock);
+        registry.addListener(monitor);
+        monitor.resync();
+        return monitor;
+    }
+
+    @Override
+    public void deviceAdded(SmartDevice device) {
+        Entry entry = new Entry(meter(device.getRoom()));
+        if (entries.putIfAbsent(device, entry) == null) update(device, entry);
+    }
+
+    @Override
+    public void deviceRemoved(SmartDevice device) {
+        Entry entry = entries.remove(device);
+        if (entry == null) return;
+        synchronized (entry) {
+            move(entry, -entry.milliwatts);
+            entry.milliwatts = 0;
+            entry.removed = true;
+        }
+    }
+
+    @Override
+    public void deviceChanged(SmartDevice device, DeviceProperty property) {
+        Entry entry = entries.get(device);
+        if (entry != null) update(device, entry);
+    }
+
+    // Re-reads every device after silent changes (loads, clear(), journal replay); O(devices)
+    public void resync() {
+        Set<SmartDevice> present = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (SmartDevice device : registry) {
+            present.add(device);
+            Entry entry = entries.get(device);
+            if (entry == null) deviceAdded(device);
+            else update(device, entry);
+        }
+        for (SmartDevice device : new ArrayList<>(entries.keySet())) {
+            if (!present.contains(device)) deviceRemoved(device);
+        }
+    }
+
+    @Override
+    public void close() {
+        registry.removeListener(this);
+    }
+
+    public double homeWatts() { return home.watts(); }
+
+    public double roomWatts(String room) {
+        Meter meter = rooms.get(key(room));
+        return meter == null ? 0 : meter.watts();
+    }
+
+    public double homeAverageWatts(Window window) { return home.average(window, clock.getAsLong()); }
+
+    public double roomAverageWatts(String room, Window window) {
+        Meter meter = rooms.get(key(room));
+        return meter == null ? 0 : meter.average(window, clock.getAsLong());
+    }
+
+    // Energy used since the monitor started
+    public double homeKilowattHours() { return home.kilowattHours(clock.getAsLong()); }
+
+    public double roomKilowattHours(String room) {
+        Meter meter = rooms.get(key(room));
+        return meter == null ? 0 : meter.kilowattHours(clock.getAsLong());
+    }
+
+    // One line for the whole home, then one per room in registry order
+    public String report() {
+        long now = clock.getAsLong();
+        StringBuilder out = new StringBuilder();
+        out.append("⚡ Home power: ").append(line(home, now)).append("\n");
+        for (String room : registry.rooms()) {
+            Meter meter = rooms.get(key(room));
+            if (meter != null) out.append("   🏠 ").append(room).append(": ").append(line(meter, now)).append("\n");
+        }
+        return out.toString();
+    }
+
+    private static String line(Meter meter, long now) {
+        StringBuilder out = new StringBuilder(String.format(Locale.ROOT, "%,.1f W now", meter.watts()));
+        for (Window window : WINDOWS) {
+            out.append(String.format(Locale.ROOT, ", %s avg %,.1f W", window.label, meter.average(window, now)));
+        }
+        return out.append(String.format(Locale.ROOT, ", %.3f kWh", meter.kilowattHours(now))).toString();
+    }
+
+    // Reads the device's draw under its entry lock, so racing changes settle on the latest state
+    private void update(SmartDevice device, Entry entry) {
+        synchronized (entry) {
+            if (entry.removed) return;
+            long milliwatts = Math.round(device.getPowerWatts() * 1000);
+            long delta = milliwatts - entry.milliwatts;
+            if (delta == 0) return;
+            entry.milliwatts = milliwatts;
+            move(entry, delta);
+        }
+    }
+
+    private void move(Entry entry, long deltaMilliwatts) {
+        if (deltaMilliwatts == 0) return;
+        long now = clock.getAsLong();
+        entry.room.change(deltaMilliwatts, now);
+        home.change(deltaMilliwatts, now);
+    }
+
+    private Meter meter(String room) {
+        return rooms.computeIfAbsent(key(room), k -> new Meter(clock.getAsLong()));
+    }
+
+    private static String key(String room) {
+        return room == null ? "" : room.toLowerCase(Locale.ROOT);
+    }
+
+    // What one device currently contributes to its meters
+    private static final class Entry {
+        final Meter room;
+        long milliwatts;
+        boolean removed;
+
+        Entry(Meter room) { this.room = room; }
+    }
+
+    // Current draw plus integrated energy; marks[w][i % (MARKS + 1)] holds the energy at
+    // the i-th boundary of window w, boundaries being window / MARKS apart
+    static final class Meter {
+        private final long started;
+        private long milliwatts;
+        private double joules;
+        private long last;
+        private final long[] boundary = new long[WINDOWS.length];
+        private final double[][] marks = new double[WINDOWS.length][MARKS + 1];
+
+        Meter(long now) {
+            this.started = now;
+            this.last = now;
+            for (Window window : WINDOWS) {
+                boundary[window.ordinal()] = Math.floorDiv(now, window.nanos / MARKS);
+            }
+        }
+
+        synchronized void change(long deltaMilliwatts, long now) {
+            advance(now);
+            milliwatts += deltaMilliwatts;
+        }
+
+        synchronized double watts() { return milliwatts / 1000.0; }
+
+        synchronized double kilowattHours(long now) {
+            advance(now);
+            return joules / 3.6e6;
+        }
+
+        // Average over the last window (give or take one mark), or since the meter started
+        synchronized double average(Window window, long now) {
+            advance(now);
+            long step = window.nanos / MARKS;
+            long current = boundary[window.ordinal()];
+            long oldest = current - MARKS;
+            long from = oldest * step;
+            double before;
+            if (from <= started) {
+                from = started;
+                before = 0;
+            } else {
+                before = marks[window.ordinal()][Math.floorMod(oldest, MARKS + 1)];
+            }
+            long span = now - from;
+            if (span <= 0) return milliwatts / 1000.0;
+            return (joules - before) / (span / 1e9);
+        }
+
+        // Integrates the draw up to now, recording the energy at each boundary passed. A long
+        // quiet stretch only rewrites the last MARKS + 1 boundaries, so this stays bounded.
+        private void advance(long now) {
+            if (now <= last) return;
+            double watts = milliwatts / 1000.0;
+            for (Window window : WINDOWS) {
+                int w = window.ordinal();
+                long step = window.nanos / MARKS;
+                long target = Math.floorDiv(now, step);
+                long next = Math.max(boundary[w] + 1, target - MARKS);
+                for (long b = next; b <= target; b++) {
+                    marks[w][Math.floorMod(b, MARKS + 1)] = joules + watts * ((b * step - last) / 1e9);
+                }
+                boundary[w] = target;
+            }
+            joules += watts * ((now - last) / 1e9);
+            last = now;
+        }
+    }
+}
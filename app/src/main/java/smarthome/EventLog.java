@@ -0,0 +1,293 @@
+package smarthome;
+
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Asynchronous structured event log for device state changes.
+//
+// Callers hand over an event kind plus raw values (device name, a number, a string); nothing
+// is formatted on the calling thread. Events are copied into preallocated slots of a ring
+// (claim a sequence with one CAS, fill the slot, publish), and the event-log thread formats
+// them and writes them to the sinks in batches. A level that is switched off costs one
+// comparison. If the ring is full the event is dropped and counted rather than blocking the
+// device; the count is reported through the sinks.
+//
+// Configured from system properties when first used:
+//   log.level (INFO), log.console (true), log.file (none), log.fileMaxBytes (10 MB),
+//   log.fileKeep (5), log.buffer (16384 events)
+public class EventLog {
+    public enum Level { DEBUG, INFO, WARN, ERROR }
+
+    public enum Kind {
+        MESSAGE, POWER_ON, POWER_OFF, BRIGHTNESS, COLOR, TEMPERATURE, MODE, ARMED, DISARMED, SECURITY_LEVEL
+    }
+
+    // One preallocated slot; only the values that kind needs are meaningful
+    public static final class Event {
+        long timeMillis;
+        Level level;
+        Kind kind;
+        String device;
+        long number;
+        double decimal;
+        String text;
+
+        public long timeMillis() { return timeMillis; }
+        public Level level() { return level; }
+        public Kind kind() { return kind; }
+        public String device() { return device; }
+        public long number() { return number; }
+        public double decimal() { return decimal; }
+        public String text() { return text; }
+
+        // The human-readable line, as the model used to print it
+        public void format(StringBuilder out) {
+            switch (kind) {
+                case POWER_ON: out.append("🔆 ").append(device).append(" turned ON"); break;
+                case POWER_OFF: out.append("⚫ ").append(device).append(" turned OFF"); break;
+                case BRIGHTNESS: out.append("💡 ").append(device).append(" brightness set to ").append(number).append('%'); break;
+                case COLOR: out.append("🎨 ").append(device).append(" color changed to ").append(text); break;
+                case TEMPERATURE: out.append("🌡️ ").append(device).append(" temperature set to ").append(decimal).append("°C"); break;
+                case MODE: out.append("🔄 ").append(device).append(" mode changed to ").append(text); break;
+                case ARMED: out.append("🚨 ").append(device).append(" ARMED - Security activated!"); break;
+                case DISARMED: out.append("✅ ").append(device).append(" DISARMED - Security deactivated"); break;
+                case SECURITY_LEVEL: out.append("🛡️ ").append(device).append(" security level: ").append(text); break;
+                default: out.append(text);
+            }
+        }
+    }
+
+    private static volatile EventLog global;
+
+    private final Event[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long processed;
+    private volatile int threshold;
+    private final List<EventSink> sinks;
+    private final LongAdder dropped = new LongAdder();
+    private long reportedDropped;
+    private final Thread writer;
+    // Set by the writer before it parks; whoever publishes next wakes it
+    private volatile boolean parked;
+    private volatile boolean closed;
+
+    public EventLog(Level level, int capacity, List<EventSink> sinks) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.slots = new Event[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Event();
+            sequences.set(i, i);
+        }
+        this.threshold = level.ordinal();
+        this.sinks = new ArrayList<>(sinks);
+        this.writer = new Thread(this::run, "event-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public static EventLog global() {
+        EventLog log = global;
+        if (log == null) {
+            synchronized (EventLog.class) {
+                log = global;
+                if (log == null) {
+                    global = log = fromSystemProperties();
+                    EventLog closing = log;
+                    Runtime.getRuntime().addShutdownHook(new Thread(closing::close, "event-log-shutdown"));
+                }
+            }
+        }
+        return log;
+    }
+
+    private static EventLog fromSystemProperties() {
+        List<EventSink> sinks = new ArrayList<>();
+        if (Boolean.parseBoolean(System.getProperty("log.console", "true"))) {
+            sinks.add(new ConsoleSink());
+        }
+        String file = System.getProperty("log.file");
+        if (file != null && !file.isEmpty()) {
+            try {
+                sinks.add(new RollingFileSink(Paths.get(file), Long.getLong("log.fileMaxBytes", 10L << 20),
+                        Integer.getInteger("log.fileKeep", 5)));
+            } catch (java.io.IOException e) {
+                System.out.println("❌ Could not open log file " + file + ": " + e.getMessage());
+            }
+        }
+        Level level = Level.valueOf(System.getProperty("log.level", "INFO").toUpperCase());
+        return new EventLog(level, Integer.getInteger("log.buffer", 16384), sinks);
+    }
+
+    // Shortcuts for the model: INFO events against the global log
+    public static void info(Kind kind, String device) {
+        EventLog log = global();
+        if (log.isEnabled(Level.INFO)) log.publish(Level.INFO, kind, device, 0, 0, null);
+    }
+
+    public static void info(Kind kind, String device, long number) {
+        EventLog log = global();
+        if (log.isEnabled(Level.INFO)) log.publish(Level.INFO, kind, device, number, 0, null);
+    }
+
+    public static void info(Kind kind, String device, double decimal) {
+        EventLog log = global();
+        if (log.isEnabled(Level.INFO)) log.publish(Level.INFO, kind, device, 0, decimal, null);
+    }
+
+    public static void info(Kind kind, String device, String text) {
+        EventLog log = global();
+        if (log.isEnabled(Level.INFO)) log.publish(Level.INFO, kind, device, 0, 0, text);
+    }
+
+    public boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold;
+    }
+
+    public void setLevel(Level level) {
+        threshold = level.ordinal();
+    }
+
+    public void message(Level level, String text) {
+        if (isEnabled(level)) publish(level, Kind.MESSAGE, null, 0, 0, text);
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    public void publish(Level level, Kind kind, String device, long number, double decimal, String text) {
+        if (closed) return;
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long gap = sequences.get(index) - position;
+            if (gap == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    Event event = slots[index];
+                    event.timeMillis = System.currentTimeMillis();
+                    event.level = level;
+                    event.kind = kind;
+                    event.device = device;
+                    event.number = number;
+                    event.decimal = decimal;
+                    event.text = text;
+                    sequences.set(index, position + 1);
+                    if (parked) wake();
+                    return;
+                }
+                position = tail.get();
+            } else if (gap < 0) {
+                dropped.increment();
+                if (parked) wake();
+                return;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    // Waits (up to a second) until everything published so far has reached the sinks; the
+    // console calls this before printing its own replies so output stays in order
+    public void flush() {
+        long target = tail.get();
+        long deadline = System.nanoTime() + 1_000_000_000L;
+        while (processed < target && System.nanoTime() < deadline && writer.isAlive()) {
+            LockSupport.unpark(writer);
+            Thread.onSpinWait();
+            Thread.yield();
+        }
+    }
+
+    public void close() {
+        if (closed) return;
+        flush();
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (EventSink sink : sinks) {
+            sink.close();
+        }
+    }
+
+    private void wake() {
+        parked = false;
+        LockSupport.unpark(writer);
+    }
+
+    private void run() {
+        StringBuilder line = new StringBuilder(128);
+        long position = 0;
+        int idle = 0;
+        boolean wrote = false;
+        while (!closed || sequences.get((int) position & mask) == position + 1) {
+            int index = (int) position & mask;
+            if (sequences.get(index) == position + 1) {
+                Event event = slots[index];
+                line.setLength(0);
+                event.format(line);
+                for (EventSink sink : sinks) {
+                    sink.write(event, line);
+                }
+                event.device = null;
+                event.text = null;
+                sequences.set(index, position + mask + 1);
+                position++;
+                idle = 0;
+                wrote = true;
+                continue;
+            }
+
+            // Caught up: report drops, push the batch out, then spin briefly and sleep until
+            // the next publish
+            if (reportDropped(line)) wrote = true;
+            if (wrote) {
+                for (EventSink sink : sinks) {
+                    sink.flush();
+                }
+                wrote = false;
+            }
+            processed = position;
+            if (++idle < 100) {
+                Thread.onSpinWait();
+            } else {
+                parked = true;
+                // Checked again after announcing it, so an event published meanwhile is not missed
+                if (!closed && sequences.get(index) != position + 1) LockSupport.park(this);
+                parked = false;
+            }
+        }
+        processed = position;
+        for (EventSink sink : sinks) {
+            sink.flush();
+        }
+    }
+
+    private boolean reportDropped(StringBuilder line) {
+        long total = dropped.sum();
+        if (total == reportedDropped) return false;
+        Event event = new Event();
+        event.timeMillis = System.currentTimeMillis();
+        event.level = Level.WARN;
+        event.kind = Kind.MESSAGE;
+        event.text = "⚠️ " + (total - reportedDropped) + " log events dropped (buffer full)";
+        reportedDropped = total;
+        line.setLength(0);
+        event.format(line);
+        for (EventSink sink : sinks) {
+            sink.write(event, line);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,12 @@
+package smarthome;
+
+// Destination for EventLog events. Called only from the event-log thread, so
+// implementations need no locking; flush() comes after each batch.
+interface EventSink {
+    // line is the formatted message and is reused for the next event
+    void write(EventLog.Event event, CharSequence line);
+
+    default void flush() {}
+
+    default void close() { flush(); }
+}
@@ -0,0 +1,59 @@
+package smarthome;
+
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Pushes a burst of feedback through FeedbackIngestor into a FeedbackStore, then pages
+// through all of it newest first the way the feedback dialog does.
+// Usage: java FeedbackBenchmark [memory|file|postgres] [count] [pageSize]
+public class FeedbackBenchmark {
+    public static void main(String[] args) throws Exception {
+        String kind = args.length > 0 ? args[0] : "memory";
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        int pageSize = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+
+        Path file = null;
+        if (kind.equals("file")) {
+            file = Files.createTempFile("feedback-bench", ".log");
+            System.setProperty("feedback.file", file.toString());
+        }
+
+        try (FeedbackStore store = FeedbackStore.open(kind)) {
+            long before = store.count();
+            FeedbackIngestor ingestor = new FeedbackIngestor(store::saveBatch, count, 500, 20);
+            long start = System.nanoTime();
+            List<CompletableFuture<Void>> results = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                results.add(ingestor.submit("User " + (i % 1000), "Feedback message number " + i));
+            }
+            long submitNanos = System.nanoTime() - start;
+            CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).join();
+            long writeNanos = System.nanoTime() - start;
+            ingestor.close();
+            System.out.printf("📝 %,d submissions: enqueue %.1f ms, durable %.1f ms (%,.0f/s) — %s%n",
+                    count, submitNanos / 1e6, writeNanos / 1e6, count / (writeNanos / 1e9), ingestor.stats());
+
+            start = System.nanoTime();
+            long worstNanos = 0;
+            long rows = 0;
+            int pages = 0;
+            FeedbackEntry cursor = null;
+            while (true) {
+                long pageStart = System.nanoTime();
+                List<FeedbackEntry> page = store.olderThan(cursor, pageSize);
+                worstNanos = Math.max(worstNanos, System.nanoTime() - pageStart);
+                if (page.isEmpty()) break;
+                rows += page.size();
+                pages++;
+                cursor = page.get(page.size() - 1);
+            }
+            long readNanos = System.nanoTime() - start;
+            System.out.printf("📖 %,d rows in %,d pages: %.1f ms, avg %.3f ms/page, worst %.3f ms (store holds %,d, had %,d)%n",
+                    rows, pages, readNanos / 1e6, pages == 0 ? 0 : readNanos / 1e6 / pages, worstNanos / 1e6,
+                    store.count(), before);
+        } finally {
+            if (file != null) Files.deleteIfExists(file);
+        }
+    }
+}
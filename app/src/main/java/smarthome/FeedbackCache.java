@@ -0,0 +1,146 @@
+package smarthome;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// Read-through cache for feedback pages.
+//
+// Pages are cached by (direction, cursor, limit) for ttl and evicted least-recently-used past
+// maxPages. Entries written by other processes show up once the TTL runs out. Writes made by
+// this process call invalidateHead(), which drops exactly the pages a newly inserted (newest)
+// row can appear in: the head page (no cursor) and newer-than pages that came back short,
+// i.e. reached the head. Pages strictly older than a cursor can't change and stay cached.
+public class FeedbackCache {
+    private final FeedbackPager.PageQuery older;
+    private final FeedbackPager.PageQuery newer;
+    private final long ttlNanos;
+    private final int maxPages;
+
+    private final LinkedHashMap<Key, Page> pages = new LinkedHashMap<>(64, 0.75f, true);
+    // Bumped by invalidateHead so a head load that raced with a write isn't cached stale
+    private long headGeneration;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public FeedbackCache(FeedbackPager.PageQuery older, FeedbackPager.PageQuery newer, long ttlMillis, int maxPages) {
+        this.older = older;
+        this.newer = newer;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.maxPages = maxPages;
+    }
+
+    public List<FeedbackEntry> older(FeedbackEntry cursor, int limit) throws Exception {
+        return get(new Key(true, cursor, limit), older, cursor, limit);
+    }
+
+    public List<FeedbackEntry> newer(FeedbackEntry cursor, int limit) throws Exception {
+        return get(new Key(false, cursor, limit), newer, cursor, limit);
+    }
+
+    public synchronized void invalidateHead() {
+        headGeneration++;
+        Iterator<Map.Entry<Key, Page>> it = pages.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Page> entry = it.next();
+            if (entry.getValue().reachesHead) {
+                it.remove();
+                invalidations.increment();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        headGeneration++;
+        pages.clear();
+    }
+
+    public String stats() {
+        long hit = hits.sum();
+        long miss = misses.sum();
+        double avgLoadMs = miss == 0 ? 0 : loadNanos.sum() / 1e6 / miss;
+        int size;
+        synchronized (this) {
+            size = pages.size();
+        }
+        return String.format("hits=%d misses=%d hitRate=%.0f%% avgLoad=%.2fms evictions=%d invalidations=%d pages=%d",
+                hit, miss, hit + miss == 0 ? 0.0 : 100.0 * hit / (hit + miss), avgLoadMs,
+                evictions.sum(), invalidations.sum(), size);
+    }
+
+    private List<FeedbackEntry> get(Key key, FeedbackPager.PageQuery query, FeedbackEntry cursor, int limit) throws Exception {
+        long generation;
+        synchronized (this) {
+            Page page = pages.get(key);
+            if (page != null && System.nanoTime() - page.loadedAt < ttlNanos) {
+                hits.increment();
+                return page.entries;
+            }
+            if (page != null) pages.remove(key);
+            generation = headGeneration;
+        }
+
+        misses.increment();
+        long start = System.nanoTime();
+        List<FeedbackEntry> entries = List.copyOf(query.fetch(cursor, limit));
+        long loadedAt = System.nanoTime();
+        loadNanos.add(loadedAt - start);
+
+        boolean reachesHead = key.cursorId < 0 || (!key.older && entries.size() < limit);
+        synchronized (this) {
+            if (!reachesHead || generation == headGeneration) {
+                pages.put(key, new Page(entries, loadedAt, reachesHead));
+                while (pages.size() > maxPages) {
+                    Iterator<Key> eldest = pages.keySet().iterator();
+                    eldest.next();
+                    eldest.remove();
+                    evictions.increment();
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static class Page {
+        final List<FeedbackEntry> entries;
+        final long loadedAt;
+        final boolean reachesHead;
+
+        Page(List<FeedbackEntry> entries, long loadedAt, boolean reachesHead) {
+            this.entries = entries;
+            this.loadedAt = loadedAt;
+            this.reachesHead = reachesHead;
+        }
+    }
+
+    private static class Key {
+        final boolean older;
+        final long cursorId;
+        final LocalDateTime cursorTime;
+        final int limit;
+
+        Key(boolean older, FeedbackEntry cursor, int limit) {
+            this.older = older;
+            this.cursorId = cursor == null ? -1 : cursor.getId();
+            this.cursorTime = cursor == null ? null : cursor.getCreatedAt();
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return older == other.older && cursorId == other.cursorId && limit == other.limit
+                    && Objects.equals(cursorTime, other.cursorTime);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(older, cursorId, cursorTime, limit);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package smarthome;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+// One feedback row. (createdAt, id) is the keyset the feedback pages are ordered and cut by.
+public class FeedbackEntry {
+    private static final DateTimeFormatter DISPLAY = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final long id;
+    private final String name;
+    private final String feedback;
+    private final LocalDateTime createdAt;
+
+    public FeedbackEntry(long id, String name, String feedback, LocalDateTime createdAt) {
+        this.id = id;
+        this.name = name;
+        this.feedback = feedback;
+        this.createdAt = createdAt;
+    }
+
+    public long getId() { return id; }
+    public String getName() { return name; }
+    public String getFeedback() { return feedback; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+
+    @Override
+    public String toString() {
+        return name + ": " + feedback + " (" + (createdAt == null ? "?" : DISPLAY.format(createdAt)) + ")";
+    }
+}
@@ -0,0 +1,146 @@
+package smarthome;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Asynchronous, batched feedback writer.
+//
+// submit() only enqueues and returns a future, so callers (the FX thread) never wait on the
+// database. A single writer thread drains the bounded queue into batches: a batch is written
+// as soon as it holds maxBatch submissions or batchWindow has passed since its first one,
+// whichever comes first. Under a burst that means few large multi-row inserts; when idle a
+// lone submission still goes out within one window. When the queue is full submit() fails
+// fast instead of blocking.
+public class FeedbackIngestor implements Closeable {
+    public interface BatchWriter {
+        void write(List<Submission> batch) throws Exception;
+    }
+
+    public static class Submission {
+        public final String name;
+        public final String feedback;
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        Submission(String name, String feedback) {
+            this.name = name;
+            this.feedback = feedback;
+        }
+    }
+
+    private static final Submission POISON = new Submission(null, null);
+
+    private final BatchWriter writer;
+    private final BlockingQueue<Submission> queue;
+    private final int maxBatch;
+    private final long batchWindowNanos;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    private volatile long batches;
+    private volatile long written;
+    private final AtomicLong rejected = new AtomicLong();
+
+    public FeedbackIngestor(BatchWriter writer) {
+        this(writer, 10_000, 500, 20);
+    }
+
+    public FeedbackIngestor(BatchWriter writer, int capacity, int maxBatch, long batchWindowMillis) {
+        this.writer = writer;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatch = maxBatch;
+        this.batchWindowNanos = TimeUnit.MILLISECONDS.toNanos(batchWindowMillis);
+        this.thread = new Thread(this::run, "feedback-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public CompletableFuture<Void> submit(String name, String feedback) {
+        Submission submission = new Submission(name, feedback);
+        if (closed) {
+            submission.result.completeExceptionally(new RejectedExecutionException("Feedback ingestor is closed"));
+        } else if (!queue.offer(submission)) {
+            rejected.incrementAndGet();
+            submission.result.completeExceptionally(new RejectedExecutionException("Feedback queue is full"));
+        }
+        return submission.result;
+    }
+
+    public int pending() { return queue.size(); }
+
+    public String stats() {
+        return "batches=" + batches + " written=" + written + " rejected=" + rejected.get() + " pending=" + pending();
+    }
+
+    // Writes everything already queued, then stops the writer thread
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            queue.put(POISON);
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Submission> batch = new ArrayList<>(maxBatch);
+        boolean running = true;
+        while (running) {
+            try {
+                Submission first = queue.take();
+                if (first == POISON) break;
+                batch.add(first);
+
+                long deadline = System.nanoTime() + batchWindowNanos;
+                while (batch.size() < maxBatch) {
+                    // Take whatever is already there without waiting, then wait out the window
+                    Submission next = queue.poll();
+                    if (next == null) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) break;
+                        next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                        if (next == null) break;
+                    }
+                    if (next == POISON) {
+                        running = false;
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            flush(batch);
+        }
+        flush(batch);
+
+        // Anything that raced in behind close()
+        Submission late;
+        while ((late = queue.poll()) != null) {
+            if (late != POISON) {
+                late.result.completeExceptionally(new RejectedExecutionException("Feedback ingestor is closed"));
+            }
+        }
+    }
+
+    private void flush(List<Submission> batch) {
+        if (batch.isEmpty()) return;
+        try {
+            writer.write(batch);
+            batches++;
+            written += batch.size();
+            for (Submission submission : batch) {
+                submission.result.complete(null);
+            }
+        } catch (Exception e) {
+            for (Submission submission : batch) {
+                submission.result.completeExceptionally(e);
+            }
+        }
+        batch.clear();
+    }
+}
@@ -0,0 +1,140 @@
+package smarthome;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+import javafx.scene.control.*;
+
+// Pages feedback into a ListView lazily as the user scrolls.
+//
+// The list only ever holds a window of at most maxRows entries. When a cell near the bottom
+// of the window is shown the next older page is fetched and appended, and the oldest-loaded
+// rows at the top are dropped to stay within the window; scrolling back up fetches them again
+// the same way. Pages are fetched on a background thread by keyset, so every page costs the
+// same no matter how deep into the history the user is, and the FX thread only appends rows.
+public class FeedbackPager implements AutoCloseable {
+    // Fetches up to limit entries past cursor, newest first
+    public interface PageQuery {
+        List<FeedbackEntry> fetch(FeedbackEntry cursor, int limit) throws Exception;
+    }
+
+    private static final double ROW_HEIGHT = 28;
+
+    private final ListView<FeedbackEntry> view;
+    private final PageQuery older;
+    private final PageQuery newer;
+    private final int pageSize;
+    private final int maxRows;
+    private final ObservableList<FeedbackEntry> rows;
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "feedback-pager");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Only touched on the FX thread
+    private boolean loading;
+    private boolean olderExhausted;
+    private boolean hasNewer;
+    private boolean closed;
+
+    public FeedbackPager(ListView<FeedbackEntry> view, PageQuery older, PageQuery newer) {
+        this(view, older, newer, 100, 500);
+    }
+
+    public FeedbackPager(ListView<FeedbackEntry> view, PageQuery older, PageQuery newer, int pageSize, int maxRows) {
+        this.view = view;
+        this.older = older;
+        this.newer = newer;
+        this.pageSize = pageSize;
+        this.maxRows = Math.max(maxRows, pageSize * 2);
+        this.rows = view.getItems();
+    }
+
+    public void start() {
+        view.setFixedCellSize(ROW_HEIGHT);
+        view.setPlaceholder(new Label("⏳ Loading feedback..."));
+        view.setCellFactory(list -> new ListCell<FeedbackEntry>() {
+            @Override
+            protected void updateItem(FeedbackEntry entry, boolean empty) {
+                super.updateItem(entry, empty);
+                setText(empty || entry == null ? null : entry.toString());
+                if (!empty) shown(getIndex());
+            }
+        });
+        loadOlder(0);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        loader.shutdownNow();
+    }
+
+    private void shown(int index) {
+        if (loading || closed) return;
+        int margin = pageSize / 4;
+        if (!olderExhausted && index >= rows.size() - margin) {
+            loadOlder(index);
+        } else if (hasNewer && index < margin) {
+            loadNewer(index);
+        }
+    }
+
+    private void loadOlder(int trigger) {
+        loading = true;
+        FeedbackEntry cursor = rows.isEmpty() ? null : rows.get(rows.size() - 1);
+        fetch(older, cursor, page -> {
+            if (page.size() < pageSize) olderExhausted = true;
+            rows.addAll(page);
+            int excess = rows.size() - maxRows;
+            if (excess > 0) {
+                rows.remove(0, excess);
+                hasNewer = true;
+                // Keep the row that triggered the load where it was, at the bottom of the view
+                view.scrollTo(Math.max(0, trigger - excess - visibleRows() + 1));
+            }
+            if (rows.isEmpty()) view.setPlaceholder(new Label("No feedback submitted yet."));
+        });
+    }
+
+    private void loadNewer(int trigger) {
+        loading = true;
+        FeedbackEntry cursor = rows.get(0);
+        fetch(newer, cursor, page -> {
+            if (page.size() < pageSize) hasNewer = false;
+            rows.addAll(0, page);
+            int excess = rows.size() - maxRows;
+            if (excess > 0) {
+                rows.remove(rows.size() - excess, rows.size());
+                olderExhausted = false;
+            }
+            view.scrollTo(trigger + page.size());
+        });
+    }
+
+    private void fetch(PageQuery query, FeedbackEntry cursor, Consumer<List<FeedbackEntry>> apply) {
+        loader.execute(() -> {
+            try {
+                List<FeedbackEntry> page = query.fetch(cursor, pageSize);
+                Platform.runLater(() -> {
+                    if (closed) return;
+                    loading = false;
+                    apply.accept(page);
+                });
+            } catch (Exception e) {
+                System.out.println("Error loading feedback: " + e.getMessage());
+                Platform.runLater(() -> {
+                    loading = false;
+                    if (rows.isEmpty()) view.setPlaceholder(new Label("❌ Could not load feedback."));
+                });
+            }
+        });
+    }
+
+    private int visibleRows() {
+        return Math.max(1, (int) (view.getHeight() / ROW_HEIGHT));
+    }
+}
@@ -0,0 +1,43 @@
+package smarthome;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+
+// Where feedback lives. Entries are ordered newest first by (createdAt, id) and read in keyset
+// pages; see FeedbackPager for how the pages are consumed.
+//
+// The engine is chosen at startup with -Dfeedback.store=postgres|memory|file (default
+// postgres); the file engine writes to -Dfeedback.file (default feedback.log).
+public interface FeedbackStore extends Closeable {
+    void save(String name, String feedback) throws Exception;
+
+    // All or nothing where the engine can manage it
+    void saveBatch(List<FeedbackIngestor.Submission> batch) throws Exception;
+
+    // Up to limit entries older than before (the newest when before is null), newest first
+    List<FeedbackEntry> olderThan(FeedbackEntry before, int limit) throws Exception;
+
+    // Up to limit entries right after after, also returned newest first
+    List<FeedbackEntry> newerThan(FeedbackEntry after, int limit) throws Exception;
+
+    long count() throws Exception;
+
+    @Override
+    default void close() throws IOException {
+    }
+
+    static FeedbackStore fromSystemProperties() throws IOException {
+        return open(System.getProperty("feedback.store", "postgres"));
+    }
+
+    static FeedbackStore open(String kind) throws IOException {
+        switch (kind.toLowerCase()) {
+            case "postgres": return new PostgresFeedbackStore();
+            case "memory": return new InMemoryFeedbackStore();
+            case "file": return new FileFeedbackStore(Paths.get(System.getProperty("feedback.file", "feedback.log")));
+            default: throw new IllegalArgumentException("Unknown feedback store: " + kind);
+        }
+    }
+}
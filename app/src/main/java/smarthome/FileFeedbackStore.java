@@ -0,0 +1,217 @@
+package smarthome;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.zip.CRC32;
+
+// Feedback in an append-only file plus an in-memory offset index.
+//
+// Ids are handed out 1, 2, 3... and timestamps never go backwards, so file order is the
+// (createdAt, id) order and entry id N sits at index N - 1. A page is therefore one positional
+// read of a contiguous byte range, whatever its depth. The index is rebuilt by scanning the
+// file on open; a torn or corrupt tail left by a crash is truncated away.
+//
+// Record: i32 bodyLength | body | i32 crc32(body), where
+// body = i64 id | i64 epochSecond | i32 nano | i32 nameLength | name | i32 feedbackLength | feedback.
+public class FileFeedbackStore implements FeedbackStore {
+    private static final int MAX_BODY_BYTES = 16 * 1024 * 1024;
+
+    private final FileChannel channel;
+
+    // Guarded by this
+    private long[] offsets = new long[1024];
+    private int count;
+    private long end;
+    private LocalDateTime lastCreated = LocalDateTime.MIN;
+
+    public FileFeedbackStore(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        rebuildIndex();
+    }
+
+    @Override
+    public void save(String name, String feedback) throws IOException {
+        append(Collections.singletonList(new String[] { name, feedback }));
+    }
+
+    @Override
+    public void saveBatch(List<FeedbackIngestor.Submission> batch) throws IOException {
+        List<String[]> rows = new ArrayList<>(batch.size());
+        for (FeedbackIngestor.Submission submission : batch) {
+            rows.add(new String[] { submission.name, submission.feedback });
+        }
+        append(rows);
+    }
+
+    @Override
+    public List<FeedbackEntry> olderThan(FeedbackEntry before, int limit) throws IOException {
+        long[] index;
+        int size;
+        long tail;
+        synchronized (this) {
+            index = offsets;
+            size = count;
+            tail = end;
+        }
+        int hi = before == null ? size : (int) Math.min(size, Math.max(0, before.getId() - 1));
+        List<FeedbackEntry> page = read(index, size, tail, Math.max(0, hi - limit), hi);
+        Collections.reverse(page);
+        return page;
+    }
+
+    @Override
+    public List<FeedbackEntry> newerThan(FeedbackEntry after, int limit) throws IOException {
+        long[] index;
+        int size;
+        long tail;
+        synchronized (this) {
+            index = offsets;
+            size = count;
+            tail = end;
+        }
+        int lo = (int) Math.min(size, Math.max(0, after.getId()));
+        List<FeedbackEntry> page = read(index, size, tail, lo, Math.min(size, lo + limit));
+        Collections.reverse(page);
+        return page;
+    }
+
+    @Override
+    public synchronized long count() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Encodes the whole batch into one buffer: one write and one fsync per batch
+    private synchronized void append(List<String[]> rows) throws IOException {
+        LocalDateTime now = LocalDateTime.now();
+        if (now.isBefore(lastCreated)) now = lastCreated;
+
+        List<byte[][]> encoded = new ArrayList<>(rows.size());
+        int total = 0;
+        for (String[] row : rows) {
+            byte[][] fields = { row[0].getBytes(StandardCharsets.UTF_8), row[1].getBytes(StandardCharsets.UTF_8) };
+            int body = 8 + 8 + 4 + 4 + fields[0].length + 4 + fields[1].length;
+            if (body > MAX_BODY_BYTES) throw new IOException("Feedback entry too large: " + body + " bytes");
+            encoded.add(fields);
+            total += 4 + body + 4;
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate(total);
+        long[] positions = new long[rows.size()];
+        CRC32 crc = new CRC32();
+        long id = count;
+        for (int i = 0; i < encoded.size(); i++) {
+            byte[][] fields = encoded.get(i);
+            positions[i] = end + buf.position();
+            int start = buf.position();
+            buf.putInt(0);
+            buf.putLong(++id);
+            buf.putLong(now.toEpochSecond(ZoneOffset.UTC));
+            buf.putInt(now.getNano());
+            buf.putInt(fields[0].length).put(fields[0]);
+            buf.putInt(fields[1].length).put(fields[1]);
+            int bodyLength = buf.position() - start - 4;
+            buf.putInt(start, bodyLength);
+            crc.reset();
+            crc.update(buf.array(), start + 4, bodyLength);
+            buf.putInt((int) crc.getValue());
+        }
+
+        buf.flip();
+        long at = end;
+        while (buf.hasRemaining()) {
+            at += channel.write(buf, at);
+        }
+        channel.force(false);
+
+        for (long position : positions) {
+            index(position);
+        }
+        end = at;
+        lastCreated = now;
+    }
+
+    private void index(long position) {
+        if (count == offsets.length) {
+            // Readers may still hold the old array, so grow into a copy rather than in place
+            offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        offsets[count++] = position;
+    }
+
+    // Entries at index positions [lo, hi) in file order, read with a single positional read
+    private List<FeedbackEntry> read(long[] index, int size, long tail, int lo, int hi) throws IOException {
+        List<FeedbackEntry> page = new ArrayList<>(Math.max(0, hi - lo));
+        if (lo >= hi) return page;
+        long from = index[lo];
+        long to = hi < size ? index[hi] : tail;
+        ByteBuffer buf = ByteBuffer.allocate((int) (to - from));
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, from + buf.position()) < 0) throw new EOFException("Feedback file truncated");
+        }
+        buf.flip();
+        while (buf.hasRemaining()) {
+            buf.getInt();
+            page.add(decode(buf));
+            buf.getInt(); // crc, already checked when the record was indexed
+        }
+        return page;
+    }
+
+    private static FeedbackEntry decode(ByteBuffer buf) {
+        long id = buf.getLong();
+        LocalDateTime createdAt = LocalDateTime.ofEpochSecond(buf.getLong(), buf.getInt(), ZoneOffset.UTC);
+        String name = string(buf);
+        String feedback = string(buf);
+        return new FeedbackEntry(id, name, feedback, createdAt);
+    }
+
+    private static String string(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getInt()];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private synchronized void rebuildIndex() throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(4);
+        CRC32 crc = new CRC32();
+        while (position + 4 <= size) {
+            header.clear();
+            channel.read(header, position);
+            int bodyLength = header.getInt(0);
+            if (bodyLength < 28 || bodyLength > MAX_BODY_BYTES || position + 4 + bodyLength + 4 > size) break;
+
+            ByteBuffer record = ByteBuffer.allocate(bodyLength + 4);
+            while (record.hasRemaining()) {
+                if (channel.read(record, position + 4 + record.position()) < 0) break;
+            }
+            crc.reset();
+            crc.update(record.array(), 0, bodyLength);
+            if ((int) crc.getValue() != record.getInt(bodyLength)) break;
+
+            record.flip();
+            FeedbackEntry entry = decode(record);
+            if (entry.getId() != count + 1) break;
+            index(position);
+            lastCreated = entry.getCreatedAt();
+            position += 4 + bodyLength + 4;
+        }
+        if (position < size) {
+            System.out.println("⚠️ Dropping " + (size - position) + " unreadable bytes at the end of the feedback file");
+            channel.truncate(position);
+        }
+        end = position;
+    }
+}
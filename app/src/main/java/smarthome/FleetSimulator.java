@@ -0,0 +1,423 @@
+package smarthome;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Headless load generator: a fleet of simulated devices driving the real device model.
+//
+// Every simulated light, thermostat and security device runs on its own schedule: it emits
+// telemetry readings (power draw, room temperature, motion) on a fixed cadence, the way real
+// sensors report, and makes state changes (power, brightness, temperature, arming...) at
+// random, as a Poisson process. Both rates are per device. Nothing external is involved:
+// changes go through the registry, its listeners and the event bus exactly as they would from
+// the UI, and telemetry goes to a pluggable sink - a TelemetryStore when run from main().
+//
+// Latency is measured from when an action was due to when it finished, so time spent waiting
+// behind a backlog counts; the service time of the action alone is reported separately.
+// The report also covers achieved vs target throughput and GC counts and pauses.
+//
+// Modes (sim.mode):
+//   scheduled - default. Each device is a task that re-arms itself on an AutomationScheduler
+//               wheel and runs on a pool of sim.workers threads, so 100K+ devices cost no
+//               threads of their own.
+//   threads   - one thread per device sleeping between actions, which is only practical with
+//               virtual threads (Java 21+). On older runtimes it falls back to scheduled.
+//
+// Usage: java FleetSimulator [devices] [seconds]
+//   -Dsim.changeRate=0.2      state changes per device per second
+//   -Dsim.telemetryRate=1     telemetry readings per device per second
+//   -Dsim.workers=<cores>     worker threads in scheduled mode
+//   -Dsim.subscribers=1       event bus subscribers draining changes (DROP policy)
+//   -Dsim.warmup=2            seconds run before measuring, left out of the report
+//   -Dsim.telemetry=true      keep the readings (and the change history) in a TelemetryStore
+//   -Dsim.energy=true         keep per-room and home power totals in an EnergyMonitor
+public class FleetSimulator {
+    // Receives every telemetry reading the fleet emits
+    public interface TelemetrySink {
+        void record(SmartDevice device, TelemetryStore.Metric metric, long timeMillis, double value);
+    }
+
+    public enum Mode { SCHEDULED, THREADS }
+
+    private static final String[] COLORS = {"White", "Warm White", "Red", "Blue", "Green"};
+    private static final String[] MODES = {"Heating", "Cooling", "Auto"};
+    private static final String[] LEVELS = {"Normal", "High", "Maximum"};
+
+    private final DeviceRegistry registry;
+    private final double changeRate;
+    private final double telemetryRate;
+    private final int workers;
+    private final List<Simulated> fleet = new ArrayList<>();
+    private volatile TelemetrySink telemetry = (device, metric, time, value) -> { };
+    private volatile boolean running;
+
+    private final LongAdder changes = new LongAdder();
+    private final LongAdder readings = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram service = new LatencyHistogram();
+    private final LatencyHistogram recent = new LatencyHistogram(); // reset every progress line
+
+    public FleetSimulator(DeviceRegistry registry, double changeRate, double telemetryRate, int workers) {
+        if (changeRate < 0 || telemetryRate < 0 || changeRate + telemetryRate <= 0) {
+            throw new IllegalArgumentException("Rates must be non-negative and not both zero");
+        }
+        this.registry = registry;
+        this.changeRate = changeRate;
+        this.telemetryRate = telemetryRate;
+        this.workers = Math.max(1, workers);
+    }
+
+    public static FleetSimulator fromSystemProperties(DeviceRegistry registry) {
+        return new FleetSimulator(registry,
+                Double.parseDouble(System.getProperty("sim.changeRate", "0.2")),
+                Double.parseDouble(System.getProperty("sim.telemetryRate", "1")),
+                Integer.getInteger("sim.workers", Runtime.getRuntime().availableProcessors()));
+    }
+
+    public void setTelemetrySink(TelemetrySink sink) { this.telemetry = sink; }
+
+    // Simulates every device currently in the registry
+    public FleetSimulator addRegistryDevices() {
+        long seed = 42;
+        for (SmartDevice device : registry) {
+            fleet.add(new Simulated(device, new SplittableRandom(seed++)));
+        }
+        return this;
+    }
+
+    // Runs the fleet for warmup + seconds, printing progress every second, and returns the
+    // report for the measured seconds only
+    public Report run(Mode mode, long warmup, long seconds) throws InterruptedException {
+        if (fleet.isEmpty()) throw new IllegalStateException("No devices to simulate");
+        ThreadFactory virtual = mode == Mode.THREADS ? virtualThreadFactory() : null;
+        if (mode == Mode.THREADS && virtual == null) {
+            System.out.println("⚠️ Virtual threads need Java 21+, running in scheduled mode instead");
+            mode = Mode.SCHEDULED;
+        }
+        Gc gcBefore = Gc.now();
+        running = true;
+        long start = System.nanoTime();
+
+        ExecutorService pool = null;
+        AutomationScheduler scheduler = null;
+        List<Thread> threads = new ArrayList<>();
+        if (mode == Mode.SCHEDULED) {
+            AtomicInteger count = new AtomicInteger();
+            pool = Executors.newFixedThreadPool(workers, r -> {
+                Thread thread = new Thread(r, "sim-worker-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler = new AutomationScheduler(pool, 1, 4096);
+            for (Simulated device : fleet) {
+                device.start(start);
+                device.arm(scheduler);
+            }
+        } else {
+            for (Simulated device : fleet) {
+                device.start(start);
+                Thread thread = virtual.newThread(device::loop);
+                threads.add(thread);
+                thread.start();
+            }
+        }
+
+        long target = Math.round(fleet.size() * (changeRate + telemetryRate));
+        System.out.printf("🚀 Simulating %,d devices (%s), target %,d ops/s%n", fleet.size(),
+                mode == Mode.SCHEDULED ? workers + " workers" : "virtual threads", target);
+        long lastOps = 0;
+        long measuredFrom = start;
+        for (long second = 1; second <= warmup + seconds; second++) {
+            LockSupport.parkNanos(start + TimeUnit.SECONDS.toNanos(second) - System.nanoTime());
+            long ops = changes.sum() + readings.sum();
+            System.out.printf("⏱️ %3d s: %,d ops/s, latency p99 %s%n", second, ops - lastOps,
+                    LatencyHistogram.format(recent.percentile(99)));
+            recent.reset();
+            lastOps = ops;
+            if (second == warmup) {
+                System.out.println("🔥 Warmed up, measuring");
+                changes.reset();
+                readings.reset();
+                errors.reset();
+                latency.reset();
+                service.reset();
+                gcBefore = Gc.now();
+                measuredFrom = System.nanoTime();
+                lastOps = 0;
+            }
+        }
+
+        running = false;
+        long elapsed = System.nanoTime() - measuredFrom;
+        if (scheduler != null) scheduler.close();
+        if (pool != null) {
+            pool.shutdown();
+            pool.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+        return new Report(fleet.size(), target, elapsed, changes.sum(), readings.sum(), errors.sum(),
+                latency, service, gcBefore, Gc.now());
+    }
+
+    // One simulated device: its own random stream and when its next reading and change are due
+    private class Simulated implements Runnable {
+        final SmartDevice device;
+        final SplittableRandom random;
+        final long readingNanos;
+        long nextReading;
+        long nextChange;
+        AutomationScheduler scheduler;
+        double reading;
+
+        Simulated(SmartDevice device, SplittableRandom random) {
+            this.device = device;
+            this.random = random;
+            this.readingNanos = telemetryRate > 0 ? (long) (1e9 / telemetryRate) : Long.MAX_VALUE / 4;
+            this.reading = device instanceof SmartThermostat ? ((SmartThermostat) device).getTemperature() : 0;
+        }
+
+        // Spreads the first readings over one period so the fleet does not report in lockstep
+        void start(long startNanos) {
+            nextReading = startNanos + (long) (random.nextDouble() * Math.min(readingNanos, 1_000_000_000L));
+            nextChange = startNanos + untilNextChange();
+        }
+
+        long due() { return Math.min(nextReading, nextChange); }
+
+        void arm(AutomationScheduler scheduler) {
+            this.scheduler = scheduler;
+            scheduler.schedule(this, due() - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        // Scheduled mode: act, then re-arm for the next due time
+        @Override
+        public void run() {
+            if (!running) return;
+            act();
+            if (!running) return;
+            try {
+                scheduler.schedule(this, due() - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (IllegalStateException closed) {
+                // the run ended between the check and the re-arm
+            }
+        }
+
+        // Thread mode: sleep until due, act, repeat
+        void loop() {
+            try {
+                while (running) {
+                    long wait = due() - System.nanoTime();
+                    if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+                    if (running) act();
+                }
+            } catch (InterruptedException e) {
+                // stopped
+            }
+        }
+
+        private void act() {
+            long due = due();
+            boolean isChange = nextChange <= nextReading;
+            long began = System.nanoTime();
+            try {
+                if (isChange) {
+                    change();
+                    changes.increment();
+                } else {
+                    record();
+                    readings.increment();
+                }
+            } catch (RuntimeException e) {
+                errors.increment();
+            }
+            long finished = System.nanoTime();
+            service.record(finished - began);
+            latency.record(finished - due);
+            recent.record(finished - due);
+            if (isChange) nextChange += untilNextChange();
+            else nextReading += readingNanos;
+            // Far behind (a GC pause or an overloaded box): skip missed actions rather than burst
+            long behind = finished - TimeUnit.SECONDS.toNanos(1);
+            if (nextReading < behind) nextReading = finished;
+            if (nextChange < behind) nextChange = finished;
+        }
+
+        // Exponentially distributed gaps make state changes a Poisson process
+        private long untilNextChange() {
+            if (changeRate <= 0) return Long.MAX_VALUE / 4;
+            return (long) (-Math.log(1 - random.nextDouble()) / changeRate * 1e9);
+        }
+
+        private void change() {
+            int choice = random.nextInt(4);
+            if (choice == 0) {
+                if (device.isOn()) device.turnOff(); else device.turnOn();
+            } else if (device instanceof SmartLight) {
+                SmartLight light = (SmartLight) device;
+                if (choice == 3) light.setColor(COLORS[random.nextInt(COLORS.length)]);
+                else light.setBrightness(random.nextInt(101));
+            } else if (device instanceof SmartThermostat) {
+                SmartThermostat thermostat = (SmartThermostat) device;
+                if (choice == 3) thermostat.setMode(MODES[random.nextInt(MODES.length)]);
+                else thermostat.setTemperature(16 + random.nextInt(100) / 10.0);
+            } else if (device instanceof SmartSecurity) {
+                SmartSecurity security = (SmartSecurity) device;
+                if (choice == 3) security.setSecurityLevel(LEVELS[random.nextInt(LEVELS.length)]);
+                else if (security.isArmed()) security.disarmSystem();
+                else security.armSystem();
+            }
+        }
+
+        // Lights report their power draw, thermostats a room temperature drifting towards the
+        // target, security devices 1 for motion
+        private void record() {
+            long now = System.currentTimeMillis();
+            if (device instanceof SmartLight) {
+                telemetry.record(device, TelemetryStore.Metric.POWER, now, device.getPowerWatts());
+            } else if (device instanceof SmartThermostat) {
+                double target = ((SmartThermostat) device).getTemperature();
+                reading += (target - reading) * 0.05 + (random.nextDouble() - 0.5) * 0.1;
+                telemetry.record(device, TelemetryStore.Metric.TEMPERATURE, now, reading);
+            } else {
+                telemetry.record(device, TelemetryStore.Metric.MOTION, now, random.nextInt(20) == 0 ? 1 : 0);
+            }
+        }
+    }
+
+    // Thread.ofVirtual().factory() when the runtime has it, else null
+    static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    // Collection counts and times summed over all collectors
+    private static final class Gc {
+        final long count, millis;
+
+        Gc(long count, long millis) {
+            this.count = count;
+            this.millis = millis;
+        }
+
+        static Gc now() {
+            long count = 0, millis = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                count += Math.max(0, gc.getCollectionCount());
+                millis += Math.max(0, gc.getCollectionTime());
+            }
+            return new Gc(count, millis);
+        }
+    }
+
+    public static final class Report {
+        public final int devices;
+        public final long targetOpsPerSecond;
+        public final long elapsedNanos;
+        public final long changes, readings, errors;
+        public final LatencyHistogram latency, service;
+        public final long gcCount, gcMillis;
+
+        Report(int devices, long target, long elapsedNanos, long changes, long readings, long errors,
+               LatencyHistogram latency, LatencyHistogram service, Gc before, Gc after) {
+            this.devices = devices;
+            this.targetOpsPerSecond = target;
+            this.elapsedNanos = elapsedNanos;
+            this.changes = changes;
+            this.readings = readings;
+            this.errors = errors;
+            this.latency = latency;
+            this.service = service;
+            this.gcCount = after.count - before.count;
+            this.gcMillis = after.millis - before.millis;
+        }
+
+        public double opsPerSecond() { return (changes + readings) / (elapsedNanos / 1e9); }
+
+        @Override
+        public String toString() {
+            double seconds = elapsedNanos / 1e9;
+            return String.format("📊 %,d devices for %.1f s: %,.0f ops/s of %,d target (%.0f%%)%n"
+                            + "   %,d state changes, %,d telemetry readings, %,d errors%n"
+                            + "   latency %s%n"
+                            + "   service %s%n"
+                            + "   GC: %d collections, %,d ms (%.2f%% of run time)",
+                    devices, seconds, opsPerSecond(), targetOpsPerSecond,
+                    100.0 * opsPerSecond() / Math.max(1, targetOpsPerSecond),
+                    changes, readings, errors, latency.summary(), service.summary(),
+                    gcCount, gcMillis, 100.0 * gcMillis / (seconds * 1000));
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        long seconds = args.length > 1 ? Long.parseLong(args[1]) : 10;
+        Mode mode = Mode.valueOf(System.getProperty("sim.mode", "scheduled").toUpperCase(Locale.ROOT));
+        EventLog.global().setLevel(EventLog.Level.WARN);
+
+        DeviceRegistry registry = new DeviceRegistry();
+        int rooms = Math.max(1, count / 20);
+        for (int i = 0; i < count; i++) {
+            String room = "Room " + (i % rooms);
+            switch (i % 3) {
+                case 0: registry.add(new SmartLight("Light " + i, room)); break;
+                case 1: registry.add(new SmartThermostat("Thermostat " + i, room)); break;
+                default: registry.add(new SmartSecurity("Sensor " + i, room));
+            }
+        }
+        // Stand-ins for UI views following the bus
+        ExecutorService consumers = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "sim-subscriber");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<DeviceEventBus.Subscription> subscriptions = new ArrayList<>();
+        for (int i = 0; i < Integer.getInteger("sim.subscribers", 1); i++) {
+            subscriptions.add(registry.events().subscribe("subscriber-" + i, 65_536,
+                    DeviceEventBus.Policy.DROP, consumers, event -> { }));
+        }
+
+        FleetSimulator simulator = fromSystemProperties(registry).addRegistryDevices();
+        TelemetryStore store = null;
+        if (Boolean.parseBoolean(System.getProperty("sim.telemetry", "true"))) {
+            store = TelemetryStore.fromSystemProperties();
+            subscriptions.add(store.follow(registry));
+            simulator.setTelemetrySink(store::record);
+        }
+        EnergyMonitor energy = Boolean.parseBoolean(System.getProperty("sim.energy", "true"))
+                ? EnergyMonitor.follow(registry) : null;
+        Report report = simulator.run(mode, Long.getLong("sim.warmup", 2), seconds);
+        System.out.println(report);
+        for (DeviceEventBus.Subscription subscription : subscriptions) {
+            System.out.println("   " + subscription.stats());
+        }
+        if (store != null) System.out.println("   " + store.stats());
+        if (energy != null) {
+            System.out.printf("   ⚡ Home power: %,.1f W now, %,.1f W over the last minute, %.3f kWh%n",
+                    energy.homeWatts(), energy.homeAverageWatts(EnergyMonitor.Window.MINUTE),
+                    energy.homeKilowattHours());
+            energy.close();
+        }
+        EventLog.global().flush();
+    }
+}
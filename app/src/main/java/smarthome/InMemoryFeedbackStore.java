@@ -0,0 +1,56 @@
+package smarthome;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Feedback kept in a concurrent skip list ordered by (createdAt, id). Reads never block
+// writes, pages are a sub-set walk from the cursor, and nothing survives a restart.
+public class InMemoryFeedbackStore implements FeedbackStore {
+    static final Comparator<FeedbackEntry> ORDER = Comparator
+            .comparing(FeedbackEntry::getCreatedAt)
+            .thenComparingLong(FeedbackEntry::getId);
+
+    private final ConcurrentSkipListSet<FeedbackEntry> entries = new ConcurrentSkipListSet<>(ORDER);
+    private final AtomicLong lastId = new AtomicLong();
+
+    @Override
+    public void save(String name, String feedback) {
+        entries.add(new FeedbackEntry(lastId.incrementAndGet(), name, feedback, LocalDateTime.now()));
+    }
+
+    @Override
+    public void saveBatch(List<FeedbackIngestor.Submission> batch) {
+        LocalDateTime now = LocalDateTime.now();
+        for (FeedbackIngestor.Submission submission : batch) {
+            entries.add(new FeedbackEntry(lastId.incrementAndGet(), submission.name, submission.feedback, now));
+        }
+    }
+
+    @Override
+    public List<FeedbackEntry> olderThan(FeedbackEntry before, int limit) {
+        NavigableSet<FeedbackEntry> older = before == null ? entries : entries.headSet(before, false);
+        return take(older.descendingIterator(), limit);
+    }
+
+    @Override
+    public List<FeedbackEntry> newerThan(FeedbackEntry after, int limit) {
+        List<FeedbackEntry> page = take(entries.tailSet(after, false).iterator(), limit);
+        Collections.reverse(page);
+        return page;
+    }
+
+    @Override
+    public long count() {
+        return entries.size();
+    }
+
+    private static List<FeedbackEntry> take(Iterator<FeedbackEntry> it, int limit) {
+        List<FeedbackEntry> page = new ArrayList<>(limit);
+        while (page.size() < limit && it.hasNext()) {
+            page.add(it.next());
+        }
+        return page;
+    }
+}
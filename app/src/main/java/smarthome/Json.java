@@ -0,0 +1,208 @@
+package smarthome;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Just enough JSON for the dashboard API: compact writing helpers, and a parser for request
+// bodies that yields Map (objects), List (arrays), String, Double, Boolean and null.
+final class Json {
+    private static final int MAX_DEPTH = 32;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final String text;
+    private int at;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    // Throws IllegalArgumentException, with the offset, on anything that is not one JSON value
+    static Object parse(String text) {
+        Json parser = new Json(text);
+        Object value = parser.value(0);
+        parser.skipSpace();
+        if (parser.at != text.length()) throw parser.error("Trailing characters");
+        return value;
+    }
+
+    static StringBuilder quote(StringBuilder out, String value) {
+        if (value == null) return out.append("null");
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20 || c == 0x2028 || c == 0x2029) {
+                        out.append("\\u").append(HEX[c >> 12 & 0xf]).append(HEX[c >> 8 & 0xf])
+                                .append(HEX[c >> 4 & 0xf]).append(HEX[c & 0xf]);
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        return out.append('"');
+    }
+
+    // Whole numbers without a fraction, others with at most one decimal (sensor resolution)
+    static StringBuilder number(StringBuilder out, double value) {
+        if (!Double.isFinite(value)) return out.append("null");
+        long tenths = Math.round(value * 10);
+        if (tenths % 10 == 0) return out.append(tenths / 10);
+        if (tenths < 0) {
+            out.append('-');
+            tenths = -tenths;
+        }
+        return out.append(tenths / 10).append('.').append(tenths % 10);
+    }
+
+    private Object value(int depth) {
+        if (depth > MAX_DEPTH) throw error("Nested too deeply");
+        skipSpace();
+        if (at >= text.length()) throw error("Unexpected end");
+        char c = text.charAt(at);
+        switch (c) {
+            case '{': return object(depth);
+            case '[': return array(depth);
+            case '"': return string();
+            case 't': return literal("true", Boolean.TRUE);
+            case 'f': return literal("false", Boolean.FALSE);
+            case 'n': return literal("null", null);
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) return number();
+                throw error("Unexpected '" + c + "'");
+        }
+    }
+
+    private Map<String, Object> object(int depth) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        at++;
+        skipSpace();
+        if (peek() == '}') {
+            at++;
+            return result;
+        }
+        while (true) {
+            skipSpace();
+            if (peek() != '"') throw error("Expected a key");
+            String key = string();
+            skipSpace();
+            expect(':');
+            result.put(key, value(depth + 1));
+            skipSpace();
+            if (peek() == ',') {
+                at++;
+            } else {
+                expect('}');
+                return result;
+            }
+        }
+    }
+
+    private List<Object> array(int depth) {
+        List<Object> result = new ArrayList<>();
+        at++;
+        skipSpace();
+        if (peek() == ']') {
+            at++;
+            return result;
+        }
+        while (true) {
+            result.add(value(depth + 1));
+            skipSpace();
+            if (peek() == ',') {
+                at++;
+            } else {
+                expect(']');
+                return result;
+            }
+        }
+    }
+
+    private String string() {
+        at++;
+        StringBuilder out = null;
+        int start = at;
+        while (at < text.length()) {
+            char c = text.charAt(at);
+            if (c == '"') {
+                String tail = text.substring(start, at++);
+                return out == null ? tail : out.append(tail).toString();
+            }
+            if (c < 0x20) throw error("Control character in string");
+            if (c != '\\') {
+                at++;
+                continue;
+            }
+            if (out == null) out = new StringBuilder();
+            out.append(text, start, at);
+            if (++at >= text.length()) break;
+            char escaped = text.charAt(at++);
+            switch (escaped) {
+                case '"': case '\\': case '/': out.append(escaped); break;
+                case 'b': out.append('\b'); break;
+                case 'f': out.append('\f'); break;
+                case 'n': out.append('\n'); break;
+                case 'r': out.append('\r'); break;
+                case 't': out.append('\t'); break;
+                case 'u':
+                    if (at + 4 > text.length()) throw error("Bad \\u escape");
+                    try {
+                        out.append((char) Integer.parseInt(text.substring(at, at + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Bad \\u escape");
+                    }
+                    at += 4;
+                    break;
+                default: throw error("Bad escape");
+            }
+            start = at;
+        }
+        throw error("Unterminated string");
+    }
+
+    private Double number() {
+        int start = at;
+        if (peek() == '-') at++;
+        while (at < text.length() && "0123456789.eE+-".indexOf(text.charAt(at)) >= 0) at++;
+        try {
+            return Double.valueOf(text.substring(start, at));
+        } catch (NumberFormatException e) {
+            at = start;
+            throw error("Bad number");
+        }
+    }
+
+    private Object literal(String word, Object value) {
+        if (!text.startsWith(word, at)) throw error("Unexpected token");
+        at += word.length();
+        return value;
+    }
+
+    private void expect(char c) {
+        if (peek() != c) throw error("Expected '" + c + "'");
+        at++;
+    }
+
+    private char peek() {
+        return at < text.length() ? text.charAt(at) : '\0';
+    }
+
+    private void skipSpace() {
+        while (at < text.length()) {
+            char c = text.charAt(at);
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') return;
+            at++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at offset " + at);
+    }
+}
@@ -0,0 +1,79 @@
+package smarthome;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Log-linear histogram of nanosecond latencies, safe to record into from any thread.
+// Values are bucketed by power of two and then split into 16 linear steps, so every
+// reported percentile is within about 6% of the true value from 1 ns up to minutes, in
+// a fixed 8 KB of counters and with one atomic increment per record.
+public class LatencyHistogram {
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(index(nanos));
+        total.increment();
+        max.accumulate(nanos);
+    }
+
+    public long count() { return total.sum(); }
+    public long max() { return max.get(); }
+
+    // Upper bound of the bucket holding the given percentile (0-100), or 0 if empty
+    public long percentile(double percentile) {
+        long count = count();
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(upperBound(i), max());
+        }
+        return max();
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        total.reset();
+        max.reset();
+    }
+
+    // "p50 1.2 ms, p99 ..." for reports
+    public String summary() {
+        return String.format("p50 %s, p90 %s, p99 %s, p99.9 %s, max %s",
+                format(percentile(50)), format(percentile(90)), format(percentile(99)),
+                format(percentile(99.9)), format(max()));
+    }
+
+    public static String format(long nanos) {
+        if (nanos < 10_000) return nanos + " ns";
+        if (nanos < 10_000_000) return String.format("%.1f µs", nanos / 1e3);
+        if (nanos < 10_000_000_000L) return String.format("%.1f ms", nanos / 1e6);
+        return String.format("%.1f s", nanos / 1e9);
+    }
+
+    // Values below 16 get exact buckets; above, the top bit picks the row, the next 4 bits the column
+    private static int index(long nanos) {
+        if (nanos < SUB_BUCKETS) return (int) nanos;
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = index % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BITS);
+        return (1L << exponent) + (sub + 1) * width - 1;
+    }
+}
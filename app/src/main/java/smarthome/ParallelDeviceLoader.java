@@ -0,0 +1,213 @@
+package smarthome;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Parallel loader for the colon-delimited "Type:name:room:isOn" device file.
+//
+// The file is cut into byte ranges that end on line boundaries, each range is memory-mapped
+// and parsed on a fork-join pool, and the per-range results are concatenated in range order,
+// so devices come back in file order. Lines are scanned byte by byte: no readLine, no split,
+// no regex. The only allocations per line are the device and its name; room strings are
+// deduplicated through a small per-range cache.
+//
+// Accepts exactly what the old BufferedReader + split(":") loader accepted: four fields
+// once trailing empty ones are dropped, and a known type. Anything else is skipped.
+public class ParallelDeviceLoader {
+    private static final int MIN_CHUNK_BYTES = 1 << 20;
+    private static final long MAX_CHUNK_BYTES = 1L << 30;
+
+    private static final byte[] LIGHT = "SmartLight".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] THERMOSTAT = "SmartThermostat".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SECURITY = "SmartSecurity".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+
+    public static List<SmartDevice> load(Path file) throws IOException {
+        return load(file, ForkJoinPool.commonPool());
+    }
+
+    public static List<SmartDevice> load(Path file, ForkJoinPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) return new ArrayList<>();
+
+            long[] bounds = chunkBounds(channel, size, pool.getParallelism());
+            List<Callable<List<SmartDevice>>> chunks = new ArrayList<>(bounds.length - 1);
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                long start = bounds[i];
+                long end = bounds[i + 1];
+                if (end > start) {
+                    MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                    chunks.add(() -> parse(buf));
+                }
+            }
+
+            List<List<SmartDevice>> parts = new ArrayList<>(chunks.size());
+            int total = 0;
+            for (Future<List<SmartDevice>> future : pool.invokeAll(chunks)) {
+                List<SmartDevice> part = future.get();
+                parts.add(part);
+                total += part.size();
+            }
+
+            List<SmartDevice> devices = new ArrayList<>(total);
+            for (List<SmartDevice> part : parts) {
+                devices.addAll(part);
+            }
+            return devices;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading " + file);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            throw new IOException("Failed to load " + file, cause);
+        }
+    }
+
+    // Chunk start offsets plus the file size; every offset but the first sits right after a '\n'
+    private static long[] chunkBounds(FileChannel channel, long size, int parallelism) throws IOException {
+        long target = Math.max(MIN_CHUNK_BYTES, size / Math.max(1, parallelism * 4));
+        target = Math.min(target, MAX_CHUNK_BYTES);
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long pos = target;
+        while (pos < size) {
+            long lineEnd = -1;
+            long at = pos;
+            while (lineEnd < 0 && at < size) {
+                probe.clear();
+                int read = channel.read(probe, at);
+                if (read <= 0) break;
+                for (int i = 0; i < read; i++) {
+                    if (probe.get(i) == '\n') {
+                        lineEnd = at + i + 1;
+                        break;
+                    }
+                }
+                at += read;
+            }
+            if (lineEnd < 0 || lineEnd >= size) break;
+            bounds.add(lineEnd);
+            pos = lineEnd + target;
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    private static List<SmartDevice> parse(ByteBuffer buf) {
+        List<SmartDevice> devices = new ArrayList<>(buf.limit() / 40);
+        RoomCache rooms = new RoomCache();
+        byte[] scratch = new byte[256];
+        int[] colons = new int[3];
+        int limit = buf.limit();
+        int lineStart = 0;
+
+        while (lineStart < limit) {
+            int count = 0;
+            int i = lineStart;
+            byte b = 0;
+            while (i < limit && (b = buf.get(i)) != '\n') {
+                if (b == ':') {
+                    if (count < 3) colons[count] = i;
+                    count++;
+                }
+                i++;
+            }
+            int lineEnd = i;
+            if (lineEnd > lineStart && buf.get(lineEnd - 1) == '\r') lineEnd--;
+            int next = i + 1;
+
+            // split(":") drops trailing empty fields, so trailing colons don't count
+            while (lineEnd > lineStart && buf.get(lineEnd - 1) == ':') {
+                lineEnd--;
+                count--;
+            }
+            if (count == 3) {
+                SmartDevice device = create(buf, lineStart, colons, scratch, rooms);
+                if (device != null) {
+                    device.applyOn(equalsIgnoreCase(buf, colons[2] + 1, lineEnd, TRUE));
+                    devices.add(device);
+                }
+            }
+            lineStart = next;
+        }
+        return devices;
+    }
+
+    private static SmartDevice create(ByteBuffer buf, int lineStart, int[] colons, byte[] scratch, RoomCache rooms) {
+        int typeEnd = colons[0];
+        byte[] type;
+        if (bytesEqual(buf, lineStart, typeEnd, LIGHT)) type = LIGHT;
+        else if (bytesEqual(buf, lineStart, typeEnd, THERMOSTAT)) type = THERMOSTAT;
+        else if (bytesEqual(buf, lineStart, typeEnd, SECURITY)) type = SECURITY;
+        else return null;
+
+        String name = decode(buf, colons[0] + 1, colons[1], scratch);
+        String room = rooms.get(buf, colons[1] + 1, colons[2], scratch);
+        if (type == LIGHT) return new SmartLight(name, room);
+        if (type == THERMOSTAT) return new SmartThermostat(name, room);
+        return new SmartSecurity(name, room);
+    }
+
+    private static String decode(ByteBuffer buf, int from, int to, byte[] scratch) {
+        int length = to - from;
+        if (length == 0) return "";
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        buf.get(from, bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static boolean bytesEqual(ByteBuffer buf, int from, int to, byte[] expected) {
+        if (to - from != expected.length) return false;
+        for (int i = 0; i < expected.length; i++) {
+            if (buf.get(from + i) != expected[i]) return false;
+        }
+        return true;
+    }
+
+    private static boolean equalsIgnoreCase(ByteBuffer buf, int from, int to, byte[] expected) {
+        if (to - from != expected.length) return false;
+        for (int i = 0; i < expected.length; i++) {
+            if ((buf.get(from + i) | 0x20) != expected[i]) return false;
+        }
+        return true;
+    }
+
+    // Direct-mapped cache from room bytes to a shared String; rooms repeat a lot
+    private static class RoomCache {
+        private static final int SLOTS = 256;
+        private final byte[][] keys = new byte[SLOTS][];
+        private final String[] values = new String[SLOTS];
+
+        String get(ByteBuffer buf, int from, int to, byte[] scratch) {
+            int length = to - from;
+            int hash = length;
+            for (int i = from; i < to; i++) {
+                hash = 31 * hash + buf.get(i);
+            }
+            int slot = (hash ^ (hash >>> 16)) & (SLOTS - 1);
+            byte[] key = keys[slot];
+            if (key != null && key.length == length && bytesEqual(buf, from, to, key)) {
+                return values[slot];
+            }
+            String value = decode(buf, from, to, scratch);
+            key = new byte[length];
+            buf.get(from, key, 0, length);
+            keys[slot] = key;
+            values[slot] = value;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package smarthome;
+
+import java.sql.*;
+import java.util.*;
+
+// The feedback table in PostgreSQL, reached through a ConnectionPool.
+public class PostgresFeedbackStore implements FeedbackStore {
+    private static final String URL = "jdbc:postgresql://localhost:5432/tryinglocal";
+    private static final String USER = "postgres";
+    private static final String PASSWORD = "tanmay";
+    private static final String INSERT_SQL = "INSERT INTO feedback (name, feedback) VALUES (?, ?)";
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM feedback";
+
+    // Keyset pages over (created_at, id); rows with a NULL created_at can't be positioned and are left out
+    private static final String NEWEST_SQL = "SELECT id, name, feedback, created_at FROM feedback"
+            + " WHERE created_at IS NOT NULL ORDER BY created_at DESC, id DESC LIMIT ?";
+    private static final String OLDER_SQL = "SELECT id, name, feedback, created_at FROM feedback"
+            + " WHERE (created_at, id) < (?, ?) ORDER BY created_at DESC, id DESC LIMIT ?";
+    private static final String NEWER_SQL = "SELECT id, name, feedback, created_at FROM feedback"
+            + " WHERE (created_at, id) > (?, ?) ORDER BY created_at, id LIMIT ?";
+
+    // Rows per round trip while a page streams in; the PostgreSQL driver only honours it inside a transaction
+    private final int fetchSize = Integer.getInteger("feedback.fetchSize", 100);
+
+    // Connections are opened lazily, so nothing touches the database until feedback is used
+    private final ConnectionPool pool;
+
+    public PostgresFeedbackStore() {
+        this(URL, USER, PASSWORD);
+    }
+
+    public PostgresFeedbackStore(String url, String user, String password) {
+        this.pool = new ConnectionPool(url, user, password, 4);
+    }
+
+    @Override
+    public void save(String name, String feedback) throws SQLException {
+        try (ConnectionPool.PooledConnection conn = pool.borrow()) {
+            try {
+                PreparedStatement pstmt = conn.prepare(INSERT_SQL);
+                pstmt.setString(1, name);
+                pstmt.setString(2, feedback);
+                pstmt.executeUpdate();
+            } catch (SQLException e) {
+                conn.checkError(e);
+                throw e;
+            }
+        }
+    }
+
+    // One transaction, one round trip for the whole batch
+    @Override
+    public void saveBatch(List<FeedbackIngestor.Submission> batch) throws SQLException {
+        try (ConnectionPool.PooledConnection conn = pool.borrow()) {
+            Connection raw = conn.raw();
+            try {
+                raw.setAutoCommit(false);
+                PreparedStatement pstmt = conn.prepare(INSERT_SQL);
+                for (FeedbackIngestor.Submission submission : batch) {
+                    pstmt.setString(1, submission.name);
+                    pstmt.setString(2, submission.feedback);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                raw.commit();
+            } catch (SQLException e) {
+                conn.checkError(e);
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public List<FeedbackEntry> olderThan(FeedbackEntry before, int limit) throws SQLException {
+        return before == null ? page(NEWEST_SQL, null, limit) : page(OLDER_SQL, before, limit);
+    }
+
+    @Override
+    public List<FeedbackEntry> newerThan(FeedbackEntry after, int limit) throws SQLException {
+        List<FeedbackEntry> entries = page(NEWER_SQL, after, limit);
+        Collections.reverse(entries);
+        return entries;
+    }
+
+    @Override
+    public long count() throws SQLException {
+        try (ConnectionPool.PooledConnection conn = pool.borrow()) {
+            try (ResultSet rs = conn.prepare(COUNT_SQL).executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            } catch (SQLException e) {
+                conn.checkError(e);
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    private List<FeedbackEntry> page(String sql, FeedbackEntry cursor, int limit) throws SQLException {
+        List<FeedbackEntry> entries = new ArrayList<>(limit);
+        try (ConnectionPool.PooledConnection conn = pool.borrow()) {
+            Connection raw = conn.raw();
+            try {
+                raw.setAutoCommit(false);
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setFetchSize(fetchSize);
+                int param = 1;
+                if (cursor != null) {
+                    pstmt.setTimestamp(param++, Timestamp.valueOf(cursor.getCreatedAt()));
+                    pstmt.setLong(param++, cursor.getId());
+                }
+                pstmt.setInt(param, limit);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        entries.add(new FeedbackEntry(rs.getLong(1), rs.getString(2), rs.getString(3),
+                                rs.getTimestamp(4).toLocalDateTime()));
+                    }
+                }
+                raw.commit();
+            } catch (SQLException e) {
+                conn.checkError(e);
+                throw e;
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,104 @@
+package smarthome;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+
+// Writes one structured line per event and rolls the file over by size:
+//   2026-01-01T12:00:00.123Z INFO BRIGHTNESS device="Desk Lamp" value=80 | 💡 Desk Lamp brightness set to 80%
+// When the file passes maxBytes it becomes file.1, file.1 becomes file.2 and so on,
+// keeping at most `keep` old files.
+class RollingFileSink implements EventSink {
+    private final Path path;
+    private final long maxBytes;
+    private final int keep;
+    private final StringBuilder record = new StringBuilder(256);
+    private Writer out;
+    private long size;
+
+    RollingFileSink(Path path, long maxBytes, int keep) throws IOException {
+        this.path = path;
+        this.maxBytes = maxBytes;
+        this.keep = Math.max(0, keep);
+        open();
+    }
+
+    @Override
+    public void write(EventLog.Event event, CharSequence line) {
+        if (out == null) return;
+        record.setLength(0);
+        record.append(Instant.ofEpochMilli(event.timeMillis())).append(' ')
+              .append(event.level()).append(' ')
+              .append(event.kind());
+        if (event.device() != null) {
+            record.append(" device=\"").append(event.device()).append('"');
+        }
+        switch (event.kind()) {
+            case BRIGHTNESS: record.append(" value=").append(event.number()); break;
+            case TEMPERATURE: record.append(" value=").append(event.decimal()); break;
+            case COLOR: case MODE: case SECURITY_LEVEL:
+                record.append(" value=\"").append(event.text()).append('"'); break;
+            default:
+        }
+        record.append(" | ").append(line).append('\n');
+        try {
+            out.append(record);
+            // Close enough for rotation; multi-byte characters make it a slight undercount
+            size += record.length();
+            if (size >= maxBytes) roll();
+        } catch (IOException e) {
+            System.out.println("❌ Log file write failed, file logging stopped: " + e.getMessage());
+            close();
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (out == null) return;
+        try {
+            out.flush();
+        } catch (IOException e) {
+            System.out.println("❌ Log file flush failed: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (out == null) return;
+        try {
+            out.close();
+        } catch (IOException e) {
+            System.out.println("❌ Log file close failed: " + e.getMessage());
+        }
+        out = null;
+    }
+
+    private void open() throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        size = Files.exists(path) ? Files.size(path) : 0;
+        out = new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND),
+                StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    private void roll() throws IOException {
+        out.close();
+        if (keep == 0) {
+            Files.deleteIfExists(path);
+        } else {
+            Files.deleteIfExists(rolled(keep));
+            for (int i = keep - 1; i >= 1; i--) {
+                Path from = rolled(i);
+                if (Files.exists(from)) Files.move(from, rolled(i + 1));
+            }
+            Files.move(path, rolled(1));
+        }
+        open();
+    }
+
+    private Path rolled(int index) {
+        return path.resolveSibling(path.getFileName() + "." + index);
+    }
+}
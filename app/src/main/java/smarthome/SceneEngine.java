@@ -0,0 +1,441 @@
+package smarthome;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Named scenes ("night", "morning", "away") applied as one batched, atomic operation.
+//
+// A scene is a list of steps, each a device selector plus the state to set. It is compiled
+// once into flat parallel arrays - device, operation, value - with the selectors resolved
+// through the registry's room/type/name indexes; compiled plans are dropped when devices
+// are added or removed. Applying a plan writes through the silent apply* hooks while
+// recording the old values, skips devices already in the wanted state, and only when every
+// write has succeeded reports the changes to the registry listeners (journal, device grid).
+// If a write throws, the already-applied writes are undone in reverse and nothing is reported.
+//
+// Scene file format (scenes.file, default scenes.txt; built-in scenes are used without one):
+//   [night]
+//   type=light; power=off
+//   type=security; power=on; armed=true
+//   room=Bedroom; type=light; power=on; brightness=10
+// Selectors: room, type (light/thermostat/security), name; none means every device.
+// Settings: power, brightness, color, temperature, mode, armed, level.
+public class SceneEngine implements DeviceListener {
+    private static final String DEFAULT_SCENES =
+        "[night]\n" +
+        "type=light; power=off\n" +
+        "type=security; power=on; armed=true\n" +
+        "[morning]\n" +
+        "type=security; armed=false\n" +
+        "type=light; power=on; brightness=80\n" +
+        "type=thermostat; power=on; temperature=21\n" +
+        "[away]\n" +
+        "type=light; power=off\n" +
+        "type=thermostat; temperature=16\n" +
+        "type=security; power=on; armed=true; level=High\n";
+
+    private static final byte POWER = 0, BRIGHTNESS = 1, COLOR = 2, TEMPERATURE = 3, MODE = 4, ARMED = 5, LEVEL = 6;
+    private static final DeviceProperty[] PROPERTIES = {
+        DeviceProperty.POWER, DeviceProperty.BRIGHTNESS, DeviceProperty.COLOR, DeviceProperty.TEMPERATURE,
+        DeviceProperty.MODE, DeviceProperty.ARMED, DeviceProperty.SECURITY_LEVEL
+    };
+
+    private final DeviceRegistry registry;
+    private final Map<String, Scene> scenes = new LinkedHashMap<>();
+
+    public SceneEngine(DeviceRegistry registry) {
+        this.registry = registry;
+        registry.addListener(this);
+    }
+
+    public static SceneEngine fromSystemProperties(DeviceRegistry registry) {
+        SceneEngine engine = new SceneEngine(registry);
+        Path file = Paths.get(System.getProperty("scenes.file", "scenes.txt"));
+        try {
+            if (Files.exists(file)) {
+                engine.define(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+                System.out.println("🎬 Loaded " + engine.names().size() + " scenes from " + file);
+                return engine;
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("❌ Could not load scenes from " + file + ": " + e.getMessage());
+        }
+        engine.define(DEFAULT_SCENES);
+        return engine;
+    }
+
+    // Adds or replaces the scenes in the given text
+    public void define(String text) {
+        Scene scene = null;
+        int lineNo = 0;
+        for (String raw : text.split("\\R")) {
+            lineNo++;
+            String line = raw.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            if (line.startsWith("[") && line.endsWith("]")) {
+                scene = new Scene(line.substring(1, line.length() - 1).trim());
+                scenes.put(key(scene.name), scene);
+                continue;
+            }
+            if (scene == null) {
+                throw new IllegalArgumentException("line " + lineNo + ": step before any [scene] header");
+            }
+            scene.steps.add(Step.parse(line, lineNo));
+        }
+    }
+
+    public List<String> names() {
+        List<String> names = new ArrayList<>();
+        for (Scene scene : scenes.values()) {
+            names.add(scene.name);
+        }
+        return names;
+    }
+
+    public boolean has(String name) {
+        return scenes.containsKey(key(name));
+    }
+
+    @Override
+    public void deviceAdded(SmartDevice device) { invalidate(); }
+
+    @Override
+    public void deviceRemoved(SmartDevice device) { invalidate(); }
+
+    private void invalidate() {
+        for (Scene scene : scenes.values()) {
+            scene.plan = null;
+        }
+    }
+
+    // Throws if the scene is unknown or a write fails. Scenes apply one at a time; the undo log
+    // records the values each write actually replaced, so a rollback stays exact even while
+    // other threads change the same devices.
+    public synchronized Result apply(String name) {
+        Scene scene = scenes.get(key(name));
+        if (scene == null) throw new IllegalArgumentException("Unknown scene: " + name);
+        long start = System.nanoTime();
+        Plan plan = scene.plan;
+        if (plan == null) plan = scene.plan = compile(scene);
+        int changes = plan.run();
+        long nanos = System.nanoTime() - start;
+        scene.runs++;
+        scene.totalNanos += nanos;
+        scene.maxNanos = Math.max(scene.maxNanos, nanos);
+        Result result = new Result(scene.name, plan.size, changes, nanos);
+        EventLog.global().message(EventLog.Level.INFO, result.toString());
+        return result;
+    }
+
+    // One line per scene: runs, average and worst time
+    public synchronized String stats() {
+        StringBuilder sb = new StringBuilder();
+        for (Scene scene : scenes.values()) {
+            sb.append("🎬 ").append(scene.name).append(": ").append(scene.runs).append(" runs");
+            if (scene.runs > 0) {
+                sb.append(String.format(", avg %.2f ms, max %.2f ms",
+                        scene.totalNanos / 1e6 / scene.runs, scene.maxNanos / 1e6));
+            }
+            if (scene.plan != null) sb.append(", ").append(scene.plan.size).append(" compiled actions");
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+
+    private Plan compile(Scene scene) {
+        Plan plan = new Plan();
+        for (Step step : scene.steps) {
+            for (SmartDevice device : step.candidates(registry)) {
+                if (!step.matches(device)) continue;
+                for (int i = 0; i < step.ops.length; i++) {
+                    if (supports(device, step.ops[i])) plan.add(device, step.ops[i], step.numbers[i], step.texts[i]);
+                }
+            }
+        }
+        return plan;
+    }
+
+    private static boolean supports(SmartDevice device, byte op) {
+        switch (op) {
+            case POWER: return true;
+            case BRIGHTNESS: case COLOR: return device instanceof SmartLight;
+            case TEMPERATURE: case MODE: return device instanceof SmartThermostat;
+            default: return device instanceof SmartSecurity;
+        }
+    }
+
+    private static String key(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public static class Result {
+        public final String scene;
+        public final int actions;
+        public final int changes;
+        public final long nanos;
+
+        Result(String scene, int actions, int changes, long nanos) {
+            this.scene = scene;
+            this.actions = actions;
+            this.changes = changes;
+            this.nanos = nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("🎬 Scene '%s': %d changes (%d actions) in %.2f ms", scene, changes, actions, nanos / 1e6);
+        }
+    }
+
+    private static class Scene {
+        final String name;
+        final List<Step> steps = new ArrayList<>();
+        volatile Plan plan; // dropped by registry listeners on any thread
+        long runs, totalNanos, maxNanos;
+
+        Scene(String name) {
+            this.name = name;
+        }
+    }
+
+    // "room=Bedroom; type=light; power=on; brightness=10"
+    private static class Step {
+        String room, name;
+        Class<? extends SmartDevice> type;
+        byte[] ops = new byte[0];
+        double[] numbers = new double[0];
+        String[] texts = new String[0];
+
+        static Step parse(String line, int lineNo) {
+            Step step = new Step();
+            for (String part : line.split(";")) {
+                if (part.isBlank()) continue;
+                int eq = part.indexOf('=');
+                if (eq < 0) throw new IllegalArgumentException("line " + lineNo + ": expected key=value in '" + part.trim() + "'");
+                String key = part.substring(0, eq).trim().toLowerCase(Locale.ROOT);
+                String value = part.substring(eq + 1).trim();
+                switch (key) {
+                    case "room": step.room = value; break;
+                    case "name": step.name = value; break;
+                    case "type": step.type = type(value, lineNo); break;
+                    case "power": step.add(POWER, bool(value, "on", "off", lineNo), null); break;
+                    case "brightness": step.add(BRIGHTNESS, number(value, 0, 100, lineNo), null); break;
+                    case "color": step.add(COLOR, 0, value); break;
+                    case "temperature": step.add(TEMPERATURE, number(value, SmartThermostat.MIN_TEMPERATURE, SmartThermostat.MAX_TEMPERATURE, lineNo), null); break;
+                    case "mode": step.add(MODE, 0, value); break;
+                    case "armed": step.add(ARMED, bool(value, "true", "false", lineNo), null); break;
+                    case "level": step.add(LEVEL, 0, value); break;
+                    default: throw new IllegalArgumentException("line " + lineNo + ": unknown key '" + key + "'");
+                }
+            }
+            if (step.ops.length == 0) throw new IllegalArgumentException("line " + lineNo + ": step sets nothing");
+            return step;
+        }
+
+        void add(byte op, double number, String text) {
+            int n = ops.length;
+            ops = Arrays.copyOf(ops, n + 1);
+            numbers = Arrays.copyOf(numbers, n + 1);
+            texts = Arrays.copyOf(texts, n + 1);
+            ops[n] = op;
+            numbers[n] = number;
+            texts[n] = text;
+        }
+
+        // The smallest registry index that covers the selector
+        Iterable<SmartDevice> candidates(DeviceRegistry registry) {
+            if (name != null) return registry.named(name);
+            if (room != null) return registry.inRoom(room);
+            if (type != null) {
+                @SuppressWarnings("unchecked")
+                Collection<SmartDevice> found = (Collection<SmartDevice>) registry.ofType(type);
+                return found;
+            }
+            return registry;
+        }
+
+        boolean matches(SmartDevice device) {
+            if (name != null && !name.equalsIgnoreCase(device.getName())) return false;
+            if (room != null && !room.equalsIgnoreCase(device.getRoom())) return false;
+            return type == null || type.isInstance(device);
+        }
+
+        private static Class<? extends SmartDevice> type(String value, int lineNo) {
+            switch (value.toLowerCase(Locale.ROOT)) {
+                case "light": return SmartLight.class;
+                case "thermostat": return SmartThermostat.class;
+                case "security": return SmartSecurity.class;
+                default: throw new IllegalArgumentException("line " + lineNo + ": unknown device type '" + value + "'");
+            }
+        }
+
+        private static double bool(String value, String yes, String no, int lineNo) {
+            if (value.equalsIgnoreCase(yes)) return 1;
+            if (value.equalsIgnoreCase(no)) return 0;
+            throw new IllegalArgumentException("line " + lineNo + ": expected " + yes + " or " + no + ", got '" + value + "'");
+        }
+
+        private static double number(String value, double min, double max, int lineNo) {
+            try {
+                double number = Double.parseDouble(value);
+                if (number >= min && number <= max) return number;
+            } catch (NumberFormatException e) {
+                // reported below
+            }
+            throw new IllegalArgumentException("line " + lineNo + ": expected a number from " + min + " to " + max + ", got '" + value + "'");
+        }
+    }
+
+    // A compiled scene: one entry per (device, setting), plus room for its undo log
+    private static class Plan {
+        SmartDevice[] devices = new SmartDevice[16];
+        byte[] ops = new byte[16];
+        double[] numbers = new double[16];
+        String[] texts = new String[16];
+        double[] oldNumbers = new double[0];
+        String[] oldTexts = new String[0];
+        boolean[] changed = new boolean[0];
+        int size;
+
+        void add(SmartDevice device, byte op, double number, String text) {
+            if (size == devices.length) {
+                int grown = size * 2;
+                devices = Arrays.copyOf(devices, grown);
+                ops = Arrays.copyOf(ops, grown);
+                numbers = Arrays.copyOf(numbers, grown);
+                texts = Arrays.copyOf(texts, grown);
+            }
+            devices[size] = device;
+            ops[size] = op;
+            numbers[size] = number;
+            texts[size++] = text;
+        }
+
+        // Applies every entry or none; returns how many actually changed something
+        int run() {
+            if (changed.length < size) {
+                oldNumbers = new double[size];
+                oldTexts = new String[size];
+                changed = new boolean[size];
+            }
+            int i = 0;
+            int changes = 0;
+            try {
+                for (; i < size; i++) {
+                    changed[i] = write(i);
+                    if (changed[i]) changes++;
+                }
+            } catch (RuntimeException e) {
+                for (int j = i - 1; j >= 0; j--) {
+                    if (changed[j]) restore(j);
+                }
+                throw new IllegalStateException("Scene rolled back after " + i + " of " + size
+                        + " actions: " + e.getMessage(), e);
+            }
+            // Every write went through; now tell the listeners, once per changed setting. Each
+            // report holds the device's monitor, like a setter, and carries the value the device
+            // has now, so a setter that got in after the write is never followed by a stale event
+            for (int k = 0; k < size; k++) {
+                if (changed[k]) {
+                    SmartDevice device = devices[k];
+                    synchronized (device) {
+                        device.changed(PROPERTIES[ops[k]], value(ops[k], oldNumbers[k], oldTexts[k]), current(k));
+                    }
+                }
+            }
+            return changes;
+        }
+
+        // The entry's property as the device holds it now, boxed like value()
+        private Object current(int i) {
+            SmartDevice device = devices[i];
+            switch (ops[i]) {
+                case POWER: return device.isOn();
+                case BRIGHTNESS: return ((SmartLight) device).getBrightness();
+                case COLOR: return ((SmartLight) device).getColor();
+                case TEMPERATURE: return ((SmartThermostat) device).getTemperature();
+                case MODE: return ((SmartThermostat) device).getMode();
+                case ARMED: return ((SmartSecurity) device).isArmed();
+                default: return ((SmartSecurity) device).getSecurityLevel();
+            }
+        }
+
+        // An entry's value boxed the way DeviceEvent carries it
+        private static Object value(byte op, double number, String text) {
+            switch (op) {
+                case POWER: case ARMED: return number != 0;
+                case BRIGHTNESS: return (int) number;
+                case TEMPERATURE: return number;
+                default: return text;
+            }
+        }
+
+        private boolean write(int i) {
+            SmartDevice device = devices[i];
+            double number = numbers[i];
+            String text = texts[i];
+            switch (ops[i]) {
+                case POWER: {
+                    boolean on = number != 0;
+                    if (device.isOn() == on) return false;
+                    boolean before = device.applyOn(on);
+                    oldNumbers[i] = before ? 1 : 0;
+                    return before != on;
+                }
+                case BRIGHTNESS: {
+                    SmartLight light = (SmartLight) device;
+                    if (light.getBrightness() == (int) number) return false;
+                    oldNumbers[i] = light.applyBrightness((int) number);
+                    return oldNumbers[i] != (int) number;
+                }
+                case COLOR: {
+                    SmartLight light = (SmartLight) device;
+                    if (text.equals(light.getColor())) return false;
+                    oldTexts[i] = light.applyColor(text);
+                    return !text.equals(oldTexts[i]);
+                }
+                case TEMPERATURE: {
+                    SmartThermostat thermostat = (SmartThermostat) device;
+                    if (thermostat.getTemperature() == number) return false;
+                    oldNumbers[i] = thermostat.applyTemperature(number);
+                    return oldNumbers[i] != number;
+                }
+                case MODE: {
+                    SmartThermostat thermostat = (SmartThermostat) device;
+                    if (text.equals(thermostat.getMode())) return false;
+                    oldTexts[i] = thermostat.applyMode(text);
+                    return !text.equals(oldTexts[i]);
+                }
+                case ARMED: {
+                    SmartSecurity security = (SmartSecurity) device;
+                    boolean armed = number != 0;
+                    if (security.isArmed() == armed) return false;
+                    boolean before = security.applyArmed(armed);
+                    oldNumbers[i] = before ? 1 : 0;
+                    return before != armed;
+                }
+                default: {
+                    SmartSecurity security = (SmartSecurity) device;
+                    if (text.equals(security.getSecurityLevel())) return false;
+                    oldTexts[i] = security.applySecurityLevel(text);
+                    return !text.equals(oldTexts[i]);
+                }
+            }
+        }
+
+        private void restore(int i) {
+            SmartDevice device = devices[i];
+            switch (ops[i]) {
+                case POWER: device.applyOn(oldNumbers[i] != 0); break;
+                case BRIGHTNESS: ((SmartLight) device).applyBrightness((int) oldNumbers[i]); break;
+                case COLOR: ((SmartLight) device).applyColor(oldTexts[i]); break;
+                case TEMPERATURE: ((SmartThermostat) device).applyTemperature(oldNumbers[i]); break;
+                case MODE: ((SmartThermostat) device).applyMode(oldTexts[i]); break;
+                case ARMED: ((SmartSecurity) device).applyArmed(oldNumbers[i] != 0); break;
+                default: ((SmartSecurity) device).applySecurityLevel(oldTexts[i]);
+            }
+        }
+    }
+}
@@ -1,3 +1,5 @@
+package smarthome;
+
 import java.sql.*;
 
 public class SimpleDBTest {
@@ -0,0 +1,91 @@
+package smarthome;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// Smart Device base class, shared by the console and JavaFX front-ends.
+// State writes go through the protected apply* hooks so DeviceStateStore views
+// can keep the state in their columns instead of in these fields.
+// Public setters also report the change to the registry the device belongs to.
+//
+// SmartLight, SmartThermostat and SmartSecurity are safe to use from several threads, and
+// reads never lock. The on/armed flags and a light's brightness are packed into one state
+// word updated by compare-and-set, and the other attributes are swapped atomically, so every
+// apply* hook returns exactly the value it replaced: concurrent setters each report a correct
+// before/after pair and readers never see a torn value. A public setter holds the device's
+// monitor from its write until the change is reported, so one device's changes reach the
+// listeners and the event bus, and get their sequence numbers, in the order they were made.
+// DeviceStateStore views are not thread-safe: their hooks write the store's plain columns,
+// which have a single writer.
+abstract class SmartDevice {
+    static final long ON = 1L;
+    static final long ARMED = 1L << 1;
+    static final long VALUE = 0xFFFF_FFFF_0000_0000L; // brightness, upper 32 bits
+
+    private static final VarHandle STATE;
+    static {
+        try {
+            STATE = MethodHandles.lookup().findVarHandle(SmartDevice.class, "state", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    protected final String name;
+    protected final String room;
+    protected int id;               // assigned by DeviceRegistry, 0 = not registered yet
+    volatile DeviceRegistry registry;
+    private volatile long state;
+    
+    public SmartDevice(String name, String room) {
+        this.name = name;
+        this.room = room;
+    }
+    
+    public void turnOn() { 
+        synchronized (this) {
+            boolean before = applyOn(true); 
+            changed(DeviceProperty.POWER, before, true);
+        }
+        EventLog.info(EventLog.Kind.POWER_ON, getName());
+    }
+    
+    public void turnOff() { 
+        synchronized (this) {
+            boolean before = applyOn(false); 
+            changed(DeviceProperty.POWER, before, false);
+        }
+        EventLog.info(EventLog.Kind.POWER_OFF, getName());
+    }
+    
+    // Returns the previous power state
+    protected boolean applyOn(boolean on) { return (updateState(ON, on ? ON : 0) & ON) != 0; }
+    
+    // Replaces the bits under mask and returns the whole previous word
+    final long updateState(long mask, long bits) {
+        long prev;
+        do {
+            prev = state;
+        } while (!STATE.weakCompareAndSet(this, prev, (prev & ~mask) | (bits & mask)));
+        return prev;
+    }
+
+    final long state() { return state; }
+    
+    // before/after are the property's old and new values, passed on to event bus subscribers
+    protected void changed(DeviceProperty property, Object before, Object after) {
+        DeviceRegistry registry = this.registry;
+        if (registry != null) registry.fireChanged(this, property, before, after);
+    }
+    
+    public abstract String getStatus();
+    public abstract String getType();
+    // Current draw in watts, from the device's state; matches the dashboard's per-device power
+    public abstract double getPowerWatts();
+    
+    // Getters
+    public int getId() { return id; }
+    public String getName() { return name; }
+    public String getRoom() { return room; }
+    public boolean isOn() { return (state & ON) != 0; }
+}
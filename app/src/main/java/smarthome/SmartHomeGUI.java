@@ -1,10 +1,15 @@
+package smarthome;
+
 import java.io.*;
-import java.sql.*;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
@@ -14,20 +19,28 @@ import javafx.scene.text.FontWeight;
 import javafx.stage.Stage;
 
 // Simple Database Manager for Feedback
+// Backed by the FeedbackStore picked with -Dfeedback.store (PostgreSQL unless told otherwise)
 class FeedbackDB {
-    private static final String URL = "jdbc:postgresql://localhost:5432/tryinglocal";
-    private static final String USER = "postgres";
-    private static final String PASSWORD = "tanmay";
+    private static final FeedbackStore STORE = openStore();
+    private static final FeedbackIngestor INGESTOR = new FeedbackIngestor(FeedbackDB::saveFeedbackBatch);
+    
+    // Pages served from memory for feedback.cacheTtlMs; our own inserts drop the pages they land in
+    private static final FeedbackCache CACHE = new FeedbackCache(STORE::olderThan, STORE::newerThan,
+            Long.getLong("feedback.cacheTtlMs", 30_000), 256);
+    
+    private static FeedbackStore openStore() {
+        try {
+            return FeedbackStore.fromSystemProperties();
+        } catch (IOException | RuntimeException e) {
+            System.out.println("❌ Could not open feedback store, keeping feedback in memory: " + e.getMessage());
+            return new InMemoryFeedbackStore();
+        }
+    }
     
     public static boolean saveFeedback(String name, String feedback) {
         try {
-            Connection conn = DriverManager.getConnection(URL, USER, PASSWORD);
-            String sql = "INSERT INTO feedback (name, feedback) VALUES (?, ?)";
-            PreparedStatement pstmt = conn.prepareStatement(sql);
-            pstmt.setString(1, name);
-            pstmt.setString(2, feedback);
-            pstmt.executeUpdate();
-            conn.close();
+            STORE.save(name, feedback);
+            CACHE.invalidateHead();
             return true;
         } catch (Exception e) {
             System.out.println("Database error: " + e.getMessage());
@@ -35,105 +48,74 @@ class FeedbackDB {
         }
     }
     
+    // Queued and written in batches on the feedback-writer thread
+    public static CompletableFuture<Void> submitFeedback(String name, String feedback) {
+        return INGESTOR.submit(name, feedback);
+    }
+    
+    private static void saveFeedbackBatch(List<FeedbackIngestor.Submission> batch) throws Exception {
+        STORE.saveBatch(batch);
+        CACHE.invalidateHead();
+    }
+    
     public static List<String> getAllFeedback() {
         List<String> feedbackList = new ArrayList<>();
         try {
-            Connection conn = DriverManager.getConnection(URL, USER, PASSWORD);
-            Statement stmt = conn.createStatement();
-            ResultSet rs = stmt.executeQuery("SELECT name, feedback, created_at FROM feedback ORDER BY created_at DESC LIMIT 10");
-            
-            while (rs.next()) {
-                String entry = rs.getString("name") + ": " + rs.getString("feedback") + " (" + rs.getTimestamp("created_at") + ")";
-                feedbackList.add(entry);
+            for (FeedbackEntry entry : olderThan(null, 10)) {
+                feedbackList.add(entry.toString());
             }
-            conn.close();
         } catch (Exception e) {
             System.out.println("Error loading feedback: " + e.getMessage());
         }
         return feedbackList;
     }
-}
-
-// Smart Device classes
-abstract class SmartDevice {
-    protected String name;
-    protected boolean isOn;
-    protected String room;
-    
-    public SmartDevice(String name, String room) {
-        this.name = name;
-        this.room = room;
-        this.isOn = false;
-    }
-    
-    public void turnOn() { this.isOn = true; }
-    public void turnOff() { this.isOn = false; }
-    public abstract String getStatus();
-    public abstract String getType();
-    public String getName() { return name; }
-    public String getRoom() { return room; }
-    public boolean isOn() { return isOn; }
-}
-
-class SmartLight extends SmartDevice {
-    private int brightness;
-    private String color;
-    public SmartLight(String name, String room) {
-        super(name, room);
-        this.brightness = 100;
-        this.color = "White";
-    }
-    public void setBrightness(int brightness) { this.brightness = brightness; }
-    public void setColor(String color) { this.color = color; }
-    @Override public String getStatus() {
-        return "💡 Light | " + room + " | " + (isOn ? "ON" : "OFF") + " | Brightness: " + brightness + "% | Color: " + color;
-    }
-    @Override public String getType() { return "Light"; }
-    public int getBrightness() { return brightness; }
-    public String getColor() { return color; }
-}
-
-class SmartThermostat extends SmartDevice {
-    private double temperature;
-    private String mode;
-    public SmartThermostat(String name, String room) {
-        super(name, room);
-        this.temperature = 22.0;
-        this.mode = "Auto";
-    }
-    public void setTemperature(double temp) { this.temperature = temp; }
-    public void setMode(String mode) { this.mode = mode; }
-    @Override public String getStatus() {
-        return "🌡️ Thermostat | " + room + " | " + (isOn ? "ON" : "OFF") + " | Temp: " + temperature + "°C | Mode: " + mode;
-    }
-    @Override public String getType() { return "Thermostat"; }
-    public double getTemperature() { return temperature; }
-    public String getMode() { return mode; }
-}
-
-class SmartSecurity extends SmartDevice {
-    private boolean isArmed;
-    private String securityLevel;
-    public SmartSecurity(String name, String room) {
-        super(name, room);
-        this.isArmed = false;
-        this.securityLevel = "Normal";
-    }
-    public void armSystem() { this.isArmed = true; }
-    public void disarmSystem() { this.isArmed = false; }
-    public void setSecurityLevel(String level) { this.securityLevel = level; }
-    @Override public String getStatus() {
-        return "🛡️ Security | " + room + " | " + (isOn ? "Active" : "Inactive") + " | Armed: " + isArmed + " | Level: " + securityLevel;
-    }
-    @Override public String getType() { return "Security"; }
+    
+    // Up to limit entries older than before (the newest when before is null), newest first
+    public static List<FeedbackEntry> olderThan(FeedbackEntry before, int limit) throws Exception {
+        return CACHE.older(before, limit);
+    }
+    
+    // Up to limit entries right after after, also returned newest first
+    public static List<FeedbackEntry> newerThan(FeedbackEntry after, int limit) throws Exception {
+        return CACHE.newer(after, limit);
+    }
+    
+    public static String cacheStats() {
+        return CACHE.stats();
+    }
+    
+    public static void shutdown() {
+        INGESTOR.close();
+        try {
+            STORE.close();
+        } catch (IOException e) {
+            System.out.println("❌ Error closing feedback store: " + e.getMessage());
+        }
+    }
 }
 
 // Main JavaFX Application
 public class SmartHomeGUI extends Application {
-    private static final String FILE_NAME = "smart_home_data.txt";
-    private List<SmartDevice> devices = new ArrayList<>();
-    private TextArea statusArea;
-    private FlowPane devicesPane;
+    private static final String SNAPSHOT_FILE = "smart_home_data.bin";
+    private static final String LEGACY_FILE = "smart_home_data.txt";
+    private DeviceRegistry devices = new DeviceRegistry();
+    private final SceneEngine scenes = SceneEngine.fromSystemProperties(devices);
+    private final VoiceCommandEngine voice = new VoiceCommandEngine(devices, scenes);
+    // Keeps time on its own thread; the automations themselves run on the FX thread
+    private final AutomationScheduler automations = AutomationScheduler.fromSystemProperties(Platform::runLater);
+    private DeviceJournal journal;
+    // Slider drags are merged per device property; only the last value in each window is applied
+    private final DeviceCommandPipeline commands = new DeviceCommandPipeline(Platform::runLater,
+            Long.getLong("devices.commandWindowMs", 50));
+    // Any thread may log; lines reach the screen once per frame, bounded in both buffer and view
+    private final StatusLog statusLog = new StatusLog(8192, 1000);
+    private DeviceGrid deviceGrid;
+    // Brightness and setpoint history for the trends view, recorded off the event bus
+    private final TelemetryStore telemetry = TelemetryStore.fromSystemProperties();
+    private DeviceEventBus.Subscription telemetryFeed;
+    // Live power per room and for the home, updated per device change
+    private EnergyMonitor energy;
+    private DeviceApiServer api;
     
     public static void main(String[] args) {
         launch(args);
@@ -141,9 +123,6 @@ public class SmartHomeGUI extends Application {
     
     @Override
     public void start(Stage primaryStage) {
-        loadDevicesFromFile();
-        if (devices.isEmpty()) setupDefaultDevices();
-        
         // Main layout with tabs
         TabPane tabPane = new TabPane();
         
@@ -163,7 +142,28 @@ public class SmartHomeGUI extends Application {
         primaryStage.setScene(new Scene(tabPane, 1000, 700));
         primaryStage.show();
         
-        updateStatus("🚀 Smart Home System Started! Loaded " + devices.size() + " devices.");
+        // Large device files take a while, so load them off the FX thread and keep
+        // the home tab disabled until the registry is ready
+        Node homeContent = homeTab.getContent();
+        homeContent.setDisable(true);
+        updateStatus("⏳ Loading devices...");
+        Thread loader = new Thread(() -> {
+            loadDevicesFromFile();
+            if (devices.isEmpty()) setupDefaultDevices();
+            openJournal();
+            Platform.runLater(() -> {
+                // From here on the grid follows the registry card by card
+                deviceGrid.follow();
+                telemetryFeed = telemetry.follow(devices);
+                energy = EnergyMonitor.follow(devices);
+                startApi();
+                homeContent.setDisable(false);
+                updateStatus("🚀 Smart Home System Started! Loaded " + devices.size() + " devices.");
+                Automations.loadFromSystemProperties(automations, voice::execute, this::updateStatus);
+            });
+        }, "device-loader");
+        loader.setDaemon(true);
+        loader.start();
     }
     
     private VBox createHomeTab() {
@@ -183,36 +183,30 @@ public class SmartHomeGUI extends Application {
         Button viewBtn = createStyledButton("📊 View All", this::viewAllDevices);
         Button addBtn = createStyledButton("➕ Add Device", this::showAddDeviceDialog);
         Button voiceBtn = createStyledButton("🎤 Voice Command", this::showVoiceCommand);
+        Button sceneBtn = createStyledButton("🎬 Scenes", this::showScenes);
+        Button historyBtn = createStyledButton("📈 History", this::showHistory);
         Button saveBtn = createStyledButton("💾 Save", this::saveDevicesToFile);
         
-        buttonBox.getChildren().addAll(viewBtn, addBtn, voiceBtn, saveBtn);
+        buttonBox.getChildren().addAll(viewBtn, addBtn, voiceBtn, sceneBtn, historyBtn, saveBtn);
         
         // Devices area
         Label devicesLabel = new Label("📱 YOUR SMART DEVICES");
         devicesLabel.setFont(Font.font("Arial", FontWeight.BOLD, 18));
         devicesLabel.setTextFill(Color.WHITE);
         
-        devicesPane = new FlowPane();
-        devicesPane.setHgap(15);
-        devicesPane.setVgap(15);
-        devicesPane.setPadding(new Insets(15));
-        
-        ScrollPane scrollPane = new ScrollPane(devicesPane);
-        scrollPane.setFitToWidth(true);
-        scrollPane.setPrefHeight(350);
-        scrollPane.setStyle("-fx-background: transparent;");
+        deviceGrid = new DeviceGrid(devices, this::toggleDevice, this::controlDevice, this::removeDevice);
+        Region devicesView = (Region) deviceGrid.node();
+        devicesView.setPrefHeight(350);
+        VBox.setVgrow(devicesView, Priority.ALWAYS);
         
         // Status area
-        statusArea = new TextArea();
-        statusArea.setEditable(false);
-        statusArea.setPrefHeight(120);
-        statusArea.setStyle("-fx-control-inner-background: #2d3748; -fx-text-fill: white; -fx-font-size: 12px;");
+        Region statusView = statusLog.node();
+        statusView.setPrefHeight(140);
+        statusView.setMinHeight(140);
+        statusLog.start();
         
         // Add everything to main layout
-        mainLayout.getChildren().addAll(header, buttonBox, devicesLabel, scrollPane, statusArea);
-        
-        // Update the devices display
-        updateDevicesDisplay();
+        mainLayout.getChildren().addAll(header, buttonBox, devicesLabel, devicesView, statusView);
         
         return mainLayout;
     }
@@ -280,17 +274,24 @@ public class SmartHomeGUI extends Application {
                 return;
             }
             
-            boolean success = FeedbackDB.saveFeedback(name, feedback);
-            if (success) {
-                feedbackStatus.setText("✅ Thank you! Your feedback has been submitted.");
-                feedbackStatus.setTextFill(Color.GREEN);
-                nameField.clear();
-                feedbackArea.clear();
-                updateStatus("📝 Feedback received from: " + name);
-            } else {
-                feedbackStatus.setText("❌ Error submitting feedback. Please try again.");
-                feedbackStatus.setTextFill(Color.RED);
-            }
+            feedbackStatus.setText("⏳ Submitting feedback...");
+            feedbackStatus.setTextFill(Color.GRAY);
+            FeedbackDB.submitFeedback(name, feedback).whenComplete((ignored, error) -> Platform.runLater(() -> {
+                if (error == null) {
+                    feedbackStatus.setText("✅ Thank you! Your feedback has been submitted.");
+                    feedbackStatus.setTextFill(Color.GREEN);
+                    // Only clear the form if it still holds what was submitted
+                    if (nameField.getText().trim().equals(name) && feedbackArea.getText().trim().equals(feedback)) {
+                        nameField.clear();
+                        feedbackArea.clear();
+                    }
+                    updateStatus("📝 Feedback received from: " + name);
+                } else {
+                    System.out.println("Database error: " + error.getMessage());
+                    feedbackStatus.setText("❌ Error submitting feedback. Please try again.");
+                    feedbackStatus.setTextFill(Color.RED);
+                }
+            }));
         });
         
         // View Feedback button
@@ -322,16 +323,11 @@ public class SmartHomeGUI extends Application {
         Label title = new Label("📋 Recent Feedback");
         title.setFont(Font.font("Arial", FontWeight.BOLD, 18));
         
-        ListView<String> feedbackList = new ListView<>();
-        List<String> feedbacks = FeedbackDB.getAllFeedback();
-        
-        if (feedbacks.isEmpty()) {
-            feedbacks.add("No feedback submitted yet.");
-        }
-        
-        feedbackList.getItems().addAll(feedbacks);
+        ListView<FeedbackEntry> feedbackList = new ListView<>();
         feedbackList.setPrefHeight(300);
         feedbackList.setPrefWidth(500);
+        FeedbackPager pager = new FeedbackPager(feedbackList, FeedbackDB::olderThan, FeedbackDB::newerThan);
+        pager.start();
         
         Button closeBtn = new Button("Close");
         closeBtn.setOnAction(e -> dialog.close());
@@ -340,6 +336,10 @@ public class SmartHomeGUI extends Application {
         
         Scene scene = new Scene(layout, 550, 400);
         dialog.setScene(scene);
+        dialog.setOnHidden(e -> {
+            pager.close();
+            System.out.println("📊 Feedback cache: " + FeedbackDB.cacheStats());
+        });
         dialog.show();
     }
     
@@ -350,59 +350,23 @@ public class SmartHomeGUI extends Application {
         return button;
     }
     
-    private void updateDevicesDisplay() {
-        devicesPane.getChildren().clear();
-        
-        for (SmartDevice device : devices) {
-            VBox card = new VBox(10);
-            card.setPadding(new Insets(15));
-            card.setStyle("-fx-background-color: white; -fx-background-radius: 10; -fx-border-color: #e2e8f0; -fx-border-radius: 10;");
-            card.setPrefWidth(280);
-            
-            String icon = "";
-            String type = device.getType();
-            if (type.equals("Light")) icon = "💡";
-            else if (type.equals("Thermostat")) icon = "🌡️";
-            else if (type.equals("Security")) icon = "🛡️";
-            
-            Label nameLabel = new Label(icon + " " + device.getName());
-            nameLabel.setFont(Font.font("Arial", FontWeight.BOLD, 14));
-            
-            Label roomLabel = new Label("🏠 " + device.getRoom());
-            roomLabel.setFont(Font.font("Arial", 12));
-            
-            Label statusLabel = new Label(device.isOn() ? "🟢 ONLINE" : "🔴 OFFLINE");
-            statusLabel.setTextFill(device.isOn() ? Color.GREEN : Color.RED);
-            statusLabel.setFont(Font.font("Arial", FontWeight.BOLD, 12));
-            
-            HBox buttons = new HBox(10);
-            Button toggleBtn = new Button(device.isOn() ? "⚫ Turn Off" : "🔆 Turn On");
-            toggleBtn.setStyle(device.isOn() ? 
-                "-fx-background-color: #e53e3e; -fx-text-fill: white;" : 
-                "-fx-background-color: #38a169; -fx-text-fill: white;");
-            toggleBtn.setOnAction(e -> {
-                if (device.isOn()) device.turnOff();
-                else device.turnOn();
-                updateStatus("Toggled " + device.getName() + " - " + (device.isOn() ? "ON" : "OFF"));
-                updateDevicesDisplay();
-            });
-            
-            Button controlBtn = new Button("🎮 Control");
-            controlBtn.setStyle("-fx-background-color: #3182ce; -fx-text-fill: white;");
-            controlBtn.setOnAction(e -> controlDevice(device));
-            
-            Button removeBtn = new Button("❌ Remove");
-            removeBtn.setStyle("-fx-background-color: #c53030; -fx-text-fill: white;");
-            removeBtn.setOnAction(e -> {
-                devices.remove(device);
-                updateStatus("Removed: " + device.getName());
-                updateDevicesDisplay();
-            });
-            
-            buttons.getChildren().addAll(toggleBtn, controlBtn, removeBtn);
-            card.getChildren().addAll(nameLabel, roomLabel, statusLabel, buttons);
-            devicesPane.getChildren().add(card);
-        }
+    private void toggleDevice(SmartDevice device) {
+        if (device.isOn()) device.turnOff();
+        else device.turnOn();
+        updateStatus("Toggled " + device.getName() + " - " + (device.isOn() ? "ON" : "OFF"));
+    }
+    
+    private void removeDevice(SmartDevice device) {
+        devices.remove(device);
+        updateStatus("Removed: " + device.getName());
+    }
+    
+    static String deviceIcon(SmartDevice device) {
+        String type = device.getType();
+        if (type.equals("Light")) return "💡";
+        if (type.equals("Thermostat")) return "🌡️";
+        if (type.equals("Security")) return "🛡️";
+        return "";
     }
     
     private void controlDevice(SmartDevice device) {
@@ -423,9 +387,12 @@ public class SmartHomeGUI extends Application {
             brightness.setMajorTickUnit(25);
             
             brightness.valueProperty().addListener((obs, oldVal, newVal) -> {
-                light.setBrightness(newVal.intValue());
-                brightnessLabel.setText("Brightness: " + newVal.intValue() + "%");
-                updateStatus(light.getName() + " brightness: " + newVal.intValue() + "%");
+                int value = newVal.intValue();
+                brightnessLabel.setText("Brightness: " + value + "%");
+                commands.submit(light, DeviceProperty.BRIGHTNESS, () -> {
+                    light.setBrightness(value);
+                    updateStatus(light.getName() + " brightness: " + value + "%");
+                });
             });
             
             Label colorLabel = new Label("Color: " + light.getColor());
@@ -449,9 +416,12 @@ public class SmartHomeGUI extends Application {
             temp.setMajorTickUnit(5);
             
             temp.valueProperty().addListener((obs, oldVal, newVal) -> {
-                thermo.setTemperature(newVal.doubleValue());
-                tempLabel.setText("Temperature: " + String.format("%.1f", newVal) + "°C");
-                updateStatus(thermo.getName() + " temperature: " + String.format("%.1f", newVal) + "°C");
+                double value = newVal.doubleValue();
+                tempLabel.setText("Temperature: " + String.format("%.1f", value) + "°C");
+                commands.submit(thermo, DeviceProperty.TEMPERATURE, () -> {
+                    thermo.setTemperature(value);
+                    updateStatus(thermo.getName() + " temperature: " + String.format("%.1f", value) + "°C");
+                });
             });
             
             Label modeLabel = new Label("Mode: " + thermo.getMode());
@@ -471,6 +441,13 @@ public class SmartHomeGUI extends Application {
         close.setOnAction(e -> dialog.close());
         layout.getChildren().add(close);
         
+        long mergedBefore = commands.merged();
+        dialog.setOnHidden(e -> {
+            commands.flush();
+            long merged = commands.merged() - mergedBefore;
+            if (merged > 0) updateStatus("🎚️ Merged " + merged + " intermediate slider updates (" + commands.stats() + ")");
+        });
+        
         dialog.setScene(new Scene(layout, 350, 400));
         dialog.setTitle("Device Control - " + device.getName());
         dialog.show();
@@ -512,7 +489,6 @@ public class SmartHomeGUI extends Application {
                 if (newDevice != null) {
                     devices.add(newDevice);
                     updateStatus("✅ Added " + deviceType + ": " + name.getText() + " in " + room.getText());
-                    updateDevicesDisplay();
                     dialog.close();
                 }
             } else {
@@ -537,68 +513,114 @@ public class SmartHomeGUI extends Application {
         TextInputDialog dialog = new TextInputDialog();
         dialog.setTitle("🎤 Voice Command");
         dialog.setHeaderText("Try commands like:");
-        dialog.setContentText("'turn on lights', 'turn off lights', 'good night'");
+        dialog.setContentText("'dim bedroom lights to 30', 'turn off everything except security'");
         
         Optional<String> result = dialog.showAndWait();
-        result.ifPresent(cmd -> {
-            cmd = cmd.toLowerCase();
-            if (cmd.contains("turn on lights")) {
-                devices.stream().filter(d -> d instanceof SmartLight).forEach(SmartDevice::turnOn);
-                updateStatus("✅ Voice: All lights turned ON!");
-            } else if (cmd.contains("turn off lights")) {
-                devices.stream().filter(d -> d instanceof SmartLight).forEach(SmartDevice::turnOff);
-                updateStatus("✅ Voice: All lights turned OFF!");
-            } else if (cmd.contains("good night")) {
-                devices.forEach(d -> {
-                    if (d instanceof SmartLight) d.turnOff();
-                    if (d instanceof SmartSecurity) {
-                        d.turnOn();
-                        ((SmartSecurity) d).armSystem();
-                    }
-                });
-                updateStatus("🌙 Voice: Good night! Lights off, security armed.");
-            } else {
-                updateStatus("❌ Voice: Command not understood: " + cmd);
+        result.ifPresent(cmd -> updateStatus("🎤 Voice: " + voice.execute(cmd)));
+    }
+    
+    private void showScenes() {
+        List<String> names = scenes.names();
+        if (names.isEmpty()) {
+            updateStatus("🤷 No scenes defined.");
+            return;
+        }
+        ChoiceDialog<String> dialog = new ChoiceDialog<>(names.get(0), names);
+        dialog.setTitle("🎬 Scenes");
+        dialog.setHeaderText("Apply a scene to the whole home");
+        dialog.setContentText("Scene:");
+        dialog.showAndWait().ifPresent(name -> {
+            try {
+                updateStatus(scenes.apply(name).toString());
+            } catch (IllegalStateException e) {
+                updateStatus("❌ " + e.getMessage());
             }
-            updateDevicesDisplay();
         });
     }
     
+    // Last 24 hours per room: thermostat setpoints and effective light levels
+    private void showHistory() {
+        long now = System.currentTimeMillis();
+        long from = now - TimeUnit.DAYS.toMillis(1);
+        StringBuilder sb = new StringBuilder("=== LAST 24 HOURS ===\n");
+        for (String room : devices.rooms()) {
+            sb.append("\n🏠 ").append(room.toUpperCase()).append(":\n");
+            appendTrend(sb, "🌡️ Setpoint", "°C", telemetry.roomRollups(room, TelemetryStore.Metric.SETPOINT,
+                    TelemetryStore.Resolution.HOUR, from, now));
+            appendTrend(sb, "💡 Brightness", "%", telemetry.roomRollups(room, TelemetryStore.Metric.BRIGHTNESS,
+                    TelemetryStore.Resolution.HOUR, from, now));
+        }
+        sb.append("\n").append(telemetry.stats());
+        updateStatus(sb.toString());
+    }
+    
+    private static void appendTrend(StringBuilder sb, String label, String unit, List<TelemetryStore.Rollup> hours) {
+        if (hours.isEmpty()) return;
+        TelemetryStore.Rollup day = hours.get(0);
+        for (int i = 1; i < hours.size(); i++) {
+            day = day.merge(hours.get(i));
+        }
+        TelemetryStore.Rollup last = hours.get(hours.size() - 1);
+        sb.append(String.format("  %s: last hour %.1f%s, 24h min %.1f / mean %.1f / max %.1f (%d samples)%n",
+                label, last.mean(), unit, day.min(), day.mean(), day.max(), day.count()));
+    }
+    
     private void viewAllDevices() {
         StringBuilder sb = new StringBuilder("=== ALL DEVICES STATUS ===\n");
         sb.append("=".repeat(40)).append("\n");
         
-        // Group by room
-        Map<String, List<SmartDevice>> rooms = new HashMap<>();
-        for (SmartDevice device : devices) {
-            rooms.putIfAbsent(device.getRoom(), new ArrayList<>());
-            rooms.get(device.getRoom()).add(device);
-        }
-        
-        for (String room : rooms.keySet()) {
+        // Rooms come pre-grouped from the registry
+        for (String room : devices.rooms()) {
             sb.append("\n🏠 ").append(room.toUpperCase()).append(":\n");
-            for (SmartDevice device : rooms.get(room)) {
-                sb.append("  ").append(device.getStatus()).append("\n");
+            for (SmartDevice device : devices.inRoom(room)) {
+                sb.append("  ").append(deviceIcon(device)).append(" ").append(device.getStatus()).append("\n");
             }
         }
         
+        if (energy != null) sb.append("\n").append(energy.report());
+        sb.append("\n").append(devices.events().stats()).append("\n");
+        
         updateStatus(sb.toString());
     }
     
+    // Serves the web dashboard and its API next to the window when -Dapi.port is set
+    private void startApi() {
+        try {
+            api = DeviceApiServer.fromSystemProperties(devices, energy);
+            if (api != null) updateStatus("🌐 Web dashboard at http://localhost:" + api.start().port() + "/");
+        } catch (IOException e) {
+            updateStatus("⚠️ Web dashboard not started: " + e.getMessage());
+        }
+    }
+    
     private void updateStatus(String message) {
-        Platform.runLater(() -> {
-            statusArea.appendText("> " + message + "\n");
-            statusArea.setScrollTop(Double.MAX_VALUE);
-        });
+        statusLog.append(message);
+    }
+    
+    @Override
+    public void stop() {
+        statusLog.stop();
+        if (deviceGrid != null) deviceGrid.unfollow();
+        if (telemetryFeed != null) telemetryFeed.cancel();
+        if (api != null) api.close();
+        if (energy != null) energy.close();
+        automations.close();
+        commands.close();
+        FeedbackDB.shutdown();
+        if (journal == null) return;
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.out.println("❌ Error closing journal: " + e.getMessage());
+        }
     }
     
     private void saveDevicesToFile() {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(FILE_NAME))) {
-            for (SmartDevice device : devices) {
-                writer.println(device.getClass().getSimpleName() + ":" + 
-                             device.getName() + ":" + 
-                             device.getRoom() + ":" + 
-                             device.isOn());
+        try {
+            if (journal != null) {
+                journal.checkpoint(devices);
+            } else {
+                DeviceSnapshot.write(Paths.get(SNAPSHOT_FILE), devices.all());
             }
             updateStatus("💾 All devices saved to file!");
         } catch (IOException e) {
@@ -608,34 +630,31 @@ public class SmartHomeGUI extends Application {
     
     private void loadDevicesFromFile() {
         devices.clear();
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_NAME))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(":");
-                if (parts.length == 4) {
-                    SmartDevice device = null;
-                    String type = parts[0];
-                    String name = parts[1];
-                    String room = parts[2];
-                    boolean isOn = Boolean.parseBoolean(parts[3]);
-                    
-                    if (type.equals("SmartLight")) {
-                        device = new SmartLight(name, room);
-                    } else if (type.equals("SmartThermostat")) {
-                        device = new SmartThermostat(name, room);
-                    } else if (type.equals("SmartSecurity")) {
-                        device = new SmartSecurity(name, room);
-                    }
-                    
-                    if (device != null) {
-                        if (isOn) device.turnOn();
-                        devices.add(device);
-                    }
-                }
+        try {
+            Path snapshot = Paths.get(SNAPSHOT_FILE);
+            Path legacy = Paths.get(LEGACY_FILE);
+            List<SmartDevice> loaded;
+            if (Files.exists(snapshot)) {
+                loaded = DeviceSnapshot.read(snapshot);
+            } else if (Files.exists(legacy)) {
+                loaded = DeviceSnapshot.importLegacy(legacy);
+            } else {
+                // File doesn't exist yet, that's fine
+                return;
             }
+            loaded.forEach(devices::add);
             updateStatus("📂 Loaded " + devices.size() + " devices from file");
         } catch (IOException e) {
-            // File doesn't exist yet, that's fine
+            updateStatus("❌ Error loading: " + e.getMessage());
+        }
+    }
+    
+    // Journal every change so nothing is lost if the app dies before the next save
+    private void openJournal() {
+        try {
+            journal = DeviceJournal.open(Paths.get(SNAPSHOT_FILE), devices);
+        } catch (IOException e) {
+            updateStatus("❌ Journal unavailable, changes are only kept on save: " + e.getMessage());
         }
     }
     
@@ -0,0 +1,390 @@
+package smarthome;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Main Smart Home System
+public class SmartHomeSystem {
+    private static final String SNAPSHOT_FILE = "smart_home_data.bin";
+    private static final String LEGACY_FILE = "smart_home_data.txt";
+    private static Scanner scanner = new Scanner(System.in);
+    private static DeviceRegistry devices = new DeviceRegistry();
+    private static SceneEngine scenes = SceneEngine.fromSystemProperties(devices);
+    private static VoiceCommandEngine voice = new VoiceCommandEngine(devices, scenes);
+    private static DeviceJournal journal;
+    private static EnergyMonitor energy;
+    private static DeviceApiServer api;
+    // Automations run on their own thread, whatever the menu is doing: devices, the registry
+    // and the voice engine are safe to share, so no lock is held while the user types
+    private static ExecutorService automationActions = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "automation-actions");
+        t.setDaemon(true);
+        return t;
+    });
+    private static AutomationScheduler automations = AutomationScheduler.fromSystemProperties(automationActions::execute);
+    
+    public static void main(String[] args) {
+        loadDevicesFromFile();
+        
+        // Add some default devices if empty
+        if (devices.isEmpty()) {
+            setupDefaultDevices();
+        }
+        openJournal();
+        // Loads and journal replays are silent, so start metering once the registry is settled
+        energy = EnergyMonitor.follow(devices);
+        startApi();
+        Automations.loadFromSystemProperties(automations, voice::execute, System.out::println);
+        
+        System.out.println("🏠 === SMART HOME SYSTEM ===");
+        System.out.println("🤖 Welcome to your Smart Home!");
+        
+        while (true) {
+            // Device events print from the event-log thread; let them land before the menu
+            EventLog.global().flush();
+            showCoolMenu();
+            int choice = getIntInput("Choose option: ");
+            
+            switch (choice) {
+                case 1: viewAllDevices(); break;
+                case 2: controlDevice(); break;
+                case 3: addNewDevice(); break;
+                case 4: removeDevice(); break;
+                case 5: roomControl(); break;
+                case 6: voiceCommand(); break;
+                case 7: 
+                    automations.close();
+                    if (api != null) api.close();
+                    saveDevicesToFile();
+                    closeJournal();
+                    System.out.println("👋 Goodbye! Your home is secure.");
+                    return;
+                default: 
+                    System.out.println("❌ Invalid choice! Try again.");
+            }
+        }
+    }
+    
+    private static void showCoolMenu() {
+        System.out.println("\n" + "=".repeat(40));
+        System.out.println("🏠 SMART HOME CONTROL PANEL");
+        System.out.println("=".repeat(40));
+        System.out.println("1. 📊 View All Devices");
+        System.out.println("2. 🎮 Control Device");
+        System.out.println("3. ➕ Add New Device");
+        System.out.println("4. ❌ Remove Device");
+        System.out.println("5. 🏠 Room Control");
+        System.out.println("6. 🎤 Voice Command");
+        System.out.println("7. 🚪 Exit");
+        System.out.println("-".repeat(40));
+    }
+    
+    private static void viewAllDevices() {
+        if (devices.isEmpty()) {
+            System.out.println("🤷 No devices found! Add some devices first.");
+            return;
+        }
+        
+        System.out.print(describeDevices(devices));
+        System.out.print("\n" + energy.report());
+    }
+    
+    // The device listing, grouped by room (the registry already keeps them grouped)
+    static String describeDevices(DeviceRegistry devices) {
+        StringBuilder out = new StringBuilder();
+        out.append("\n").append("=".repeat(50)).append("\n");
+        out.append("📊 YOUR SMART DEVICES\n");
+        out.append("=".repeat(50)).append("\n");
+        for (String room : devices.rooms()) {
+            out.append("\n🏠 ").append(room.toUpperCase()).append(":\n");
+            out.append("-".repeat(30)).append("\n");
+            for (SmartDevice device : devices.inRoom(room)) {
+                String statusIcon = device.isOn() ? "🟢" : "🔴";
+                out.append(statusIcon).append(" ").append(device.getStatus()).append("\n");
+            }
+        }
+        return out.toString();
+    }
+    
+    private static void controlDevice() {
+        if (devices.isEmpty()) {
+            System.out.println("❌ No devices to control!");
+            return;
+        }
+        
+        System.out.println("\n🎮 CONTROL DEVICE");
+        // Numbers refer to this listing, even if the dashboard or an automation adds or
+        // removes devices while the user is typing
+        List<SmartDevice> listed = devices.all();
+        for (int i = 0; i < listed.size(); i++) {
+            System.out.println((i + 1) + ". " + listed.get(i).getName() + " (" + listed.get(i).getRoom() + ")");
+        }
+        
+        int deviceIndex = getIntInput("Select device (1-" + listed.size() + "): ") - 1;
+        
+        if (deviceIndex < 0 || deviceIndex >= listed.size()) {
+            System.out.println("❌ Invalid device selection!");
+            return;
+        }
+        
+        SmartDevice device = listed.get(deviceIndex);
+        System.out.println("🎯 Controlling: " + device.getName());
+        
+        // Basic controls for all devices
+        System.out.println("1. 🔄 Turn ON");
+        System.out.println("2. ⚫ Turn OFF");
+        System.out.println("3. 📊 Get Status");
+        
+        // Device-specific controls
+        if (device instanceof SmartLight) {
+            System.out.println("4. 💡 Set Brightness");
+            System.out.println("5. 🎨 Change Color");
+        } else if (device instanceof SmartThermostat) {
+            System.out.println("4. 🌡️ Set Temperature");
+            System.out.println("5. 🔄 Change Mode");
+        } else if (device instanceof SmartSecurity) {
+            System.out.println("4. 🚨 Arm System");
+            System.out.println("5. ✅ Disarm System");
+        }
+        
+        int action = getIntInput("Choose action: ");
+        
+        switch (action) {
+            case 1: device.turnOn(); break;
+            case 2: device.turnOff(); break;
+            case 3: System.out.println(device.getStatus()); break;
+            case 4: 
+                if (device instanceof SmartLight) {
+                    int brightness = getIntInput("Enter brightness (1-100): ", 1, SmartLight.MAX_BRIGHTNESS);
+                    ((SmartLight) device).setBrightness(brightness);
+                } else if (device instanceof SmartThermostat) {
+                    double temp = getDoubleInput("Enter temperature: ");
+                    ((SmartThermostat) device).setTemperature(temp);
+                } else if (device instanceof SmartSecurity) {
+                    ((SmartSecurity) device).armSystem();
+                }
+                break;
+            case 5:
+                if (device instanceof SmartLight) {
+                    System.out.print("Enter color: ");
+                    String color = scanner.nextLine();
+                    ((SmartLight) device).setColor(color);
+                } else if (device instanceof SmartThermostat) {
+                    System.out.print("Enter mode (Heating/Cooling/Auto): ");
+                    String mode = scanner.nextLine();
+                    ((SmartThermostat) device).setMode(mode);
+                } else if (device instanceof SmartSecurity) {
+                    ((SmartSecurity) device).disarmSystem();
+                }
+                break;
+            default: System.out.println("❌ Invalid action!");
+        }
+    }
+    
+    private static void addNewDevice() {
+        System.out.println("\n➕ ADD NEW SMART DEVICE");
+        System.out.println("1. 💡 Smart Light");
+        System.out.println("2. 🌡️ Smart Thermostat");
+        System.out.println("3. 🛡️ Smart Security");
+        
+        int type = getIntInput("Choose device type: ");
+        
+        System.out.print("Enter device name: ");
+        String name = scanner.nextLine();
+        
+        System.out.print("Enter room: ");
+        String room = scanner.nextLine();
+        
+        SmartDevice newDevice;
+        
+        switch (type) {
+            case 1: 
+                newDevice = new SmartLight(name, room);
+                break;
+            case 2:
+                newDevice = new SmartThermostat(name, room);
+                break;
+            case 3:
+                newDevice = new SmartSecurity(name, room);
+                break;
+            default:
+                System.out.println("❌ Invalid device type!");
+                return;
+        }
+        
+        devices.add(newDevice);
+        System.out.println("✅ " + newDevice.getType() + " '" + name + "' added to " + room + "!");
+    }
+    
+    private static void removeDevice() {
+        if (devices.isEmpty()) {
+            System.out.println("❌ No devices to remove!");
+            return;
+        }
+        
+        System.out.println("\n❌ REMOVE DEVICE");
+        List<SmartDevice> listed = devices.all();
+        for (int i = 0; i < listed.size(); i++) {
+            System.out.println((i + 1) + ". " + listed.get(i).getName());
+        }
+        
+        int index = getIntInput("Select device to remove: ") - 1;
+        if (index >= 0 && index < listed.size()) {
+            SmartDevice removed = listed.get(index);
+            if (devices.remove(removed)) {
+                System.out.println("✅ Device '" + removed.getName() + "' removed!");
+            } else {
+                System.out.println("❌ Device '" + removed.getName() + "' was already removed!");
+            }
+        } else {
+            System.out.println("❌ Invalid selection!");
+        }
+    }
+    
+    private static void roomControl() {
+        System.out.println("\n🏠 ROOM CONTROL");
+        List<String> rooms = devices.rooms();
+        
+        if (rooms.isEmpty()) {
+            System.out.println("❌ No rooms found!");
+            return;
+        }
+        
+        System.out.println("Available rooms: " + String.join(", ", rooms));
+        System.out.print("Enter room name: ");
+        String room = scanner.nextLine();
+        
+        System.out.println("1. 🔄 Turn ON all devices in " + room);
+        System.out.println("2. ⚫ Turn OFF all devices in " + room);
+        int action = getIntInput("Choose action: ");
+        
+        int count = action == 1 || action == 2 ? setRoomPower(devices, room, action == 1) : 0;
+        EventLog.global().flush();
+        System.out.println("✅ " + count + " devices in " + room + " updated!");
+    }
+    
+    static int setRoomPower(DeviceRegistry devices, String room, boolean on) {
+        return devices.forEachInRoom(room, on ? SmartDevice::turnOn : SmartDevice::turnOff);
+    }
+    
+    private static void voiceCommand() {
+        System.out.println("\n🎤 VOICE COMMAND MODE");
+        System.out.println("💡 Try commands like: 'dim bedroom lights to 30', 'set living room temperature to 21.5',");
+        System.out.println("   'turn off everything except security', 'good night', 'activate morning scene'");
+        System.out.print("🎤 Say command: ");
+        String command = scanner.nextLine();
+        String reply = voice.execute(command);
+        EventLog.global().flush();
+        System.out.println(reply);
+    }
+    
+    // Helper methods
+    private static int getIntInput(String prompt) {
+        while (true) {
+            try {
+                System.out.print(prompt);
+                return Integer.parseInt(scanner.nextLine());
+            } catch (NumberFormatException e) {
+                System.out.println("❌ Please enter a valid number!");
+            }
+        }
+    }
+    
+    private static int getIntInput(String prompt, int min, int max) {
+        while (true) {
+            int value = getIntInput(prompt);
+            if (value >= min && value <= max) return value;
+            System.out.println("❌ Please enter a number from " + min + " to " + max + "!");
+        }
+    }
+    
+    private static double getDoubleInput(String prompt) {
+        while (true) {
+            try {
+                System.out.print(prompt);
+                return Double.parseDouble(scanner.nextLine());
+            } catch (NumberFormatException e) {
+                System.out.println("❌ Please enter a valid number!");
+            }
+        }
+    }
+    
+    // File handling
+    private static void saveDevicesToFile() {
+        try {
+            if (journal != null) {
+                journal.checkpoint(devices);
+            } else {
+                DeviceSnapshot.write(Paths.get(SNAPSHOT_FILE), devices.all());
+            }
+            System.out.println("💾 Smart home data saved!");
+        } catch (IOException e) {
+            System.out.println("❌ Error saving data: " + e.getMessage());
+        }
+    }
+    
+    private static void loadDevicesFromFile() {
+        try {
+            Path snapshot = Paths.get(SNAPSHOT_FILE);
+            Path legacy = Paths.get(LEGACY_FILE);
+            List<SmartDevice> loaded;
+            if (Files.exists(snapshot)) {
+                loaded = DeviceSnapshot.read(snapshot);
+            } else if (Files.exists(legacy)) {
+                // First run after upgrading: import the old text file, next save writes the snapshot
+                loaded = DeviceSnapshot.importLegacy(legacy);
+            } else {
+                System.out.println("💡 Starting with fresh smart home setup");
+                return;
+            }
+            loaded.forEach(devices::add);
+            System.out.println("📂 Loaded " + devices.size() + " devices from memory");
+        } catch (IOException e) {
+            System.out.println("❌ Error loading data: " + e.getMessage());
+            System.out.println("💡 Starting with fresh smart home setup");
+        }
+    }
+    
+    // Serves the web dashboard and its API when -Dapi.port is set
+    private static void startApi() {
+        try {
+            api = DeviceApiServer.fromSystemProperties(devices, energy);
+            if (api != null) System.out.println("🌐 Web dashboard at http://localhost:" + api.start().port() + "/");
+        } catch (IOException e) {
+            System.out.println("⚠️ Web dashboard not started: " + e.getMessage());
+        }
+    }
+    
+    // Every change is journaled from here on, so state survives a crash between saves
+    private static void openJournal() {
+        try {
+            int before = devices.size();
+            journal = DeviceJournal.open(Paths.get(SNAPSHOT_FILE), devices);
+            if (devices.size() != before) {
+                System.out.println("📜 Recovered unsaved changes, now " + devices.size() + " devices");
+            }
+        } catch (IOException e) {
+            System.out.println("❌ Journal unavailable, changes are only kept on save: " + e.getMessage());
+        }
+    }
+    
+    private static void closeJournal() {
+        if (journal == null) return;
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.out.println("❌ Error closing journal: " + e.getMessage());
+        }
+    }
+    
+    private static void setupDefaultDevices() {
+        devices.add(new SmartLight("Living Room Main Light", "Living Room"));
+        devices.add(new SmartLight("Bedroom Lamp", "Bedroom"));
+        devices.add(new SmartThermostat("Main Thermostat", "Living Room"));
+        devices.add(new SmartSecurity("Home Security", "Entrance"));
+        System.out.println("🏠 Default smart home devices setup complete!");
+    }
+}
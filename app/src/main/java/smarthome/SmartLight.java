@@ -0,0 +1,78 @@
+package smarthome;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+class SmartLight extends SmartDevice {
+    // LED bulb: standby draw when off, rated draw at full brightness, linear in between
+    static final double STANDBY_WATTS = 0.3;
+    static final double RATED_WATTS = 15.0;
+    // Brightness is a percentage; snapshots and DeviceStateStore keep it in one byte
+    static final int MAX_BRIGHTNESS = 100;
+
+    private static final VarHandle COLOR;
+    static {
+        try {
+            COLOR = MethodHandles.lookup().findVarHandle(SmartLight.class, "color", String.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private volatile String color;
+    
+    public SmartLight(String name, String room) {
+        super(name, room);
+        updateState(VALUE, 100L << 32);
+        this.color = "White";
+    }
+    
+    public void setBrightness(int brightness) {
+        checkBrightness(brightness);
+        synchronized (this) {
+            int before = applyBrightness(brightness);
+            changed(DeviceProperty.BRIGHTNESS, before, brightness);
+        }
+        EventLog.info(EventLog.Kind.BRIGHTNESS, getName(), brightness);
+    }
+    
+    public void setColor(String color) {
+        synchronized (this) {
+            String before = applyColor(color);
+            changed(DeviceProperty.COLOR, before, color);
+        }
+        EventLog.info(EventLog.Kind.COLOR, getName(), color);
+    }
+    
+    // Both return the value they replaced
+    protected int applyBrightness(int brightness) {
+        checkBrightness(brightness);
+        return (int) (updateState(VALUE, (long) brightness << 32) >> 32);
+    }
+    protected String applyColor(String color) { return (String) COLOR.getAndSet(this, color); }
+    
+    @Override
+    public String getStatus() {
+        return "Light | Room: " + getRoom() + " | " + (isOn() ? "ON" : "OFF") + 
+               " | Brightness: " + getBrightness() + "% | Color: " + getColor();
+    }
+    
+    @Override
+    public String getType() { return "Light"; }
+    
+    @Override
+    public double getPowerWatts() {
+        if (!isOn()) return STANDBY_WATTS;
+        int level = Math.max(0, Math.min(100, getBrightness()));
+        return STANDBY_WATTS + (RATED_WATTS - STANDBY_WATTS) * level / 100;
+    }
+    
+    public int getBrightness() { return (int) (state() >> 32); }
+    public String getColor() { return color; }
+
+    static void checkBrightness(int brightness) {
+        if (brightness < 0 || brightness > MAX_BRIGHTNESS) {
+            throw new IllegalArgumentException("Brightness must be 0-" + MAX_BRIGHTNESS + ": " + brightness);
+        }
+    }
+}
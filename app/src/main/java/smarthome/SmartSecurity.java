@@ -0,0 +1,74 @@
+package smarthome;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+class SmartSecurity extends SmartDevice {
+    // Camera and sensors: standby when off, more while armed (recording)
+    static final double STANDBY_WATTS = 1.0;
+    static final double ACTIVE_WATTS = 5.0;
+    static final double ARMED_WATTS = 8.0;
+
+    private static final VarHandle LEVEL;
+    static {
+        try {
+            LEVEL = MethodHandles.lookup().findVarHandle(SmartSecurity.class, "securityLevel", String.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private volatile String securityLevel;
+    static final String[] LEVELS = {"Normal", "High", "Maximum"};
+    
+    public SmartSecurity(String name, String room) {
+        super(name, room);
+        this.securityLevel = "Normal";
+    }
+    
+    public void armSystem() {
+        synchronized (this) {
+            boolean before = applyArmed(true);
+            changed(DeviceProperty.ARMED, before, true);
+        }
+        EventLog.info(EventLog.Kind.ARMED, getName());
+    }
+    
+    public void disarmSystem() {
+        synchronized (this) {
+            boolean before = applyArmed(false);
+            changed(DeviceProperty.ARMED, before, false);
+        }
+        EventLog.info(EventLog.Kind.DISARMED, getName());
+    }
+    
+    public void setSecurityLevel(String level) {
+        synchronized (this) {
+            String before = applySecurityLevel(level);
+            changed(DeviceProperty.SECURITY_LEVEL, before, level);
+        }
+        EventLog.info(EventLog.Kind.SECURITY_LEVEL, getName(), level);
+    }
+    
+    // Both return the value they replaced; armed shares the state word with power
+    protected boolean applyArmed(boolean armed) { return (updateState(ARMED, armed ? ARMED : 0) & ARMED) != 0; }
+    protected String applySecurityLevel(String level) { return (String) LEVEL.getAndSet(this, level); }
+    
+    @Override
+    public String getStatus() {
+        return "Security | Room: " + getRoom() + " | " + (isOn() ? "Active" : "Inactive") + 
+               " | Armed: " + isArmed() + " | Level: " + getSecurityLevel();
+    }
+    
+    @Override
+    public String getType() { return "Security"; }
+    
+    @Override
+    public double getPowerWatts() {
+        if (!isOn()) return STANDBY_WATTS;
+        return isArmed() ? ARMED_WATTS : ACTIVE_WATTS;
+    }
+    
+    public boolean isArmed() { return (state() & ARMED) != 0; }
+    public String getSecurityLevel() { return securityLevel; }
+}
@@ -0,0 +1,80 @@
+package smarthome;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+class SmartThermostat extends SmartDevice {
+    // Average draw of the HVAC unit by mode while running; the controller alone when off
+    static final double STANDBY_WATTS = 2.0;
+    static final double HEATING_WATTS = 2000.0;
+    static final double COOLING_WATTS = 2500.0;
+    static final double AUTO_WATTS = 1500.0;
+    // What the GUI offers and the power model knows; setpoints outside the range are typos
+    static final String[] MODES = {"Heating", "Cooling", "Auto"};
+    static final double MIN_TEMPERATURE = -50;
+    static final double MAX_TEMPERATURE = 100;
+
+    private static final VarHandle TEMPERATURE;
+    private static final VarHandle MODE;
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            TEMPERATURE = lookup.findVarHandle(SmartThermostat.class, "temperatureBits", long.class);
+            MODE = lookup.findVarHandle(SmartThermostat.class, "mode", String.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private volatile long temperatureBits; // Double.doubleToRawLongBits, swapped as one word
+    private volatile String mode; // Heating, Cooling, Auto
+    
+    public SmartThermostat(String name, String room) {
+        super(name, room);
+        this.temperatureBits = Double.doubleToRawLongBits(22.0);
+        this.mode = "Auto";
+    }
+    
+    public void setTemperature(double temp) {
+        synchronized (this) {
+            double before = applyTemperature(temp);
+            changed(DeviceProperty.TEMPERATURE, before, temp);
+        }
+        EventLog.info(EventLog.Kind.TEMPERATURE, getName(), temp);
+    }
+    
+    public void setMode(String mode) {
+        synchronized (this) {
+            String before = applyMode(mode);
+            changed(DeviceProperty.MODE, before, mode);
+        }
+        EventLog.info(EventLog.Kind.MODE, getName(), mode);
+    }
+    
+    // Both return the value they replaced
+    protected double applyTemperature(double temp) {
+        return Double.longBitsToDouble((long) TEMPERATURE.getAndSet(this, Double.doubleToRawLongBits(temp)));
+    }
+    protected String applyMode(String mode) { return (String) MODE.getAndSet(this, mode); }
+    
+    @Override
+    public String getStatus() {
+        return "Thermostat | Room: " + getRoom() + " | " + (isOn() ? "ON" : "OFF") + 
+               " | Temp: " + getTemperature() + "°C | Mode: " + getMode();
+    }
+    
+    @Override
+    public String getType() { return "Thermostat"; }
+    
+    @Override
+    public double getPowerWatts() {
+        if (!isOn()) return STANDBY_WATTS;
+        String mode = getMode();
+        if ("Heating".equalsIgnoreCase(mode)) return HEATING_WATTS;
+        if ("Cooling".equalsIgnoreCase(mode)) return COOLING_WATTS;
+        return AUTO_WATTS;
+    }
+    
+    public double getTemperature() { return Double.longBitsToDouble(temperatureBits); }
+    public String getMode() { return mode; }
+}
@@ -0,0 +1,96 @@
+package smarthome;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Compares start-up load time of the legacy text file, read the old way (BufferedReader +
+// String.split) and with ParallelDeviceLoader, against the memory-mapped binary snapshot.
+// Usage: java SnapshotBenchmark [deviceCount] [runs]
+public class SnapshotBenchmark {
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        Path dir = Files.createTempDirectory("snapshot-bench");
+        Path legacy = dir.resolve("devices.txt");
+        Path snapshot = dir.resolve("devices.bin");
+
+        List<SmartDevice> devices = generate(count);
+        try (BufferedWriter writer = Files.newBufferedWriter(legacy, StandardCharsets.UTF_8)) {
+            for (SmartDevice device : devices) {
+                writer.write(device.getClass().getSimpleName() + ":" + device.getName() + ":"
+                        + device.getRoom() + ":" + device.isOn());
+                writer.newLine();
+            }
+        }
+        DeviceSnapshot.write(snapshot, devices);
+        devices = null;
+
+        System.out.printf("📄 Text file:     %,d bytes%n", Files.size(legacy));
+        System.out.printf("📦 Snapshot file: %,d bytes%n", Files.size(snapshot));
+
+        // The first run of each is the closest we get to a cold start without dropping the page cache
+        for (int run = 1; run <= runs; run++) {
+            long start = System.nanoTime();
+            int textLoaded = splitLoad(legacy).size();
+            long textMs = (System.nanoTime() - start) / 1_000_000;
+
+            start = System.nanoTime();
+            int parallelLoaded = ParallelDeviceLoader.load(legacy).size();
+            long parallelMs = (System.nanoTime() - start) / 1_000_000;
+
+            start = System.nanoTime();
+            int binLoaded = DeviceSnapshot.read(snapshot).size();
+            long binMs = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.printf("⏱️ run %d: text split %d ms, text parallel %d ms, snapshot %d ms (%,d/%,d/%,d devices)%n",
+                    run, textMs, parallelMs, binMs, textLoaded, parallelLoaded, binLoaded);
+        }
+
+        Files.delete(legacy);
+        Files.delete(snapshot);
+        Files.delete(dir);
+    }
+
+    // The original single-threaded loader, kept as the baseline
+    static List<SmartDevice> splitLoad(Path file) throws IOException {
+        List<SmartDevice> devices = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(":");
+                if (parts.length != 4) continue;
+
+                SmartDevice device;
+                switch (parts[0]) {
+                    case "SmartLight": device = new SmartLight(parts[1], parts[2]); break;
+                    case "SmartThermostat": device = new SmartThermostat(parts[1], parts[2]); break;
+                    case "SmartSecurity": device = new SmartSecurity(parts[1], parts[2]); break;
+                    default: continue;
+                }
+                device.applyOn(Boolean.parseBoolean(parts[3]));
+                devices.add(device);
+            }
+        }
+        return devices;
+    }
+
+    static List<SmartDevice> generate(int count) {
+        List<SmartDevice> devices = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String name = "Device " + i;
+            String room = "Room " + (i % 500);
+            SmartDevice device;
+            switch (i % 3) {
+                case 0: device = new SmartLight(name, room); break;
+                case 1: device = new SmartThermostat(name, room); break;
+                default: device = new SmartSecurity(name, room);
+            }
+            device.applyOn(i % 2 == 0);
+            devices.add(device);
+        }
+        return devices;
+    }
+}
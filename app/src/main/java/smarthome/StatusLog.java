@@ -0,0 +1,115 @@
+package smarthome;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import javafx.animation.AnimationTimer;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.scene.control.*;
+import javafx.scene.layout.*;
+
+// The status log at the bottom of the home tab.
+//
+// append() can be called from any thread and only offers the message to a lock-free ring
+// buffer; if the buffer is full the message is dropped and counted, the caller never waits.
+// An AnimationTimer drains the buffer once per FX pulse and adds everything it got in one
+// batch to a virtualized ListView capped at maxLines, trimming the oldest lines. A burst of
+// thousands of messages therefore costs one list update per frame instead of one runLater
+// per message, and a kiosk that runs for weeks holds at most maxLines lines.
+public class StatusLog {
+    private static final int DRAIN_PER_PULSE = 2048;
+
+    private final RingBuffer<String> pending;
+    private final int maxLines;
+    private final ObservableList<String> lines = FXCollections.observableArrayList();
+    private final ListView<String> view = new ListView<>(lines);
+    private final Label counters = new Label();
+    private final VBox node;
+    private final List<String> batch = new ArrayList<>();
+
+    private final LongAdder dropped = new LongAdder();
+    private long trimmed;
+    private long shownDropped = -1;
+    private long shownTrimmed = -1;
+
+    private final AnimationTimer pulse = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            drain();
+        }
+    };
+
+    public StatusLog(int bufferCapacity, int maxLines) {
+        this.pending = new RingBuffer<>(bufferCapacity);
+        this.maxLines = maxLines;
+
+        view.setFixedCellSize(18);
+        view.setFocusTraversable(false);
+        view.setStyle("-fx-control-inner-background: #2d3748; -fx-font-size: 12px;");
+        counters.setStyle("-fx-text-fill: #e2e8f0; -fx-font-size: 11px;");
+        node = new VBox(4, view, counters);
+        node.setPadding(Insets.EMPTY);
+        VBox.setVgrow(view, Priority.ALWAYS);
+        showCounters();
+    }
+
+    public Region node() {
+        return node;
+    }
+
+    public void start() {
+        pulse.start();
+    }
+
+    public void stop() {
+        pulse.stop();
+    }
+
+    public void append(String message) {
+        if (!pending.offer(message)) dropped.increment();
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    public long trimmed() {
+        return trimmed;
+    }
+
+    private void drain() {
+        if (pending.drain(this::split, DRAIN_PER_PULSE) > 0) {
+            lines.addAll(batch);
+            batch.clear();
+            int excess = lines.size() - maxLines;
+            if (excess > 0) {
+                lines.remove(0, excess);
+                trimmed += excess;
+            }
+            view.scrollTo(lines.size() - 1);
+        }
+        showCounters();
+    }
+
+    // Multi-line messages (device listings) become one row per line
+    private void split(String message) {
+        int start = 0;
+        String prefix = "> ";
+        int newline;
+        while ((newline = message.indexOf('\n', start)) >= 0) {
+            if (newline > start) batch.add(prefix + message.substring(start, newline));
+            prefix = "  ";
+            start = newline + 1;
+        }
+        if (start < message.length()) batch.add(prefix + message.substring(start));
+    }
+
+    private void showCounters() {
+        long drop = dropped.sum();
+        if (drop == shownDropped && trimmed == shownTrimmed) return;
+        shownDropped = drop;
+        shownTrimmed = trimmed;
+        counters.setText("Log: last " + maxLines + " lines kept · " + trimmed + " trimmed · " + drop + " dropped (buffer full)");
+    }
+}
@@ -0,0 +1,180 @@
+package smarthome;
+
+import java.util.Arrays;
+
+// One compressed block of (tick, value) samples, encoded the way Facebook's Gorilla does it.
+//
+// Ticks are stored as delta-of-deltas: a sample arriving on the same cadence as the one
+// before costs a single 0 bit, a few ticks of jitter 5 bits, larger jitter 10 to 17 bits.
+// (Gorilla's smallest case is 7 bits wide; the extra 3-bit case fits sensors reporting on
+// a fixed cadence with a little jitter at one-second resolution.)
+//
+// Values are XORed with the previous value: an unchanged value costs one bit, and a changed
+// one only its meaningful bits, reusing the previous leading/trailing zero window when it
+// fits. Values are expected in whole sensor units (21.4 °C at 0.1 °C resolution is 214.0),
+// whose doubles differ only in a few high mantissa bits, which is what keeps a typical
+// sample under two bytes.
+//
+// Chunks are append-only; readers decode from the start. Not thread-safe on its own, the
+// owning series serializes access.
+final class TelemetryChunk {
+    final long startTick;
+    private long[] words = new long[4];
+    private int bits;
+    private int count;
+    private long lastTick;
+    private long lastDelta;
+    private long lastValue;
+    private int lastLeading = -1;
+    private int lastTrailing;
+
+    TelemetryChunk(long tick, double value) {
+        startTick = tick;
+        lastTick = tick;
+        lastValue = Double.doubleToRawLongBits(value);
+        write(lastValue, 64);
+        count = 1;
+    }
+
+    int count() { return count; }
+    long lastTick() { return lastTick; }
+
+    // Ticks must not go backwards
+    void append(long tick, double value) {
+        long delta = tick - lastTick;
+        long dod = delta - lastDelta;
+        if (dod == 0) {
+            write(0, 1);
+        } else if (dod >= -3 && dod <= 4) {
+            write(0b10, 2);
+            write(dod + 3, 3);
+        } else if (dod >= -63 && dod <= 64) {
+            write(0b110, 3);
+            write(dod + 63, 7);
+        } else if (dod >= -255 && dod <= 256) {
+            write(0b1110, 4);
+            write(dod + 255, 9);
+        } else if (dod >= -2047 && dod <= 2048) {
+            write(0b11110, 5);
+            write(dod + 2047, 12);
+        } else {
+            write(0b11111, 5);
+            write(dod, 32);
+        }
+        lastDelta = delta;
+        lastTick = tick;
+
+        long bitsOfValue = Double.doubleToRawLongBits(value);
+        long xor = bitsOfValue ^ lastValue;
+        if (xor == 0) {
+            write(0, 1);
+        } else {
+            int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (lastLeading >= 0 && leading >= lastLeading && trailing >= lastTrailing) {
+                write(0b10, 2);
+                write(xor >>> lastTrailing, 64 - lastLeading - lastTrailing);
+            } else {
+                int significant = 64 - leading - trailing;
+                write(0b11, 2);
+                write(leading, 5);
+                write(significant & 63, 6); // 64 wraps to 0
+                write(xor >>> trailing, significant);
+                lastLeading = leading;
+                lastTrailing = trailing;
+            }
+        }
+        lastValue = bitsOfValue;
+        count++;
+    }
+
+    // Drops the spare capacity once the chunk is full
+    void seal() {
+        words = Arrays.copyOf(words, (bits + 63) >>> 6);
+    }
+
+    // Heap held: the bit array plus the chunk object itself
+    long estimatedBytes() {
+        return 16L + words.length * 8L + 64;
+    }
+
+    // Calls the visitor for every sample with from <= tick <= to, in order
+    void scan(long from, long to, Visitor visitor) {
+        if (lastTick < from || startTick > to) return;
+        Reader in = new Reader();
+        long tick = startTick;
+        long delta = 0;
+        long value = in.read(64);
+        int leading = 0, trailing = 0;
+        for (int i = 0; ; ) {
+            if (tick > to) return;
+            if (tick >= from) visitor.sample(tick, Double.longBitsToDouble(value));
+            if (++i == count) return;
+
+            long dod;
+            if (in.read(1) == 0) dod = 0;
+            else if (in.read(1) == 0) dod = in.read(3) - 3;
+            else if (in.read(1) == 0) dod = in.read(7) - 63;
+            else if (in.read(1) == 0) dod = in.read(9) - 255;
+            else if (in.read(1) == 0) dod = in.read(12) - 2047;
+            else dod = (int) in.read(32);
+            delta += dod;
+            tick += delta;
+
+            if (in.read(1) != 0) {
+                if (in.read(1) != 0) {
+                    leading = (int) in.read(5);
+                    int significant = (int) in.read(6);
+                    if (significant == 0) significant = 64;
+                    trailing = 64 - leading - significant;
+                }
+                value ^= in.read(64 - leading - trailing) << trailing;
+            }
+        }
+    }
+
+    interface Visitor {
+        void sample(long tick, double value);
+    }
+
+    private void write(long value, int n) {
+        if (n == 0) return;
+        int end = bits + n;
+        if (((end + 63) >>> 6) > words.length) {
+            words = Arrays.copyOf(words, Math.max(words.length * 2, (end + 63) >>> 6));
+        }
+        int word = bits >>> 6;
+        int free = 64 - (bits & 63);
+        value &= mask(n);
+        if (n <= free) {
+            words[word] |= value << (free - n);
+        } else {
+            words[word] |= value >>> (n - free);
+            words[word + 1] |= value << (64 - (n - free));
+        }
+        bits = end;
+    }
+
+    private static long mask(int n) {
+        return n == 64 ? -1L : (1L << n) - 1;
+    }
+
+    private final class Reader {
+        private int position;
+
+        long read(int n) {
+            if (n == 0) return 0;
+            int word = position >>> 6;
+            int free = 64 - (position & 63);
+            long result;
+            if (n <= free) {
+                result = (words[word] >>> (free - n)) & mask(n);
+            } else {
+                int rest = n - free;
+                result = ((words[word] & mask(free)) << rest) | (words[word + 1] >>> (64 - rest));
+            }
+            position += n;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package smarthome;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Measures what TelemetryStore needs per sample for a realistic thermostat fleet: each
+// thermostat reports its room temperature once a minute (with a second or two of jitter),
+// following a day/night setpoint schedule with some noise, for the given number of days.
+// Usage: java TelemetryFootprint [thermostats] [days]
+public class TelemetryFootprint {
+    public static void main(String[] args) {
+        int thermostats = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int days = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        long samplesPerDevice = TimeUnit.DAYS.toMinutes(days);
+        System.out.printf("📏 Recording %,d thermostats for %d days (%,d samples)...%n",
+                thermostats, days, thermostats * samplesPerDevice);
+
+        long before = usedHeap();
+        TelemetryStore store = TelemetryStore.fromSystemProperties();
+        Random random = new Random(42);
+        long start = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(days);
+        long began = System.nanoTime();
+        for (int t = 0; t < thermostats; t++) {
+            SmartThermostat thermostat = new SmartThermostat("Thermostat " + t, "Room " + (t % 200));
+            thermostat.id = t + 1;
+            double room = 20;
+            long time = start + random.nextInt(60_000);
+            for (long i = 0; i < samplesPerDevice; i++) {
+                long minuteOfDay = i % 1440;
+                double setpoint = minuteOfDay >= 7 * 60 && minuteOfDay < 23 * 60 ? 21.5 : 18;
+                room += (setpoint - room) * 0.02 + random.nextGaussian() * 0.02;
+                store.record(thermostat, TelemetryStore.Metric.TEMPERATURE, time + random.nextInt(2000), room);
+                time += 60_000;
+            }
+        }
+        long nanos = System.nanoTime() - began;
+        long heap = usedHeap() - before;
+
+        long samples = store.rawSamples();
+        System.out.println(store.stats());
+        System.out.printf("⚡ %.0f ns per sample recorded%n", (double) nanos / (thermostats * samplesPerDevice));
+        System.out.printf("🧱 Heap: %,d bytes (%.2f bytes/sample including rollups and indexes)%n",
+                heap, (double) heap / samples);
+        System.out.println("✅ " + store.seriesCount() + " series");
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
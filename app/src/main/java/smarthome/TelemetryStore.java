@@ -0,0 +1,494 @@
+package smarthome;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// In-memory history of device telemetry, compressed so months of it fit in RAM.
+//
+// Each (device, metric) pair is a series. Raw samples go into TelemetryChunks, one per
+// telemetry.chunkMinutes window, after rounding the value to the metric's sensor resolution
+// and the time to telemetry.resolutionMs. Every sample is also folded into a 1-minute rollup
+// (min, max, sum, count), and each finished minute into a 1-hour rollup; rollups are stored as
+// four compressed streams of their own. Each level keeps its own history - raw
+// telemetry.rawDays, minutes telemetry.minuteDays, hours telemetry.hourDays - counted back
+// from the series' newest sample, and old chunks are dropped whole.
+//
+// Samples are append-only per series. One that arrives out of order by less than the time
+// resolution is stamped with the previous time; older ones are rejected and counted.
+// Recording and querying lock only the series involved.
+public class TelemetryStore {
+    public enum Metric {
+        TEMPERATURE(0.1),   // measured room temperature, °C
+        SETPOINT(0.1),      // thermostat target, °C
+        BRIGHTNESS(1),      // effective light level, % (0 while off)
+        POWER(0.1),         // power draw, W
+        MOTION(1);          // 1 while motion is seen
+
+        final double resolution;
+
+        Metric(double resolution) {
+            this.resolution = resolution;
+        }
+    }
+
+    public enum Resolution {
+        MINUTE(60_000), HOUR(3_600_000);
+
+        final long millis;
+
+        Resolution(long millis) {
+            this.millis = millis;
+        }
+    }
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final int MIN = 0, MAX = 1, SUM = 2, COUNT = 3;
+
+    private final long resolutionMs;
+    private final long chunkMillis;
+    private final long rawRetention, minuteRetention, hourRetention;
+    private final Map<Long, Series> series = new ConcurrentHashMap<>();
+    private final Map<String, Set<Series>> byRoom = new ConcurrentHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+
+    public TelemetryStore(long resolutionMs, int chunkMinutes, int rawDays, int minuteDays, int hourDays) {
+        this.resolutionMs = Math.max(1, resolutionMs);
+        // Ticks inside a chunk must stay within the 32-bit delta-of-delta case
+        this.chunkMillis = Math.min(TimeUnit.MINUTES.toMillis(Math.max(1, chunkMinutes)), this.resolutionMs * Integer.MAX_VALUE / 2);
+        this.rawRetention = rawDays * DAY;
+        this.minuteRetention = minuteDays * DAY;
+        this.hourRetention = hourDays * DAY;
+    }
+
+    // telemetry.resolutionMs (1000), telemetry.chunkMinutes (120), telemetry.rawDays (90),
+    // telemetry.minuteDays (7), telemetry.hourDays (730)
+    public static TelemetryStore fromSystemProperties() {
+        return new TelemetryStore(Long.getLong("telemetry.resolutionMs", 1000),
+                Integer.getInteger("telemetry.chunkMinutes", 120),
+                Integer.getInteger("telemetry.rawDays", 90),
+                Integer.getInteger("telemetry.minuteDays", 7),
+                Integer.getInteger("telemetry.hourDays", 730));
+    }
+
+    // Returns false if the sample was too far out of order to store
+    public boolean record(SmartDevice device, Metric metric, long timeMillis, double value) {
+        Series target = series.computeIfAbsent(key(device.getId(), metric), k -> {
+            Series created = new Series(device.getId(), metric);
+            byRoom.computeIfAbsent(roomKey(device.getRoom()), r -> ConcurrentHashMap.newKeySet()).add(created);
+            return created;
+        });
+        synchronized (target) {
+            if (target.add(timeMillis, value)) return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    // Records brightness and thermostat setpoint history from the registry's event bus, on a
+    // thread of its own, starting with every device's current state
+    public DeviceEventBus.Subscription follow(DeviceRegistry registry) {
+        ExecutorService recorder = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "telemetry-recorder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        DeviceEventBus.Subscription subscription = registry.events().subscribe("telemetry", 65_536,
+                DeviceEventBus.Policy.DROP, recorder, event -> {
+                    if (event.type() != DeviceEvent.Type.CHANGED && event.type() != DeviceEvent.Type.ADDED) return;
+                    long time = System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - event.timeNanos());
+                    recordState(event.device(), event.property(), time);
+                });
+        recorder.execute(() -> {
+            long now = System.currentTimeMillis();
+            for (SmartDevice device : registry) {
+                recordState(device, null, now);
+            }
+        });
+        return subscription;
+    }
+
+    // property null records everything the device has history for
+    private void recordState(SmartDevice device, DeviceProperty property, long time) {
+        if (device instanceof SmartLight) {
+            if (property == null || property == DeviceProperty.POWER || property == DeviceProperty.BRIGHTNESS) {
+                SmartLight light = (SmartLight) device;
+                record(device, Metric.BRIGHTNESS, time, light.isOn() ? light.getBrightness() : 0);
+            }
+        } else if (device instanceof SmartThermostat) {
+            if (property == null || property == DeviceProperty.TEMPERATURE) {
+                record(device, Metric.SETPOINT, time, ((SmartThermostat) device).getTemperature());
+            }
+        }
+    }
+
+    // Raw samples of one series with from <= time <= to
+    public List<Sample> range(int deviceId, Metric metric, long from, long to) {
+        Series found = series.get(key(deviceId, metric));
+        if (found == null) return Collections.emptyList();
+        synchronized (found) {
+            return found.range(from, to);
+        }
+    }
+
+    // Rollup buckets of one series starting within [from, to], including the unfinished one
+    public List<Rollup> rollups(int deviceId, Metric metric, Resolution resolution, long from, long to) {
+        Series found = series.get(key(deviceId, metric));
+        if (found == null) return Collections.emptyList();
+        synchronized (found) {
+            return found.rollups(resolution, from, to);
+        }
+    }
+
+    // Raw samples of every device in the room, by device id
+    public Map<Integer, List<Sample>> roomRange(String room, Metric metric, long from, long to) {
+        Map<Integer, List<Sample>> result = new TreeMap<>();
+        for (Series member : inRoom(room, metric)) {
+            synchronized (member) {
+                result.put(member.deviceId, member.range(from, to));
+            }
+        }
+        return result;
+    }
+
+    // Rollups merged across every device in the room: min of mins, max of maxes, overall mean
+    public List<Rollup> roomRollups(String room, Metric metric, Resolution resolution, long from, long to) {
+        TreeMap<Long, Rollup> merged = new TreeMap<>();
+        for (Series member : inRoom(room, metric)) {
+            List<Rollup> buckets;
+            synchronized (member) {
+                buckets = member.rollups(resolution, from, to);
+            }
+            for (Rollup bucket : buckets) {
+                merged.merge(bucket.start, bucket, Rollup::merge);
+            }
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    public int seriesCount() { return series.size(); }
+    public long rejected() { return rejected.sum(); }
+
+    // Raw samples currently held, and the heap they take
+    public long rawSamples() {
+        long samples = 0;
+        for (Series member : series.values()) {
+            synchronized (member) {
+                samples += member.raw.samples();
+            }
+        }
+        return samples;
+    }
+
+    public long rawBytes() {
+        long bytes = 0;
+        for (Series member : series.values()) {
+            synchronized (member) {
+                bytes += member.raw.estimatedBytes();
+            }
+        }
+        return bytes;
+    }
+
+    public long rollupBytes() {
+        long bytes = 0;
+        for (Series member : series.values()) {
+            synchronized (member) {
+                bytes += estimatedBytes(member.minutes) + estimatedBytes(member.hours);
+            }
+        }
+        return bytes;
+    }
+
+    private static long estimatedBytes(Stream[] streams) {
+        long bytes = 0;
+        for (int i = 0; streams != null && i < streams.length; i++) {
+            bytes += streams[i].estimatedBytes();
+        }
+        return bytes;
+    }
+
+    public String stats() {
+        long samples = rawSamples();
+        long raw = rawBytes();
+        return String.format("📈 %,d series, %,d samples in %,d bytes (%.2f bytes/sample), rollups %,d bytes, %,d rejected",
+                seriesCount(), samples, raw, samples == 0 ? 0.0 : (double) raw / samples, rollupBytes(), rejected());
+    }
+
+    private List<Series> inRoom(String room, Metric metric) {
+        Set<Series> members = byRoom.get(roomKey(room));
+        if (members == null) return Collections.emptyList();
+        List<Series> found = new ArrayList<>();
+        for (Series member : members) {
+            if (member.metric == metric) found.add(member);
+        }
+        return found;
+    }
+
+    private static long key(int deviceId, Metric metric) {
+        return ((long) deviceId << 8) | metric.ordinal();
+    }
+
+    private static String roomKey(String room) {
+        return room == null ? "" : room.toLowerCase(Locale.ROOT);
+    }
+
+    public static final class Sample {
+        private final long time;
+        private final double value;
+
+        Sample(long time, double value) {
+            this.time = time;
+            this.value = value;
+        }
+
+        public long time() { return time; }
+        public double value() { return value; }
+
+        @Override
+        public String toString() { return time + "=" + value; }
+    }
+
+    public static final class Rollup {
+        private final long start;
+        private final double min, max, sum;
+        private final long count;
+
+        Rollup(long start, double min, double max, double sum, long count) {
+            this.start = start;
+            this.min = min;
+            this.max = max;
+            this.sum = sum;
+            this.count = count;
+        }
+
+        public long start() { return start; }
+        public double min() { return min; }
+        public double max() { return max; }
+        public double mean() { return count == 0 ? 0 : sum / count; }
+        public long count() { return count; }
+
+        Rollup merge(Rollup other) {
+            return new Rollup(start, Math.min(min, other.min), Math.max(max, other.max), sum + other.sum, count + other.count);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d: min %.1f, mean %.2f, max %.1f (%d samples)", start, min, mean(), max, count);
+        }
+    }
+
+    // Chunks of one stream, oldest first; a new chunk starts every chunkTicks.
+    // Series far outnumber chunks at first, so nothing is allocated before the first sample.
+    private static final class Stream {
+        private ArrayDeque<TelemetryChunk> chunks;
+        private final long chunkTicks;
+        private final long retentionTicks;
+        private TelemetryChunk open;
+
+        Stream(long chunkTicks, long retentionTicks) {
+            this.chunkTicks = Math.max(1, chunkTicks);
+            this.retentionTicks = retentionTicks;
+        }
+
+        void append(long tick, double value) {
+            if (open != null && tick < open.startTick + chunkTicks) {
+                open.append(tick, value);
+                return;
+            }
+            if (open != null) open.seal();
+            open = new TelemetryChunk(tick, value);
+            if (chunks == null) chunks = new ArrayDeque<>(4);
+            chunks.add(open);
+            while (chunks.peekFirst().lastTick() < tick - retentionTicks) {
+                chunks.removeFirst();
+            }
+        }
+
+        void scan(long from, long to, TelemetryChunk.Visitor visitor) {
+            if (chunks == null) return;
+            for (TelemetryChunk chunk : chunks) {
+                if (chunk.startTick > to) return;
+                chunk.scan(from, to, visitor);
+            }
+        }
+
+        long samples() {
+            long samples = 0;
+            if (chunks == null) return 0;
+            for (TelemetryChunk chunk : chunks) {
+                samples += chunk.count();
+            }
+            return samples;
+        }
+
+        long estimatedBytes() {
+            long bytes = 0;
+            if (chunks == null) return 0;
+            for (TelemetryChunk chunk : chunks) {
+                bytes += chunk.estimatedBytes();
+            }
+            return bytes;
+        }
+    }
+
+    // Running min/max/sum/count of one unfinished rollup bucket, in sensor units
+    private static final class Bucket {
+        long start = Long.MIN_VALUE;
+        double min, max, sum;
+        long count;
+
+        void add(double min, double max, double sum, long count) {
+            if (this.count == 0) {
+                this.min = min;
+                this.max = max;
+            } else {
+                this.min = Math.min(this.min, min);
+                this.max = Math.max(this.max, max);
+            }
+            this.sum += sum;
+            this.count += count;
+        }
+
+        void reset(long start) {
+            this.start = start;
+            min = max = sum = 0;
+            count = 0;
+        }
+    }
+
+    // Decoded (tick, value) pairs of one rollup stream
+    private static final class Column implements TelemetryChunk.Visitor {
+        long[] ticks = new long[64];
+        double[] values = new double[64];
+        int size;
+
+        @Override
+        public void sample(long tick, double value) {
+            if (size == ticks.length) {
+                ticks = Arrays.copyOf(ticks, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            ticks[size] = tick;
+            values[size++] = value;
+        }
+    }
+
+    private final class Series {
+        final int deviceId;
+        final Metric metric;
+        final Stream raw;
+        Stream[] minutes, hours; // created when the first minute closes
+        final Bucket minute = new Bucket();
+        final Bucket hour = new Bucket();
+        long lastMillis = Long.MIN_VALUE;
+
+        Series(int deviceId, Metric metric) {
+            this.deviceId = deviceId;
+            this.metric = metric;
+            raw = new Stream(chunkMillis / resolutionMs, rawRetention / resolutionMs);
+        }
+
+        boolean add(long millis, double value) {
+            if (millis < lastMillis) {
+                if (lastMillis - millis >= resolutionMs) return false;
+                millis = lastMillis;
+            }
+            lastMillis = millis;
+            double units = Math.rint(value / metric.resolution);
+            raw.append(Math.floorDiv(millis, resolutionMs), units);
+
+            long minuteTick = Math.floorDiv(millis, Resolution.MINUTE.millis);
+            if (minute.count > 0 && minute.start != minuteTick) closeMinute();
+            if (minute.count == 0) minute.reset(minuteTick);
+            minute.add(units, units, units, 1);
+            return true;
+        }
+
+        // Writes the finished minute out and folds it into its hour
+        private void closeMinute() {
+            if (minutes == null) {
+                minutes = new Stream[4];
+                hours = new Stream[4];
+                for (int i = 0; i < 4; i++) {
+                    minutes[i] = new Stream(DAY / Resolution.MINUTE.millis, minuteRetention / Resolution.MINUTE.millis);
+                    hours[i] = new Stream(30 * DAY / Resolution.HOUR.millis, hourRetention / Resolution.HOUR.millis);
+                }
+            }
+            write(minutes, minute.start, minute);
+            long hourTick = Math.floorDiv(minute.start * Resolution.MINUTE.millis, Resolution.HOUR.millis);
+            if (hour.count > 0 && hour.start != hourTick) {
+                write(hours, hour.start, hour);
+                hour.count = 0;
+            }
+            if (hour.count == 0) hour.reset(hourTick);
+            hour.add(minute.min, minute.max, minute.sum, minute.count);
+            minute.count = 0;
+        }
+
+        private void write(Stream[] streams, long tick, Bucket bucket) {
+            streams[MIN].append(tick, bucket.min);
+            streams[MAX].append(tick, bucket.max);
+            streams[SUM].append(tick, bucket.sum);
+            streams[COUNT].append(tick, bucket.count);
+        }
+
+        List<Sample> range(long from, long to) {
+            List<Sample> samples = new ArrayList<>();
+            double scale = metric.resolution;
+            raw.scan(Math.floorDiv(from, resolutionMs), Math.floorDiv(to, resolutionMs),
+                    (tick, units) -> samples.add(new Sample(tick * resolutionMs, units * scale)));
+            return samples;
+        }
+
+        List<Rollup> rollups(Resolution resolution, long from, long to) {
+            Stream[] streams = resolution == Resolution.MINUTE ? minutes : hours;
+            long fromTick = Math.floorDiv(from, resolution.millis);
+            long toTick = Math.floorDiv(to, resolution.millis);
+            Column[] columns = new Column[4];
+            for (int i = 0; i < 4; i++) {
+                columns[i] = new Column();
+                if (streams != null) streams[i].scan(fromTick, toTick, columns[i]);
+            }
+            double scale = metric.resolution;
+            List<Rollup> result = new ArrayList<>(columns[MIN].size + 2);
+            for (int j = 0; j < columns[MIN].size; j++) {
+                result.add(new Rollup(columns[MIN].ticks[j] * resolution.millis, columns[MIN].values[j] * scale,
+                        columns[MAX].values[j] * scale, columns[SUM].values[j] * scale, (long) columns[COUNT].values[j]));
+            }
+            // Unfinished buckets: the open minute, or the open hour plus the open minute, which
+            // belongs to it or, right after an hour boundary, already to the next one
+            List<Bucket> open = new ArrayList<>(2);
+            if (resolution == Resolution.MINUTE) {
+                if (minute.count > 0) open.add(copy(minute.start, minute));
+            } else {
+                if (hour.count > 0) open.add(copy(hour.start, hour));
+                if (minute.count > 0) {
+                    long minuteHour = Math.floorDiv(minute.start * Resolution.MINUTE.millis, Resolution.HOUR.millis);
+                    if (hour.count > 0 && hour.start == minuteHour) {
+                        open.get(0).add(minute.min, minute.max, minute.sum, minute.count);
+                    } else {
+                        open.add(copy(minuteHour, minute));
+                    }
+                }
+            }
+            for (Bucket bucket : open) {
+                if (bucket.start >= fromTick && bucket.start <= toTick) {
+                    result.add(new Rollup(bucket.start * resolution.millis, bucket.min * scale,
+                            bucket.max * scale, bucket.sum * scale, bucket.count));
+                }
+            }
+            return result;
+        }
+
+        private Bucket copy(long start, Bucket from) {
+            Bucket bucket = new Bucket();
+            bucket.reset(start);
+            bucket.add(from.min, from.max, from.sum, from.count);
+            return bucket;
+        }
+    }
+}
@@ -0,0 +1,634 @@
+package smarthome;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+// Voice commands compiled into a token trie.
+//
+// The grammar below is compiled once: every word gets a token id in a character trie, and
+// each phrase (optional parts expanded) becomes a path in a trie of tokens and slots. A
+// command is tokenized in place into reusable arrays - no substrings, no split(), numbers
+// parsed by hand - and matched by walking the trie, backtracking only where a slot could
+// end in more than one place. Rooms and device names come from the registry: they are
+// compiled into their own token tries, rebuilt lazily after devices are added or removed.
+// Words only names use get ids from a table rebuilt with those tries, so the grammar's
+// vocabulary never grows, and a number in a name ("Light 5") matches the spoken number.
+//
+// Slots: {target} is a set of devices ("everything", "bedroom lights", "all thermostats",
+// "lights in the kitchen", "Bedroom Lamp"), {number} a number, {word} any single word.
+// The tokenizer and match state are reused, so parse() and execute() take the engine's lock:
+// the console, the GUI and automations can share one engine, one command at a time.
+public class VoiceCommandEngine implements DeviceListener {
+    public enum Intent { POWER_ON, POWER_OFF, SET_LEVEL, BRIGHTNESS, TEMPERATURE, COLOR, MODE, ARM, DISARM, GOOD_NIGHT, SCENE }
+
+    private static final String[][] GRAMMAR = {
+        { "POWER_ON", "turn on {target} [except {target}]", "switch on {target} [except {target}]",
+                      "turn {target} on [except {target}]", "power on {target} [except {target}]", "{target} on" },
+        { "POWER_OFF", "turn off {target} [except {target}]", "switch off {target} [except {target}]",
+                       "turn {target} off [except {target}]", "shut off {target} [except {target}]",
+                       "power off {target} [except {target}]", "{target} off" },
+        { "SET_LEVEL", "set {target} to {number}" },
+        { "BRIGHTNESS", "dim {target} to {number}", "brighten {target} to {number}",
+                        "set {target} brightness to {number}", "set brightness [in] {target} to {number}" },
+        { "TEMPERATURE", "set [{target}] temperature to {number}", "set temperature in {target} to {number}" },
+        { "COLOR", "set {target} color to {word}", "set {target} colour to {word}",
+                   "change {target} color to {word}", "change {target} colour to {word}" },
+        { "MODE", "set [{target}] mode to {word}", "change [{target}] mode to {word}" },
+        { "ARM", "arm [{target}]" },
+        { "DISARM", "disarm [{target}]" },
+        { "GOOD_NIGHT", "good night", "goodnight" },
+        { "SCENE", "activate {word} [scene]", "run {word} scene", "start {word} scene", "{word} scene", "scene {word}" },
+    };
+
+    // Words dropped while tokenizing, in commands and in room/device names alike
+    private static final String[] STOP_WORDS = {
+        "the", "a", "an", "my", "of", "please", "percent", "degrees", "degree", "celsius", "now"
+    };
+
+    private static final String[][] TYPE_WORDS = {
+        { "light", "lights", "lamp", "lamps" },
+        { "thermostat", "thermostats", "heater", "heaters" },
+        { "security", "alarm", "alarms" },
+        { "device", "devices" },
+    };
+    private static final Class<?>[] TYPES = { SmartLight.class, SmartThermostat.class, SmartSecurity.class, SmartDevice.class };
+
+    private static final int MAX_TOKENS = 32;
+    private static final int MAX_SLOTS = 4;
+    private static final int UNKNOWN = -1;
+    private static final int NUMBER = -2;
+    private static final int STOP = -3;
+
+    private static final char TARGET = 't';
+    private static final char NUM = 'n';
+    private static final char WORD = 'w';
+
+    private final DeviceRegistry registry;
+    private final SceneEngine scenes;
+    private final Map<String, Integer> vocabulary = new HashMap<>();
+    private final CharNode words = new CharNode();
+    private final TokenNode grammar = new TokenNode();
+    private final int tokenAll, tokenEverything, tokenIn, typeBase;
+    // Type words keep their own token ids (so "bedroom lights" never equals "bedroom lamp"); this maps them to a type
+    private final List<Class<?>> typeOfToken = new ArrayList<>();
+    private TokenNode rooms;
+    private TokenNode names;
+    private CharNode nameWords = new CharNode();
+    private volatile boolean stale = true;
+
+    // Tokenizer output and match state, reused by every command
+    private String input;
+    private final int[] ids = new int[MAX_TOKENS];
+    private final int[] starts = new int[MAX_TOKENS];
+    private final int[] ends = new int[MAX_TOKENS];
+    private final double[] values = new double[MAX_TOKENS];
+    // For a NUMBER token, the name word with the same digits, if any
+    private final int[] numberWords = new int[MAX_TOKENS];
+    private int count;
+    private Rule rule;
+    private final double[] numbers = new double[MAX_SLOTS];
+    private final int[] wordStarts = new int[MAX_SLOTS];
+    private final int[] wordEnds = new int[MAX_SLOTS];
+    private final Target[] targets = new Target[MAX_SLOTS];
+    private final Target candidate = new Target();
+
+    public VoiceCommandEngine(DeviceRegistry registry, SceneEngine scenes) {
+        this.registry = registry;
+        this.scenes = scenes;
+        for (String stop : STOP_WORDS) {
+            define(stop, STOP);
+        }
+        typeBase = vocabulary.size();
+        for (int i = 0; i < TYPE_WORDS.length; i++) {
+            for (String word : TYPE_WORDS[i]) {
+                define(word, vocabulary.size());
+                typeOfToken.add(TYPES[i]);
+            }
+        }
+        tokenAll = token("all");
+        tokenEverything = token("everything");
+        tokenIn = token("in");
+        for (String[] group : GRAMMAR) {
+            Intent intent = Intent.valueOf(group[0]);
+            for (int i = 1; i < group.length; i++) {
+                for (String phrase : expand(group[i])) {
+                    compile(intent, phrase);
+                }
+            }
+        }
+        for (int i = 0; i < MAX_SLOTS; i++) {
+            targets[i] = new Target();
+        }
+        registry.addListener(this);
+    }
+
+    @Override
+    public void deviceAdded(SmartDevice device) { stale = true; }
+
+    @Override
+    public void deviceRemoved(SmartDevice device) { stale = true; }
+
+    // Parses a command without touching any device; returns the intent or null
+    public synchronized Intent parse(String spoken) {
+        if (stale) rebuildEntities();
+        tokenize(spoken);
+        rule = null;
+        if (count == 0 || count == MAX_TOKENS) return null;
+        return match(grammar, 0, 0) ? rule.intent : null;
+    }
+
+    // Parses and applies a command; returns what to tell the user
+    public synchronized String execute(String spoken) {
+        Intent intent = parse(spoken);
+        if (intent == null) {
+            return "❌ Command not recognized! Try 'dim bedroom lights to 30' or 'turn off everything except security'.";
+        }
+        Target target = slot(TARGET, 0);
+        Target except = slot(TARGET, 1);
+        if (target == null) {
+            // Phrases without a target ("arm", "set temperature to 21") mean every matching device
+            target = targets[MAX_SLOTS - 1];
+            target.reset();
+            target.everything = true;
+        }
+        int touched;
+        switch (intent) {
+            case POWER_ON:
+                touched = apply(target, except, SmartDevice.class, SmartDevice::turnOn);
+                return touched == 0 ? nothing(spoken) : "✅ Turned ON " + describe(touched, target, except);
+            case POWER_OFF:
+                touched = apply(target, except, SmartDevice.class, SmartDevice::turnOff);
+                return touched == 0 ? nothing(spoken) : "✅ Turned OFF " + describe(touched, target, except);
+            case BRIGHTNESS:
+                return brightness(spoken, target, except);
+            case TEMPERATURE:
+                return temperature(spoken, target, except);
+            case SET_LEVEL:
+                // "set thermostat to 21" is a temperature; anything else ("set kitchen to 40") a brightness
+                return target.isThermostat() ? temperature(spoken, target, except) : brightness(spoken, target, except);
+            case COLOR: {
+                String color = capitalized(WORD);
+                touched = apply(target, except, SmartLight.class, light -> ((SmartLight) light).setColor(color));
+                return touched == 0 ? nothing(spoken) : "🎨 Color set to " + color + " on " + describe(touched, target, except);
+            }
+            case MODE: {
+                String mode = capitalized(WORD);
+                touched = apply(target, except, SmartThermostat.class, t -> ((SmartThermostat) t).setMode(mode));
+                return touched == 0 ? nothing(spoken) : "🔄 Mode set to " + mode + " on " + describe(touched, target, except);
+            }
+            case ARM:
+                touched = apply(target, except, SmartSecurity.class, security -> {
+                    security.turnOn();
+                    ((SmartSecurity) security).armSystem();
+                });
+                return touched == 0 ? nothing(spoken) : "🚨 Armed " + describe(touched, target, except);
+            case DISARM:
+                touched = apply(target, except, SmartSecurity.class, security -> ((SmartSecurity) security).disarmSystem());
+                return touched == 0 ? nothing(spoken) : "✅ Disarmed " + describe(touched, target, except);
+            case GOOD_NIGHT:
+                return scene("night", "🌙 Good night! ");
+            case SCENE:
+                return scene(capitalized(WORD), "");
+            default:
+                return nothing(spoken);
+        }
+    }
+
+    private String brightness(String spoken, Target target, Target except) {
+        int level = (int) Math.max(0, Math.min(100, Math.round(slotNumber())));
+        int touched = apply(target, except, SmartLight.class, light -> ((SmartLight) light).setBrightness(level));
+        if (touched == 0) return nothing(spoken);
+        return "💡 Brightness set to " + level + "% on " + describe(touched, target, except);
+    }
+
+    private String temperature(String spoken, Target target, Target except) {
+        double temp = slotNumber();
+        int touched = apply(target, except, SmartThermostat.class, thermostat -> {
+            thermostat.turnOn();
+            ((SmartThermostat) thermostat).setTemperature(temp);
+        });
+        if (touched == 0) return nothing(spoken);
+        return "✅ Temperature set to " + temp + "°C on " + describe(touched, target, except);
+    }
+
+    private String scene(String name, String greeting) {
+        if (!scenes.has(name)) return "❌ No scene named '" + name + "'. Scenes: " + String.join(", ", scenes.names());
+        try {
+            return greeting + scenes.apply(name);
+        } catch (IllegalStateException e) {
+            return "❌ " + e.getMessage();
+        }
+    }
+
+    private static String nothing(String spoken) {
+        return "🤷 No matching devices for '" + spoken + "'";
+    }
+
+    // Runs the action on every device of the given kind in target and not in except
+    private int apply(Target target, Target except, Class<?> kind,
+                      Consumer<SmartDevice> action) {
+        int touched = 0;
+        for (SmartDevice device : target.candidates(registry)) {
+            if (!kind.isInstance(device) || !target.matches(device)) continue;
+            if (except != null && except.matches(device)) continue;
+            action.accept(device);
+            touched++;
+        }
+        return touched;
+    }
+
+    private static String describe(int touched, Target target, Target except) {
+        String text = touched + (touched == 1 ? " device" : " devices");
+        if (target.device != null) text = target.device.getName();
+        else if (target.room != null) text += " in " + target.room;
+        if (except != null) text += " (except " + except + ")";
+        return text;
+    }
+
+    // ---- matching ----
+
+    private boolean match(TokenNode node, int pos, int slot) {
+        if (pos == count && node.rule != null) {
+            rule = node.rule;
+            return true;
+        }
+        if (pos == count) return false;
+        TokenNode next = node.child(ids[pos]);
+        if (next != null && match(next, pos + 1, slot)) return true;
+        if (node.number != null && ids[pos] == NUMBER) {
+            numbers[slot] = values[pos];
+            if (match(node.number, pos + 1, slot + 1)) return true;
+        }
+        if (node.word != null && ids[pos] != NUMBER) {
+            wordStarts[slot] = starts[pos];
+            wordEnds[slot] = ends[pos];
+            if (match(node.word, pos + 1, slot + 1)) return true;
+        }
+        if (node.target != null) {
+            // Longest target first, then shorter ones if the rest of the phrase does not fit
+            Target target = targets[slot];
+            for (int end = matchTarget(pos, count, target); end > pos; end = matchTarget(pos, end - 1, target)) {
+                if (match(node.target, end, slot + 1)) return true;
+            }
+        }
+        return false;
+    }
+
+    // Fills target with the longest device set starting at pos and ending by limit; returns its end
+    private int matchTarget(int pos, int limit, Target target) {
+        target.reset();
+        if (pos >= limit) return pos;
+        if (ids[pos] == tokenEverything) {
+            target.everything = true;
+            return pos + 1;
+        }
+        int p = pos;
+        if (ids[p] == tokenAll) {
+            p++;
+            target.everything = true;
+        }
+        int best = target.everything ? p : pos;
+
+        // A device by name
+        int end = longest(names, p, limit, candidate);
+        if (end > best) {
+            best = end;
+            target.device = candidate.device;
+            target.everything = false;
+        }
+        // A room, optionally followed by a type: "bedroom", "bedroom lights"
+        end = longest(rooms, p, limit, candidate);
+        if (end > p) {
+            String room = candidate.room;
+            Class<?> type = null;
+            if (end < limit && isType(ids[end])) type = typeOfToken.get(ids[end++] - typeBase);
+            if (end > best) {
+                best = end;
+                target.reset();
+                target.room = room;
+                target.type = type;
+            }
+        }
+        // A type, optionally followed by "in <room>": "lights", "lights in the kitchen"
+        if (p < limit && isType(ids[p])) {
+            Class<?> type = typeOfToken.get(ids[p] - typeBase);
+            end = p + 1;
+            String room = null;
+            if (end < limit && ids[end] == tokenIn) {
+                int roomEnd = longest(rooms, end + 1, limit, candidate);
+                if (roomEnd > end + 1) {
+                    room = candidate.room;
+                    end = roomEnd;
+                }
+            }
+            if (end > best) {
+                best = end;
+                target.reset();
+                target.type = type;
+                target.room = room;
+            }
+        }
+        return best;
+    }
+
+    private int longest(TokenNode trie, int pos, int limit, Target found) {
+        int end = pos;
+        TokenNode node = trie;
+        for (int p = pos; p < limit && node != null; p++) {
+            node = node.child(ids[p] == NUMBER ? numberWords[p] : ids[p]);
+            if (node != null && node.entity != null) {
+                end = p + 1;
+                if (node.entity instanceof SmartDevice) found.device = (SmartDevice) node.entity;
+                else found.room = (String) node.entity;
+            }
+        }
+        return end;
+    }
+
+    private boolean isType(int id) {
+        return id >= typeBase && id < typeBase + typeOfToken.size();
+    }
+
+    private Target slot(char kind, int nth) {
+        if (rule == null) return null;
+        for (int i = 0; i < rule.slots.length; i++) {
+            if (rule.slots[i] == kind && nth-- == 0) return targets[i];
+        }
+        return null;
+    }
+
+    private double slotNumber() {
+        for (int i = 0; i < rule.slots.length; i++) {
+            if (rule.slots[i] == NUM) return numbers[i];
+        }
+        return 0;
+    }
+
+    private String capitalized(char kind) {
+        for (int i = 0; i < rule.slots.length; i++) {
+            if (rule.slots[i] == kind) {
+                String word = input.substring(wordStarts[i], wordEnds[i]).toLowerCase(Locale.ROOT);
+                return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+            }
+        }
+        return "";
+    }
+
+    // ---- tokenizing ----
+
+    private void tokenize(String text) {
+        input = text;
+        count = 0;
+        int length = text.length();
+        int i = 0;
+        while (i < length && count < MAX_TOKENS) {
+            char c = text.charAt(i);
+            boolean signed = (c == '-' || c == '.') && i + 1 < length && Character.isDigit(text.charAt(i + 1));
+            if (Character.isDigit(c) || signed) {
+                int start = i;
+                boolean negative = c == '-';
+                if (negative) i++;
+                double value = 0;
+                while (i < length && Character.isDigit(text.charAt(i))) {
+                    value = value * 10 + (text.charAt(i++) - '0');
+                }
+                if (i < length && text.charAt(i) == '.') {
+                    i++;
+                    double scale = 0.1;
+                    while (i < length && Character.isDigit(text.charAt(i))) {
+                        value += (text.charAt(i++) - '0') * scale;
+                        scale /= 10;
+                    }
+                }
+                CharNode word = nameWords;
+                for (int k = start; k < i && word != null; k++) {
+                    word = word.child(text.charAt(k));
+                }
+                ids[count] = NUMBER;
+                numberWords[count] = word == null ? UNKNOWN : word.token;
+                values[count] = negative ? -value : value;
+                starts[count] = start;
+                ends[count++] = i;
+            } else if (Character.isLetter(c)) {
+                int start = i;
+                CharNode node = words;
+                CharNode name = nameWords;
+                while (i < length && (Character.isLetterOrDigit(text.charAt(i)) || text.charAt(i) == '\'')) {
+                    char lower = Character.toLowerCase(text.charAt(i));
+                    if (node != null) node = node.child(lower);
+                    if (name != null) name = name.child(lower);
+                    i++;
+                }
+                int id = node == null ? UNKNOWN : node.token;
+                if (id == UNKNOWN && name != null) id = name.token;
+                if (id == STOP) continue;
+                ids[count] = id;
+                starts[count] = start;
+                ends[count++] = i;
+            } else {
+                i++;
+            }
+        }
+    }
+
+    // ---- compiling ----
+
+    // Cleared first, so a device added while the tries are rebuilt marks them stale again
+    private void rebuildEntities() {
+        stale = false;
+        rooms = new TokenNode();
+        names = new TokenNode();
+        Map<String, Integer> table = new HashMap<>();
+        CharNode trie = new CharNode();
+        for (String room : registry.rooms()) {
+            insertEntity(rooms, room, room, table, trie);
+        }
+        for (SmartDevice device : registry) {
+            insertEntity(names, device.getName(), device, table, trie);
+        }
+        nameWords = trie;
+    }
+
+    // Grammar words keep their ids; any other word gets the next id after the grammar's
+    private void insertEntity(TokenNode trie, String text, Object entity, Map<String, Integer> table, CharNode chars) {
+        TokenNode node = trie;
+        int added = 0;
+        for (String word : words(text)) {
+            Integer id = vocabulary.get(word);
+            if (id == null) id = table.get(word);
+            if (id == null) id = define(table, chars, word, vocabulary.size() + table.size());
+            if (id == STOP) continue;
+            node = node.childOrNew(id);
+            added++;
+        }
+        // First device wins when two share a name
+        if (added > 0 && node.entity == null) node.entity = entity;
+    }
+
+    private void compile(Intent intent, String phrase) {
+        TokenNode node = grammar;
+        StringBuilder slots = new StringBuilder();
+        for (String part : phrase.trim().split("\\s+")) {
+            if (part.equals("{target}")) {
+                if (node.target == null) node.target = new TokenNode();
+                node = node.target;
+                slots.append(TARGET);
+            } else if (part.equals("{number}")) {
+                if (node.number == null) node.number = new TokenNode();
+                node = node.number;
+                slots.append(NUM);
+            } else if (part.equals("{word}")) {
+                if (node.word == null) node.word = new TokenNode();
+                node = node.word;
+                slots.append(WORD);
+            } else {
+                node = node.childOrNew(token(part));
+            }
+        }
+        if (slots.length() > MAX_SLOTS - 1) {
+            throw new IllegalArgumentException("Too many slots in '" + phrase + "'");
+        }
+        if (node.rule == null) node.rule = new Rule(intent, slots.toString().toCharArray());
+    }
+
+    // "turn on {target} [except {target}]" -> with and without the optional part
+    private static List<String> expand(String phrase) {
+        int open = phrase.indexOf('[');
+        if (open < 0) return List.of(phrase);
+        int close = phrase.indexOf(']', open);
+        String before = phrase.substring(0, open);
+        String after = phrase.substring(close + 1);
+        List<String> phrases = new ArrayList<>();
+        phrases.addAll(expand(before + phrase.substring(open + 1, close) + after));
+        phrases.addAll(expand(before + after));
+        return phrases;
+    }
+
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}']+")) {
+            if (!word.isEmpty()) words.add(word);
+        }
+        return words;
+    }
+
+    private int token(String word) {
+        Integer id = vocabulary.get(word);
+        return id != null ? id : define(word, vocabulary.size());
+    }
+
+    private int define(String word, int id) {
+        return define(vocabulary, words, word, id);
+    }
+
+    private static int define(Map<String, Integer> table, CharNode trie, String word, int id) {
+        table.put(word, id);
+        CharNode node = trie;
+        for (int i = 0; i < word.length(); i++) {
+            node = node.childOrNew(word.charAt(i));
+        }
+        node.token = id;
+        return id;
+    }
+
+    private static class Rule {
+        final Intent intent;
+        final char[] slots;
+
+        Rule(Intent intent, char[] slots) {
+            this.intent = intent;
+            this.slots = slots;
+        }
+    }
+
+    // A resolved {target}: everything, a room, a type, a room and a type, or one device
+    private static class Target {
+        boolean everything;
+        String room;
+        Class<?> type;
+        SmartDevice device;
+
+        void reset() {
+            everything = false;
+            room = null;
+            type = null;
+            device = null;
+        }
+
+        boolean isThermostat() {
+            return type == SmartThermostat.class || device instanceof SmartThermostat;
+        }
+
+        boolean matches(SmartDevice candidate) {
+            if (device != null) return candidate == device;
+            if (room != null && !room.equalsIgnoreCase(candidate.getRoom())) return false;
+            return type == null || type.isInstance(candidate);
+        }
+
+        // The smallest registry index that covers the target
+        Iterable<SmartDevice> candidates(DeviceRegistry registry) {
+            if (device != null) return registry.findById(device.id) == device ? List.of(device) : List.of();
+            if (room != null) return registry.inRoom(room);
+            if (type != null && type != SmartDevice.class) {
+                @SuppressWarnings("unchecked")
+                Class<SmartDevice> exact = (Class<SmartDevice>) type;
+                return registry.ofType(exact);
+            }
+            return registry;
+        }
+
+        @Override
+        public String toString() {
+            if (device != null) return device.getName();
+            String kind = type == SmartLight.class ? "lights" : type == SmartThermostat.class ? "thermostats"
+                    : type == SmartSecurity.class ? "security" : "devices";
+            return room == null ? kind : kind + " in " + room;
+        }
+    }
+
+    private static class TokenNode {
+        private int[] keys = new int[0];
+        private TokenNode[] children = new TokenNode[0];
+        TokenNode target, number, word;
+        Rule rule;
+        Object entity;
+
+        TokenNode child(int id) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == id) return children[i];
+            }
+            return null;
+        }
+
+        TokenNode childOrNew(int id) {
+            TokenNode found = child(id);
+            if (found != null) return found;
+            keys = Arrays.copyOf(keys, keys.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            keys[keys.length - 1] = id;
+            return children[children.length - 1] = new TokenNode();
+        }
+    }
+
+    private static class CharNode {
+        private char[] keys = new char[0];
+        private CharNode[] children = new CharNode[0];
+        int token = UNKNOWN;
+
+        CharNode child(char c) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == c) return children[i];
+            }
+            return null;
+        }
+
+        CharNode childOrNew(char c) {
+            CharNode found = child(c);
+            if (found != null) return found;
+            keys = Arrays.copyOf(keys, keys.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            keys[keys.length - 1] = c;
+            return children[children.length - 1] = new CharNode();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package smarthome;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CronExpressionTest {
+    private static final ZonedDateTime START = ZonedDateTime.of(2025, 12, 30, 22, 17, 42, 0, ZoneOffset.UTC);
+
+    @Test
+    void nextMatchesAMinuteByMinuteScan() {
+        for (String spec : List.of("* * * * *", "*/15 * * * *", "0 8-18/2 * * 1-5", "30 6 1,15 * *",
+                "0 0 13 * 5", "5 4 * 2 7", "59 23 31 * *", "@hourly", "@weekly", "@monthly")) {
+            CronExpression cron = new CronExpression(spec);
+            ZonedDateTime after = START;
+            for (int i = 0; i < 5; i++) {
+                ZonedDateTime expected = scan(spec, after);
+                assertEquals(expected, cron.next(after), spec + " after " + after);
+                after = expected;
+            }
+        }
+    }
+
+    @Test
+    void restrictedDayFieldsMatchEitherDay() {
+        CronExpression cron = new CronExpression("0 9 1 * 1");
+        // 2026-01-01 is a Thursday; the first Monday after it is the 5th
+        ZonedDateTime t = cron.next(ZonedDateTime.of(2025, 12, 31, 12, 0, 0, 0, ZoneOffset.UTC));
+        assertEquals(ZonedDateTime.of(2026, 1, 1, 9, 0, 0, 0, ZoneOffset.UTC), t);
+        assertEquals(ZonedDateTime.of(2026, 1, 5, 9, 0, 0, 0, ZoneOffset.UTC), cron.next(t));
+    }
+
+    @Test
+    void shorthandsAndToString() {
+        assertEquals(new CronExpression("0 0 * * *").next(START), new CronExpression("@daily").next(START));
+        assertEquals("@Daily", new CronExpression(" @Daily ").toString());
+        assertEquals("0 0 * * 7", new CronExpression("0 0 * * 7").toString());
+        assertEquals(new CronExpression("0 0 * * 0").next(START), new CronExpression("0 0 * * 7").next(START));
+        assertNull(new CronExpression("0 0 30 2 *").next(START));
+    }
+
+    @Test
+    void rejectsBadFields() {
+        for (String bad : List.of("", "* * * *", "* * * * * *", "60 * * * *", "* 24 * * *", "* * 0 * *",
+                "* * * 13 *", "* * * * 8", "5-1 * * * *", "*/0 * * * *", "a * * * *", "1,,2 * * * *")) {
+            assertThrows(IllegalArgumentException.class, () -> new CronExpression(bad), bad);
+        }
+    }
+
+    // Straight from the cron rules, without the skipping next() does
+    private static ZonedDateTime scan(String spec, ZonedDateTime after) {
+        CronExpression cron = new CronExpression(spec);
+        ZonedDateTime t = after.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        for (int i = 0; i < 2 * 366 * 24 * 60; i++, t = t.plusMinutes(1)) {
+            if (matches(cron, t)) return t;
+        }
+        fail("No match for " + spec);
+        return null;
+    }
+
+    private static boolean matches(CronExpression cron, ZonedDateTime t) {
+        // Only steps on * from zero are handled, which is all the specs above use
+        String[] f = shorthand(cron.toString()).split("\\s+");
+        boolean day = field(f[2], t.getDayOfMonth());
+        int dow = t.getDayOfWeek().getValue() % 7;
+        boolean weekday = field(f[4], dow) || (dow == 0 && field(f[4], 7));
+        boolean dayOk = f[2].equals("*") && f[4].equals("*") ? true
+                : f[2].equals("*") ? weekday
+                : f[4].equals("*") ? day
+                : day || weekday;
+        return field(f[0], t.getMinute()) && field(f[1], t.getHour()) && field(f[3], t.getMonthValue()) && dayOk;
+    }
+
+    private static String shorthand(String spec) {
+        switch (spec) {
+            case "@hourly": return "0 * * * *";
+            case "@weekly": return "0 0 * * 0";
+            case "@monthly": return "0 0 1 * *";
+            default: return spec;
+        }
+    }
+
+    private static boolean field(String field, int value) {
+        for (String part : field.split(",")) {
+            int step = 1;
+            int slash = part.indexOf('/');
+            if (slash >= 0) {
+                step = Integer.parseInt(part.substring(slash + 1));
+                part = part.substring(0, slash);
+            }
+            int from = 0, to = Integer.MAX_VALUE;
+            if (!part.equals("*")) {
+                String[] range = part.split("-");
+                from = Integer.parseInt(range[0]);
+                to = range.length > 1 ? Integer.parseInt(range[1]) : slash >= 0 ? Integer.MAX_VALUE : from;
+            }
+            if (value >= from && value <= to && (value - from) % step == 0) return true;
+        }
+        return false;
+    }
+}
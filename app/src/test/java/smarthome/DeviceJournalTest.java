@@ -0,0 +1,81 @@
+package smarthome;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeviceJournalTest {
+    @TempDir
+    Path dir;
+
+    // Every kind of record, replayed from the journal alone as after a crash
+    @Test
+    void replayRestoresEveryChange() throws IOException {
+        Path snapshot = dir.resolve("home").resolve("devices.bin");
+        Files.createDirectories(snapshot.getParent());
+        DeviceRegistry registry = new DeviceRegistry();
+        DeviceJournal journal = DeviceJournal.open(snapshot, registry);
+
+        DeviceRegistry home = DeviceSnapshotTest.sampleHome();
+        for (SmartDevice device : home.all()) {
+            home.remove(device);
+            device.id = 0;
+            registry.add(device);
+        }
+        SmartLight lamp = (SmartLight) registry.findByName("Bedroom Lamp");
+        lamp.setBrightness(100);
+        lamp.setBrightness(64);
+        lamp.turnOff();
+        SmartThermostat thermostat = (SmartThermostat) registry.findByName("Hall Thermostat");
+        thermostat.setTemperature(-3.25);
+        thermostat.setMode("Cooling");
+        SmartSecurity door = (SmartSecurity) registry.findByName("Front Door");
+        door.disarmSystem();
+        door.setSecurityLevel("Maximum");
+        registry.remove(registry.findByName("Garage"));
+        journal.sync();
+
+        // Copied before close, so nothing but the synced segments carries the changes
+        Path crashed = copyOf(snapshot.getParent());
+        journal.close();
+
+        assertSameAfterReopen(registry, crashed.resolve("devices.bin"));
+        assertSameAfterReopen(registry, snapshot);
+    }
+
+    @Test
+    void checkpointThenReplayMatches() throws IOException {
+        Path snapshot = dir.resolve("devices.bin");
+        DeviceRegistry registry = DeviceSnapshotTest.sampleHome();
+        DeviceJournal journal = DeviceJournal.open(snapshot, registry);
+        ((SmartLight) registry.findByName("Ceiling")).setBrightness(12);
+        journal.checkpoint(registry);
+        ((SmartLight) registry.findByName("Ceiling")).setBrightness(88);
+        registry.add(new SmartThermostat("Attic", "Attic"));
+        journal.close();
+
+        assertSameAfterReopen(registry, snapshot);
+    }
+
+    private static void assertSameAfterReopen(DeviceRegistry expected, Path snapshot) throws IOException {
+        DeviceRegistry reloaded = new DeviceRegistry();
+        DeviceSnapshot.read(snapshot).forEach(reloaded::add);
+        DeviceJournal.open(snapshot, reloaded).close();
+        DeviceSnapshotTest.assertSameDevices(expected.all(), reloaded.all());
+    }
+
+    private Path copyOf(Path from) throws IOException {
+        Path to = Files.createDirectories(dir.resolve("crashed"));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(from)) {
+            for (Path file : files) {
+                Files.copy(file, to.resolve(file.getFileName()));
+            }
+        }
+        return to;
+    }
+}
@@ -0,0 +1,148 @@
+package smarthome;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeviceSnapshotTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripKeepsIdsAndState() throws IOException {
+        DeviceRegistry registry = sampleHome();
+        Path file = dir.resolve("devices.bin");
+        DeviceSnapshot.write(file, registry.all(), 7);
+
+        assertEquals(DeviceSnapshot.VERSION, DeviceSnapshot.version(file));
+        assertEquals(7, DeviceSnapshot.journalGeneration(file));
+        assertSameDevices(registry.all(), DeviceSnapshot.read(file));
+    }
+
+    @Test
+    void unregisteredDevicesRoundTripWithoutIds() throws IOException {
+        List<SmartDevice> devices = List.of(new SmartLight("Lamp", "Den"), new SmartThermostat("Heat", "Den"));
+        Path file = dir.resolve("devices.bin");
+        DeviceSnapshot.write(file, devices);
+
+        List<SmartDevice> read = DeviceSnapshot.read(file);
+        assertSameDevices(devices, read);
+        assertEquals(0, read.get(0).getId());
+    }
+
+    @Test
+    void outOfRangeStringIdIsCorrupt() throws IOException {
+        Path file = dir.resolve("devices.bin");
+        DeviceSnapshot.write(file, sampleHome().all());
+        patchInt(file, recordsStart(file) + 8, 1_000_000); // first record's nameId
+
+        IOException e = assertThrows(IOException.class, () -> DeviceSnapshot.read(file));
+        assertTrue(e.getMessage().startsWith("Corrupt snapshot"), e.getMessage());
+    }
+
+    @Test
+    void outOfRangeStringOffsetIsCorrupt() throws IOException {
+        Path file = dir.resolve("devices.bin");
+        DeviceSnapshot.write(file, sampleHome().all());
+        patchInt(file, DeviceSnapshot.HEADER_BYTES + 4, Integer.MAX_VALUE); // end of the first string
+
+        assertThrows(IOException.class, () -> DeviceSnapshot.read(file));
+    }
+
+    @Test
+    void repeatedDeviceIdIsCorrupt() throws IOException {
+        Path file = dir.resolve("devices.bin");
+        DeviceSnapshot.write(file, sampleHome().all());
+        patchInt(file, recordsStart(file) + DeviceSnapshot.RECORD_BYTES + 4, 1); // second record takes id 1
+
+        assertThrows(IOException.class, () -> DeviceSnapshot.read(file));
+    }
+
+    // Whatever a single flipped bit does, loading either works or reports an IOException, and
+    // what it loads can be registered
+    @Test
+    void everySingleBitFlipLoadsOrFailsWithIOException() throws IOException {
+        Path file = dir.resolve("devices.bin");
+        DeviceSnapshot.write(file, sampleHome().all());
+        byte[] original = Files.readAllBytes(file);
+        for (int bit = 0; bit < original.length * 8; bit++) {
+            byte[] damaged = original.clone();
+            damaged[bit / 8] ^= (byte) (1 << (bit % 8));
+            Files.write(file, damaged);
+            try {
+                DeviceRegistry registry = new DeviceRegistry();
+                DeviceSnapshot.read(file).forEach(registry::add);
+            } catch (IOException expected) {
+                // reported as a bad file, which the loaders handle
+            }
+        }
+    }
+
+    @Test
+    void brightnessSavedBeforeItWasCheckedIsClamped() throws IOException {
+        Path file = dir.resolve("devices.bin");
+        DeviceSnapshot.write(file, sampleHome().all());
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[recordsStart(file) + 2] = (byte) 200; // first record is a light
+        Files.write(file, bytes);
+
+        assertEquals(SmartLight.MAX_BRIGHTNESS, ((SmartLight) DeviceSnapshot.read(file).get(0)).getBrightness());
+    }
+
+    static DeviceRegistry sampleHome() {
+        DeviceRegistry registry = new DeviceRegistry();
+        SmartLight lamp = new SmartLight("Bedroom Lamp", "Bedroom");
+        registry.add(lamp);
+        lamp.turnOn();
+        lamp.setBrightness(37);
+        lamp.setColor("Warm White");
+        SmartLight ceiling = new SmartLight("Ceiling", "Küche");
+        registry.add(ceiling);
+        ceiling.setBrightness(0);
+        SmartThermostat thermostat = new SmartThermostat("Hall Thermostat", "Hall");
+        registry.add(thermostat);
+        thermostat.turnOn();
+        thermostat.setTemperature(19.5);
+        thermostat.setMode("Heating");
+        SmartSecurity door = new SmartSecurity("Front Door", "Hall");
+        registry.add(door);
+        door.turnOn();
+        door.armSystem();
+        door.setSecurityLevel("High");
+        registry.add(new SmartSecurity("Garage", ""));
+        return registry;
+    }
+
+    static void assertSameDevices(List<? extends SmartDevice> expected, List<? extends SmartDevice> actual) {
+        assertEquals(describe(expected), describe(actual));
+    }
+
+    private static List<String> describe(List<? extends SmartDevice> devices) {
+        List<String> lines = new ArrayList<>();
+        for (SmartDevice device : devices) {
+            lines.add(device.getId() + " " + device.getClass().getSimpleName() + " " + device.getName() + " " + device.getStatus());
+        }
+        return lines;
+    }
+
+    private static int recordsStart(Path file) throws IOException {
+        ByteBuffer head = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        int stringCount = head.getInt(12);
+        int stringBytes = head.getInt(16);
+        return DeviceSnapshot.HEADER_BYTES + (stringCount + 1) * 4 + stringBytes;
+    }
+
+    private static void patchInt(Path file, int at, int value) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(at, value);
+        Files.write(file, bytes);
+    }
+}
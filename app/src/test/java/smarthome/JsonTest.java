@@ -0,0 +1,52 @@
+package smarthome;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonTest {
+    @Test
+    void quotedStringsParseBack() {
+        for (String s : List.of("", "plain", "Küche 🌡", "quote \" and \\ slash /", "\n\r\t\b\f",
+                "\u0000\u001f", "line\u2028para\u2029", "</script>")) {
+            String quoted = Json.quote(new StringBuilder(), s).toString();
+            assertEquals(s, Json.parse(quoted), quoted);
+        }
+    }
+
+    // Raw U+2028/U+2029 end a line in JavaScript, so the dashboard gets them escaped
+    @Test
+    void lineSeparatorsAreEscaped() {
+        assertEquals("\"a\\u2028b\\u2029\"", Json.quote(new StringBuilder(), "a\u2028b\u2029").toString());
+        assertEquals("null", Json.quote(new StringBuilder(), null).toString());
+    }
+
+    @Test
+    void numbersKeepOneDecimal() {
+        assertEquals("21", Json.number(new StringBuilder(), 21).toString());
+        assertEquals("21.5", Json.number(new StringBuilder(), 21.5).toString());
+        assertEquals("-0.4", Json.number(new StringBuilder(), -0.4).toString());
+        assertEquals("-12.3", Json.number(new StringBuilder(), -12.34).toString());
+        assertEquals("null", Json.number(new StringBuilder(), Double.NaN).toString());
+        for (double v : new double[] {0, 1, -50, 99.9, 1e6}) {
+            assertEquals(v, (Double) Json.parse(Json.number(new StringBuilder(), v).toString()));
+        }
+    }
+
+    @Test
+    void parsesNestedValues() {
+        Object value = Json.parse(" {\"id\": 3, \"on\": true, \"tags\": [null, \"a\\u00e9\", {}], \"t\": -1.5e1} ");
+        assertEquals(Map.of("id", 3.0, "on", true, "tags", Arrays.asList(null, "aé", Map.of()), "t", -15.0), value);
+    }
+
+    @Test
+    void rejectsMalformedInput() {
+        for (String bad : List.of("", "{", "[1,]", "{\"a\" 1}", "\"open", "\"\\x\"", "\"\\u12\"", "\"\\u12g4\"",
+                "\"tab\there\"", "1 2", "{} x", "tru", "-", "1.2.3", "[".repeat(100) + "]".repeat(100))) {
+            assertThrows(IllegalArgumentException.class, () -> Json.parse(bad), bad);
+        }
+    }
+}
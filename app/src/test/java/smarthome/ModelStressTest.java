@@ -0,0 +1,349 @@
+package smarthome;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Hammers one registry from many threads and checks that nothing was lost or torn.
+// - Power: writers flip shared lights; the before/after pairs on the event bus must add up,
+//   per device, to the difference between the initial and final state. Each device's events
+//   must also arrive in sequence order with every before equal to the previous after, the
+//   last after being the device's final state.
+// - Packed state: on one security device per writer, the writer toggles power while a partner
+//   toggles arming, so a lost update in the shared state word shows up as a wrong final value.
+// - Registry: churn threads add and remove devices while readers walk every index.
+// - Save: writers change, add and remove devices while another thread keeps checkpointing the
+//   journal; the last snapshot plus the journal must reload to exactly the final state.
+// Each phase runs for a second by default; to run it harder:
+//   mvn -pl app test -Dtest=ModelStressTest -Dstress.threads=8 -Dstress.seconds=5
+class ModelStressTest {
+    private static final int LIGHTS = 64;
+    private static final int CHURN_PER_THREAD = 20_000;
+    // Enough that copying the registry for a save takes a while
+    private static final int SAVED_THERMOSTATS = 20_000;
+
+    private static final int THREADS = Integer.getInteger("stress.threads",
+            Math.max(4, Runtime.getRuntime().availableProcessors()));
+    private static final long SECONDS = Long.getLong("stress.seconds", 1);
+
+    private final List<String> failures = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeAll
+    static void quiet() {
+        EventLog.global().setLevel(EventLog.Level.WARN);
+    }
+
+    @AfterEach
+    void noFailures() {
+        EventLog.global().flush();
+        assertTrue(failures.isEmpty(), () -> String.join("\n", failures));
+    }
+
+    @Test
+    void powerTransitionsAddUpInOrder() throws Exception {
+        checkPowerTransitions(THREADS, SECONDS);
+    }
+
+    @Test
+    void packedStateLosesNoUpdate() throws Exception {
+        checkPackedState(THREADS, SECONDS);
+    }
+
+    @Test
+    void registryIndexesSurviveChurn() throws Exception {
+        checkRegistryChurn(THREADS);
+    }
+
+    @Test
+    void checkpointKeepsConcurrentChanges() throws Exception {
+        checkCheckpoint(THREADS, SECONDS);
+    }
+
+    private void checkPowerTransitions(int threads, long seconds) throws Exception {
+        DeviceRegistry registry = new DeviceRegistry();
+        SmartLight[] lights = new SmartLight[LIGHTS];
+        for (int i = 0; i < LIGHTS; i++) {
+            registry.add(lights[i] = new SmartLight("Light " + i, "Room " + (i % 8)));
+        }
+        Map<SmartDevice, long[]> net = new ConcurrentHashMap<>();
+        // Per device, on the delivery thread only: last sequence, last power and brightness after
+        Map<SmartDevice, Object[]> last = new ConcurrentHashMap<>();
+        long[] misordered = new long[2];
+        ExecutorService delivery = Executors.newSingleThreadExecutor();
+        DeviceEventBus.Subscription subscription = registry.events().subscribe("stress", 1 << 20,
+                DeviceEventBus.Policy.BLOCK, delivery, event -> {
+                    Object[] seen = last.computeIfAbsent(event.device(), d -> new Object[] {0L, null, null});
+                    if (event.sequence() <= (Long) seen[0]) misordered[0]++;
+                    seen[0] = event.sequence();
+                    int slot = event.property() == DeviceProperty.POWER ? 1 : 2;
+                    if (seen[slot] != null && !seen[slot].equals(event.before())) misordered[1]++;
+                    seen[slot] = event.after();
+                    if (event.property() != DeviceProperty.POWER) return;
+                    boolean before = (Boolean) event.before(), after = (Boolean) event.after();
+                    if (before != after) net.computeIfAbsent(event.device(), d -> new long[1])[0] += after ? 1 : -1;
+                });
+
+        AtomicLong writes = new AtomicLong();
+        runFor(threads, seconds, (t, random) -> {
+            SmartLight light = lights[random.nextInt(LIGHTS)];
+            if (random.nextBoolean()) light.turnOn(); else light.turnOff();
+            light.setBrightness(random.nextInt(101));
+            writes.incrementAndGet();
+        });
+        while (subscription.delivered() + subscription.dropped() < subscription.offered()) {
+            Thread.sleep(10);
+        }
+        delivery.shutdown();
+
+        if (subscription.dropped() > 0) failures.add("power: " + subscription.dropped() + " events dropped");
+        if (misordered[0] > 0) failures.add("ordering: " + misordered[0] + " events arrived behind a later one of the same device");
+        if (misordered[1] > 0) failures.add("ordering: " + misordered[1] + " events do not start where the device's previous one ended");
+        for (SmartLight light : lights) {
+            Object[] seen = last.get(light);
+            if (seen != null && ((seen[1] != null && (Boolean) seen[1] != light.isOn())
+                    || (seen[2] != null && (Integer) seen[2] != light.getBrightness()))) {
+                failures.add("ordering: " + light.getName() + " last reported on=" + seen[1] + " brightness=" + seen[2]
+                        + " but is on=" + light.isOn() + " brightness=" + light.getBrightness());
+            }
+            long[] count = net.get(light);
+            long expected = light.isOn() ? 1 : 0;
+            if ((count == null ? 0 : count[0]) != expected) {
+                failures.add("power: " + light.getName() + " is " + (light.isOn() ? "ON" : "OFF")
+                        + " but its transitions add up to " + (count == null ? 0 : count[0]));
+            }
+            if (light.getBrightness() < 0 || light.getBrightness() > 100) {
+                failures.add("power: " + light.getName() + " has torn brightness " + light.getBrightness());
+            }
+        }
+        System.out.printf("🔌 Power: %,d writes, %,d events checked%n", writes.get(), subscription.delivered());
+    }
+
+    private void checkPackedState(int threads, long seconds) throws Exception {
+        int pairs = Math.max(1, threads / 2);
+        SmartSecurity[] devices = new SmartSecurity[pairs];
+        boolean[][] last = new boolean[pairs][2];
+        for (int i = 0; i < pairs; i++) {
+            devices[i] = new SmartSecurity("Security " + i, "Hall");
+        }
+        AtomicLong writes = new AtomicLong();
+        runFor(pairs * 2, seconds, (t, random) -> {
+            int pair = t / 2;
+            boolean value = random.nextBoolean();
+            if (t % 2 == 0) {
+                if (value) devices[pair].turnOn(); else devices[pair].turnOff();
+            } else {
+                if (value) devices[pair].armSystem(); else devices[pair].disarmSystem();
+            }
+            // Only this thread writes this bit, so its last write must be what sticks
+            last[pair][t % 2] = value;
+            writes.incrementAndGet();
+        });
+        for (int i = 0; i < pairs; i++) {
+            if (devices[i].isOn() != last[i][0] || devices[i].isArmed() != last[i][1]) {
+                failures.add("packed state: " + devices[i].getName() + " on=" + devices[i].isOn() + " armed="
+                        + devices[i].isArmed() + ", last written on=" + last[i][0] + " armed=" + last[i][1]);
+            }
+        }
+        System.out.printf("🔐 Packed state: %,d writes on %d shared words%n", writes.get(), pairs);
+    }
+
+    private void checkRegistryChurn(int threads) throws Exception {
+        DeviceRegistry registry = new DeviceRegistry();
+        for (int i = 0; i < 100; i++) {
+            registry.add(new SmartThermostat("Base " + i, "Base Room " + (i % 10)));
+        }
+        int writers = Math.max(1, threads / 2);
+        int readers = Math.max(1, threads - writers);
+        AtomicReference<Throwable> readerError = new AtomicReference<>();
+        AtomicLong reads = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(writers);
+
+        List<Thread> all = new ArrayList<>();
+        for (int r = 0; r < readers; r++) {
+            Thread reader = new Thread(() -> {
+                try {
+                    while (done.getCount() > 0) {
+                        for (SmartDevice device : registry) {
+                            if (registry.findById(device.getId()) == null && device.registry == registry) {
+                                throw new IllegalStateException("registered device missing from id index: " + device.getName());
+                            }
+                        }
+                        for (String room : registry.rooms()) {
+                            for (SmartDevice device : registry.inRoom(room)) {
+                                if (device == null) throw new IllegalStateException("null in room " + room);
+                            }
+                        }
+                        registry.forEachOfType(SmartLight.class, SmartLight::getBrightness);
+                        registry.findByName("Base 1");
+                        reads.incrementAndGet();
+                    }
+                } catch (Throwable e) {
+                    readerError.compareAndSet(null, e);
+                }
+            }, "stress-reader-" + r);
+            all.add(reader);
+        }
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            all.add(new Thread(() -> {
+                try {
+                    List<SmartDevice> mine = new ArrayList<>(CHURN_PER_THREAD);
+                    for (int i = 0; i < CHURN_PER_THREAD; i++) {
+                        SmartDevice device = i % 2 == 0
+                                ? new SmartLight("Churn " + writer + "-" + i, "Churn Room " + (i % 50))
+                                : new SmartThermostat("Churn " + writer + "-" + i, "Churn Room " + (i % 50));
+                        registry.add(device);
+                        mine.add(device);
+                    }
+                    for (int i = 0; i < mine.size(); i += 2) {
+                        if (!registry.remove(mine.get(i))) throw new IllegalStateException("lost " + mine.get(i).getName());
+                    }
+                } catch (Throwable e) {
+                    readerError.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            }, "stress-writer-" + w));
+        }
+        all.forEach(Thread::start);
+        for (Thread thread : all) {
+            thread.join();
+        }
+
+        if (readerError.get() != null) failures.add("registry: " + readerError.get());
+        int expected = 100 + writers * CHURN_PER_THREAD / 2;
+        if (registry.size() != expected) failures.add("registry: size " + registry.size() + ", expected " + expected);
+        if (registry.all().size() != registry.size()) failures.add("registry: all() has " + registry.all().size() + " devices");
+        int inRooms = 0;
+        for (String room : registry.rooms()) {
+            inRooms += registry.inRoom(room).size();
+        }
+        if (inRooms != expected) failures.add("registry: rooms hold " + inRooms + " devices, expected " + expected);
+        int typed = registry.ofType(SmartLight.class).size() + registry.ofType(SmartThermostat.class).size();
+        if (typed != expected) failures.add("registry: type index holds " + typed + " devices, expected " + expected);
+        Set<Integer> ids = new HashSet<>();
+        for (SmartDevice device : registry) {
+            if (!ids.add(device.getId())) failures.add("registry: duplicate id " + device.getId());
+            if (registry.findById(device.getId()) != device) failures.add("registry: id index lost " + device.getName());
+        }
+        System.out.printf("🗂️ Registry: %,d adds, %,d removes, %,d full index walks%n",
+                writers * CHURN_PER_THREAD, writers * CHURN_PER_THREAD / 2, reads.get());
+    }
+
+    private void checkCheckpoint(int threads, long seconds) throws Exception {
+        Path dir = Files.createTempDirectory("stress-journal");
+        Path snapshot = dir.resolve("devices.dat");
+        DeviceRegistry registry = new DeviceRegistry();
+        SmartLight[] lights = new SmartLight[LIGHTS];
+        for (int i = 0; i < LIGHTS; i++) {
+            registry.add(lights[i] = new SmartLight("Light " + i, "Room " + (i % 8)));
+        }
+        SmartThermostat[] thermostats = new SmartThermostat[SAVED_THERMOSTATS];
+        for (int i = 0; i < SAVED_THERMOSTATS; i++) {
+            registry.add(thermostats[i] = new SmartThermostat("Thermostat " + i, "Room " + (i % 8)));
+        }
+        // A small compaction threshold so background folds race with the saves too
+        DeviceJournal journal = DeviceJournal.open(snapshot, registry, 1, 64 * 1024);
+        int writers = Math.max(1, threads - 1);
+        List<List<SmartDevice>> churn = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            churn.add(new ArrayList<>());
+        }
+        AtomicLong saves = new AtomicLong();
+        AtomicLong writes = new AtomicLong();
+        runFor(writers + 1, seconds, (t, random) -> {
+            if (t == writers) {
+                try {
+                    journal.checkpoint(registry);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                saves.incrementAndGet();
+                return;
+            }
+            List<SmartDevice> mine = churn.get(t);
+            int roll = random.nextInt(4);
+            if (roll == 0) {
+                SmartLight light = new SmartLight("Churn " + t + "-" + writes.get(), "Churn Room");
+                light.applyBrightness(random.nextInt(101));
+                registry.add(light);
+                mine.add(light);
+            } else if (roll == 1 && !mine.isEmpty()) {
+                registry.remove(mine.remove(random.nextInt(mine.size())));
+            } else {
+                SmartLight light = lights[random.nextInt(LIGHTS)];
+                if (random.nextBoolean()) light.turnOn(); else light.turnOff();
+                light.setBrightness(random.nextInt(101));
+                thermostats[random.nextInt(SAVED_THERMOSTATS)].setTemperature(15 + random.nextInt(11));
+            }
+            writes.incrementAndGet();
+        });
+        journal.close();
+
+        DeviceRegistry reloaded = new DeviceRegistry();
+        DeviceSnapshot.read(snapshot).forEach(reloaded::add);
+        DeviceJournal.open(snapshot, reloaded).close();
+        int wrong = 0;
+        String example = null;
+        for (SmartDevice device : registry) {
+            SmartDevice copy = reloaded.findById(device.getId());
+            String expected = device.getName() + " " + device.getStatus();
+            String actual = copy == null ? "missing" : copy.getName() + " " + copy.getStatus();
+            if (!expected.equals(actual)) {
+                wrong++;
+                if (example == null) example = expected + " reloaded as " + actual;
+            }
+        }
+        if (wrong > 0) failures.add("save: " + wrong + " devices reloaded wrong, e.g. " + example);
+        if (reloaded.size() != registry.size()) {
+            failures.add("save: reloaded " + reloaded.size() + " devices, expected " + registry.size());
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+        System.out.printf("💾 Save: %,d checkpoints during %,d writes, %d devices reloaded%n",
+                saves.get(), writes.get(), reloaded.size());
+    }
+
+    interface Step {
+        void run(int thread, Random random);
+    }
+
+    // Runs the step in a loop on each thread until the time is up
+    private void runFor(int threads, long seconds, Step step) throws Exception {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        CyclicBarrier start = new CyclicBarrier(threads);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            Thread worker = new Thread(() -> {
+                Random random = new Random(thread);
+                try {
+                    start.await();
+                    while (System.nanoTime() < end) {
+                        step.run(thread, random);
+                    }
+                } catch (Exception e) {
+                    failures.add(Thread.currentThread().getName() + ": " + e);
+                }
+            }, "stress-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package smarthome;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TelemetryChunkTest {
+    @Test
+    void steadyCadenceWithJitterRoundTrips() {
+        Random random = new Random(1);
+        long[] ticks = new long[500];
+        double[] values = new double[ticks.length];
+        ticks[0] = 1_000_000;
+        values[0] = 214;
+        for (int i = 1; i < ticks.length; i++) {
+            ticks[i] = ticks[i - 1] + 60 + random.nextInt(7) - 3;
+            values[i] = random.nextInt(4) == 0 ? values[i - 1] : 200 + random.nextInt(40);
+        }
+        assertRoundTrip(ticks, values);
+    }
+
+    // Every delta-of-delta bucket, including gaps too wide for the 12-bit case
+    @Test
+    void everyTickGapRoundTrips() {
+        long[] gaps = {10, 10, 14, 7, 70, 5, 300, 1, 2000, 3, 5000, 1, 100_000, 100_000, 2, 1_000_000};
+        long[] ticks = new long[gaps.length + 1];
+        double[] values = new double[ticks.length];
+        for (int i = 0; i < gaps.length; i++) {
+            ticks[i + 1] = ticks[i] + gaps[i];
+            values[i + 1] = i;
+        }
+        assertRoundTrip(ticks, values);
+    }
+
+    // Values whose XOR needs all 64 bits, or a wider window than the one before
+    @Test
+    void arbitraryDoublesRoundTrip() {
+        Random random = new Random(2);
+        double[] values = {0.0, -0.0, Double.NaN, Double.MAX_VALUE, Double.MIN_VALUE, -1e300, 1, 1, 1,
+                Double.longBitsToDouble(-1L), 3.5, 3.5, Double.NEGATIVE_INFINITY, random.nextDouble(),
+                random.nextGaussian() * 1e9, 0.1};
+        long[] ticks = new long[values.length];
+        for (int i = 0; i < ticks.length; i++) ticks[i] = i;
+        assertRoundTrip(ticks, values);
+    }
+
+    @Test
+    void scanVisitsOnlyTheRequestedRange() {
+        TelemetryChunk chunk = new TelemetryChunk(100, 1);
+        for (int i = 1; i < 10; i++) chunk.append(100 + i * 10, 1 + i);
+        List<Long> seen = new ArrayList<>();
+        chunk.scan(125, 160, (tick, value) -> seen.add(tick));
+        assertEquals(List.of(130L, 140L, 150L, 160L), seen);
+
+        seen.clear();
+        chunk.scan(191, 500, (tick, value) -> seen.add(tick));
+        assertEquals(List.of(), seen);
+        assertEquals(10, chunk.count());
+        assertEquals(190, chunk.lastTick());
+    }
+
+    @Test
+    void sealedChunkStillDecodes() {
+        TelemetryChunk chunk = new TelemetryChunk(0, 20);
+        for (int i = 1; i < 100; i++) chunk.append(i, 20 + i % 3);
+        long before = chunk.estimatedBytes();
+        chunk.seal();
+        assertTrue(chunk.estimatedBytes() <= before);
+        int[] count = {0};
+        chunk.scan(0, Long.MAX_VALUE, (tick, value) -> assertEquals(20 + count[0]++ % 3, value));
+        assertEquals(100, count[0]);
+    }
+
+    private static void assertRoundTrip(long[] ticks, double[] values) {
+        TelemetryChunk chunk = new TelemetryChunk(ticks[0], values[0]);
+        for (int i = 1; i < ticks.length; i++) chunk.append(ticks[i], values[i]);
+        List<long[]> decoded = new ArrayList<>();
+        chunk.scan(Long.MIN_VALUE, Long.MAX_VALUE,
+                (tick, value) -> decoded.add(new long[] {tick, Double.doubleToRawLongBits(value)}));
+        assertEquals(ticks.length, decoded.size());
+        for (int i = 0; i < ticks.length; i++) {
+            assertEquals(ticks[i], decoded.get(i)[0], "tick " + i);
+            assertEquals(Double.doubleToRawLongBits(values[i]), decoded.get(i)[1], "value " + i);
+        }
+    }
+}
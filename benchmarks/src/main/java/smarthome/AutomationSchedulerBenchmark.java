@@ -0,0 +1,39 @@
+package smarthome;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Timer insert and cancel cost with many automations already pending. The pending timers
+// are an hour out, so the wheel keeps them for the whole run; each invocation schedules one
+// more and cancels it, which should cost the same at 100K pending as at 500K.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AutomationSchedulerBenchmark {
+    @Param({"100000", "500000"})
+    public int pending;
+
+    private AutomationScheduler scheduler;
+    private final Runnable task = () -> { };
+
+    @Setup
+    public void setup() {
+        scheduler = new AutomationScheduler(Runnable::run, 10, 1024);
+        for (int i = 0; i < pending; i++) {
+            scheduler.schedule(task, 3_600_000 + i, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        scheduler.close();
+    }
+
+    @Benchmark
+    public boolean scheduleAndCancel() {
+        return scheduler.schedule(task, 60, TimeUnit.MINUTES).cancel();
+    }
+}
@@ -0,0 +1,113 @@
+package smarthome;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Requests per second through the embedded dashboard API over real loopback HTTP with
+// keep-alive connections: reading one device, controlling one device, a batch of 100
+// commands, and the cached full listing of a 1K-device home. Client and server share the
+// machine, so the numbers are a floor for what a dedicated server would do.
+//   java -jar benchmarks/target/benchmarks.jar DeviceApi -t 8
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DeviceApiBenchmark {
+    private static final int DEVICES = 1000;
+    private static final int BATCH = 100;
+
+    private DeviceRegistry registry;
+    private DeviceApiServer server;
+    private String base;
+    private int[] lightIds;
+
+    @Setup
+    public void setup() throws IOException {
+        Quiet.on();
+        EventLog.global().setLevel(EventLog.Level.WARN);
+        registry = new DeviceRegistry();
+        lightIds = new int[DEVICES / 2];
+        for (int i = 0; i < DEVICES; i++) {
+            String room = "Room " + (i % 50);
+            if (i % 2 == 0) {
+                SmartLight light = new SmartLight("Light " + i, room);
+                registry.add(light);
+                lightIds[i / 2] = light.getId();
+            } else {
+                registry.add(new SmartThermostat("Thermostat " + i, room));
+            }
+        }
+        server = new DeviceApiServer(registry, null, new InetSocketAddress("localhost", 0), null,
+                Math.max(4, Runtime.getRuntime().availableProcessors() * 2)).start();
+        base = "http://localhost:" + server.port() + "/api";
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+        EventLog.global().flush();
+        EventLog.global().setLevel(EventLog.Level.INFO);
+        Quiet.off();
+    }
+
+    @Benchmark
+    public int getDevice() throws IOException {
+        return call("GET", "/devices/" + randomLight(), null);
+    }
+
+    @Benchmark
+    public int control() throws IOException {
+        int brightness = ThreadLocalRandom.current().nextInt(101);
+        return call("POST", "/devices/" + randomLight(), "{\"on\":true,\"brightness\":" + brightness + "}");
+    }
+
+    @Benchmark
+    public int batch() throws IOException {
+        StringBuilder body = new StringBuilder(BATCH * 32).append('[');
+        for (int i = 0; i < BATCH; i++) {
+            if (i > 0) body.append(',');
+            body.append("{\"id\":").append(randomLight()).append(",\"brightness\":").append(i).append('}');
+        }
+        return call("POST", "/batch", body.append(']').toString());
+    }
+
+    @Benchmark
+    public int list() throws IOException {
+        return call("GET", "/devices", null);
+    }
+
+    private int randomLight() {
+        return lightIds[ThreadLocalRandom.current().nextInt(lightIds.length)];
+    }
+
+    // Reads the whole response so the connection goes back to the keep-alive cache
+    private int call(String method, String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(base + path).openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            ByteArrayOutputStream response = new ByteArrayOutputStream();
+            in.transferTo(response);
+            if (status != 200) throw new IOException(status + " " + response);
+            return response.size();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package smarthome;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Registry-wide operations behind the console menu: "Room Control" bulk toggles and the
+// "View All Devices" listing grouped by room. Devices are spread over 500 rooms.
+// logLevel WARN switches the device events off, leaving just the state changes.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DeviceOperationsBenchmark {
+    @Param({"1000", "100000"})
+    public int devices;
+
+    @Param({"INFO", "WARN"})
+    public EventLog.Level logLevel;
+
+    private DeviceRegistry registry;
+    private String room;
+    private boolean on;
+
+    @Setup
+    public void setup() {
+        Quiet.on();
+        EventLog.global().setLevel(logLevel);
+        registry = new DeviceRegistry();
+        List<SmartDevice> generated = SnapshotBenchmark.generate(devices);
+        generated.forEach(registry::add);
+        room = "room 42";
+    }
+
+    @TearDown
+    public void tearDown() {
+        EventLog.global().flush();
+        EventLog.global().setLevel(EventLog.Level.INFO);
+        Quiet.off();
+    }
+
+    @Benchmark
+    public int roomControl() {
+        on = !on;
+        return SmartHomeSystem.setRoomPower(registry, room, on);
+    }
+
+    @Benchmark
+    public String viewAllDevices() {
+        return SmartHomeSystem.describeDevices(registry);
+    }
+}
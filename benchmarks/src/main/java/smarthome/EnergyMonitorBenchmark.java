@@ -0,0 +1,96 @@
+package smarthome;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Energy aggregation over a home of 10K devices in 500 rooms: what a brightness change costs
+// with and without the monitor listening, reading the home and room totals and a rolling
+// average from the monitor, and the same totals computed by scanning the devices instead.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EnergyMonitorBenchmark {
+    private static final int DEVICES = 10_000;
+    private static final int LIGHTS = (DEVICES + 2) / 3;
+    private static final String ROOM = "Room 7";
+
+    @Param({"true", "false"})
+    public boolean monitored;
+
+    private DeviceRegistry registry;
+    private SmartLight[] lights;
+    private EnergyMonitor energy;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Quiet.on();
+        EventLog.global().setLevel(EventLog.Level.WARN);
+        registry = new DeviceRegistry();
+        lights = new SmartLight[LIGHTS];
+        for (int i = 0; i < DEVICES; i++) {
+            SmartDevice device;
+            switch (i % 3) {
+                case 0: device = lights[i / 3] = new SmartLight("Light " + i, "Room " + (i % 500)); break;
+                case 1: device = new SmartThermostat("Thermostat " + i, "Room " + (i % 500)); break;
+                default: device = new SmartSecurity("Sensor " + i, "Room " + (i % 500));
+            }
+            device.turnOn();
+            registry.add(device);
+        }
+        if (monitored) energy = EnergyMonitor.follow(registry);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (energy != null) energy.close();
+        EventLog.global().flush();
+        EventLog.global().setLevel(EventLog.Level.INFO);
+        Quiet.off();
+    }
+
+    @Benchmark
+    public int change() {
+        next = (next + 1) % LIGHTS;
+        int brightness = next % 101;
+        lights[next].setBrightness(brightness);
+        return brightness;
+    }
+
+    @Benchmark
+    public double homeWatts() {
+        if (!monitored) return scanHome();
+        return energy.homeWatts();
+    }
+
+    @Benchmark
+    public double roomWatts() {
+        if (!monitored) return scanRoom();
+        return energy.roomWatts(ROOM);
+    }
+
+    @Benchmark
+    public double homeMinuteAverage() {
+        if (!monitored) return scanHome();
+        return energy.homeAverageWatts(EnergyMonitor.Window.MINUTE);
+    }
+
+    private double scanHome() {
+        double watts = 0;
+        for (SmartDevice device : registry) {
+            watts += device.getPowerWatts();
+        }
+        return watts;
+    }
+
+    private double scanRoom() {
+        double watts = 0;
+        for (SmartDevice device : registry.inRoom(ROOM)) {
+            watts += device.getPowerWatts();
+        }
+        return watts;
+    }
+}
@@ -0,0 +1,51 @@
+package smarthome;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Cost a state change adds on the publishing thread, by number of bus subscribers.
+// Subscribers drain on their own threads with the DROP policy, so a slow consumer shows up
+// as drops in its stats rather than in the publisher's time.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventBusBenchmark {
+    @Param({"0", "1", "3"})
+    public int subscribers;
+
+    private ExecutorService consumers;
+    private SmartLight light;
+    private int brightness;
+
+    @Setup
+    public void setup() {
+        Quiet.on();
+        EventLog.global().setLevel(EventLog.Level.WARN);
+        consumers = Executors.newFixedThreadPool(Math.max(1, subscribers));
+        DeviceRegistry registry = new DeviceRegistry();
+        light = new SmartLight("Desk Lamp", "Office");
+        registry.add(light);
+        for (int i = 0; i < subscribers; i++) {
+            registry.events().subscribe("sub-" + i, 8192, DeviceEventBus.Policy.DROP, consumers, event -> { });
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        consumers.shutdownNow();
+        EventLog.global().setLevel(EventLog.Level.INFO);
+        Quiet.off();
+    }
+
+    @Benchmark
+    public int setBrightness() {
+        brightness = (brightness + 1) % 101;
+        light.setBrightness(brightness);
+        return brightness;
+    }
+}
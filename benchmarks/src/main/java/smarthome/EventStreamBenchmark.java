@@ -0,0 +1,94 @@
+package smarthome;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.openjdk.jmh.annotations.*;
+
+// Fan-out of the dashboard delta stream: the time from one device change until every one of
+// N connected dashboards has read it off its socket. Each dashboard is a real HTTP client on
+// its own thread, reading the server-sent events as a browser would.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventStreamBenchmark {
+    @Param({"1", "100", "500"})
+    public int clients;
+
+    private DeviceRegistry registry;
+    private DeviceApiServer server;
+    private SmartLight light;
+    private AtomicIntegerArray seen;
+    private final List<HttpURLConnection> connections = new ArrayList<>();
+    private int brightness;
+
+    @Setup
+    public void setup() throws Exception {
+        Quiet.on();
+        EventLog.global().setLevel(EventLog.Level.WARN);
+        registry = new DeviceRegistry();
+        light = new SmartLight("Light", "Lab");
+        registry.add(light);
+        server = new DeviceApiServer(registry, null, new InetSocketAddress("localhost", 0), null, 8).start();
+        seen = new AtomicIntegerArray(clients);
+        URL url = new URL("http://localhost:" + server.port() + "/api/stream");
+        for (int i = 0; i < clients; i++) {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestProperty("Accept", "text/event-stream");
+            BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+            connections.add(connection);
+            int client = i;
+            Thread reader = new Thread(() -> read(in, client), "dashboard-" + i);
+            reader.setDaemon(true);
+            reader.start();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+        connections.forEach(HttpURLConnection::disconnect);
+        EventLog.global().flush();
+        EventLog.global().setLevel(EventLog.Level.INFO);
+        Quiet.off();
+    }
+
+    // Every change sets a brightness different from the last, so a dashboard has the change
+    // once it reads that brightness
+    @Benchmark
+    public int changeReachesEveryDashboard() {
+        brightness = (brightness + 1) % 101;
+        light.setBrightness(brightness);
+        for (int i = 0; i < clients; i++) {
+            while (seen.get(i) != brightness) {
+                Thread.yield();
+            }
+        }
+        return brightness;
+    }
+
+    private void read(BufferedReader in, int client) {
+        try {
+            for (String line; (line = in.readLine()) != null; ) {
+                int at = line.indexOf("\"brightness\":");
+                if (!line.startsWith("data: ") || at < 0) continue;
+                int start = at + 13;
+                int end = line.indexOf(',', start);
+                seen.set(client, Integer.parseInt(line.substring(start, end < 0 ? line.length() - 1 : end)));
+            }
+        } catch (IOException e) {
+            // Closed at teardown
+        }
+    }
+}
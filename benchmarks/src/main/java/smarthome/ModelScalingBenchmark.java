@@ -0,0 +1,117 @@
+package smarthome;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Throughput of the shared device model as threads are added: state writes (CAS on the
+// device's state word), lock-free registry reads, and registry add/remove, which serialize
+// on the registry's write lock. All threads share one registry of 10K devices.
+// Run main() for a table at 1, 2, 4... threads up to all cores:
+//   java -cp benchmarks/target/benchmarks.jar smarthome.ModelScalingBenchmark
+// or a single thread count through JMH: java -jar benchmarks/target/benchmarks.jar ModelScaling -t 4
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ModelScalingBenchmark {
+    private static final int DEVICES = 10_000;
+
+    private DeviceRegistry registry;
+    private SmartLight[] lights;
+    private int[] ids;
+
+    @Setup
+    public void setup() {
+        Quiet.on();
+        EventLog.global().setLevel(EventLog.Level.WARN);
+        registry = new DeviceRegistry();
+        lights = new SmartLight[DEVICES];
+        ids = new int[DEVICES];
+        for (int i = 0; i < DEVICES; i++) {
+            lights[i] = new SmartLight("Light " + i, "Room " + (i % 100));
+            registry.add(lights[i]);
+            ids[i] = lights[i].getId();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        EventLog.global().flush();
+        EventLog.global().setLevel(EventLog.Level.INFO);
+        Quiet.off();
+    }
+
+    @Benchmark
+    public int write() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        SmartLight light = lights[random.nextInt(DEVICES)];
+        int brightness = random.nextInt(101);
+        light.setBrightness(brightness);
+        return brightness;
+    }
+
+    @Benchmark
+    public int read() {
+        SmartDevice device = registry.findById(ids[ThreadLocalRandom.current().nextInt(DEVICES)]);
+        return device.isOn() ? 1 : ((SmartLight) device).getBrightness();
+    }
+
+    @Benchmark
+    public int roomScan() {
+        int on = 0;
+        for (SmartDevice device : registry.inRoom("Room " + ThreadLocalRandom.current().nextInt(100))) {
+            if (device.isOn()) on++;
+        }
+        return on;
+    }
+
+    @Benchmark
+    public boolean addRemove() {
+        SmartLight light = new SmartLight("Temporary", "Room 0");
+        registry.add(light);
+        return registry.remove(light);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int threads = 1; threads < cores; threads *= 2) {
+            threadCounts.add(threads);
+        }
+        threadCounts.add(cores);
+
+        Map<String, Map<Integer, Double>> table = new TreeMap<>();
+        for (int threads : threadCounts) {
+            Options options = new OptionsBuilder()
+                    .include(ModelScalingBenchmark.class.getSimpleName() + "\\.")
+                    .threads(threads)
+                    .build();
+            for (RunResult result : new Runner(options).run()) {
+                String method = result.getParams().getBenchmark();
+                method = method.substring(method.lastIndexOf('.') + 1);
+                table.computeIfAbsent(method, k -> new TreeMap<>()).put(threads, result.getPrimaryResult().getScore());
+            }
+        }
+
+        System.out.printf("%n%-10s", "ops/us");
+        for (int threads : threadCounts) {
+            System.out.printf("%12s", threads + (threads == 1 ? " thread" : " threads"));
+        }
+        System.out.printf("%12s%n", "scaling");
+        for (Map.Entry<String, Map<Integer, Double>> row : table.entrySet()) {
+            System.out.printf("%-10s", row.getKey());
+            for (int threads : threadCounts) {
+                System.out.printf("%12.2f", row.getValue().get(threads));
+            }
+            System.out.printf("%11.1fx%n", row.getValue().get(cores) / row.getValue().get(1));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package smarthome;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// saveDevicesToFile / loadDevicesFromFile: writing and reading the binary snapshot, and the
+// one-time import of the legacy text file.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class PersistenceBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int devices;
+
+    private Path dir;
+    private Path snapshot;
+    private Path legacy;
+    private Path output;
+    private List<SmartDevice> generated;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("persistence-bench");
+        snapshot = dir.resolve("devices.bin");
+        legacy = dir.resolve("devices.txt");
+        output = dir.resolve("saved.bin");
+        generated = SnapshotBenchmark.generate(devices);
+        DeviceSnapshot.write(snapshot, generated);
+        try (BufferedWriter writer = Files.newBufferedWriter(legacy, StandardCharsets.UTF_8)) {
+            for (SmartDevice device : generated) {
+                writer.write(device.getClass().getSimpleName() + ":" + device.getName() + ":"
+                        + device.getRoom() + ":" + device.isOn());
+                writer.newLine();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshot);
+        Files.deleteIfExists(legacy);
+        Files.deleteIfExists(output);
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public long saveSnapshot() throws IOException {
+        DeviceSnapshot.write(output, generated);
+        return Files.size(output);
+    }
+
+    @Benchmark
+    public int loadSnapshot() throws IOException {
+        return DeviceSnapshot.read(snapshot).size();
+    }
+
+    @Benchmark
+    public int importLegacy() throws IOException {
+        return DeviceSnapshot.importLegacy(legacy).size();
+    }
+}
@@ -0,0 +1,27 @@
+package smarthome;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+// Device events still reach the console through the EventLog thread. Benchmarks swap
+// System.out for a discarding stream so they measure the work rather than the terminal.
+final class Quiet {
+    private static PrintStream original;
+
+    private Quiet() {
+    }
+
+    static synchronized void on() {
+        if (original == null) {
+            original = System.out;
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        }
+    }
+
+    static synchronized void off() {
+        if (original != null) {
+            System.setOut(original);
+            original = null;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package smarthome;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Applying the built-in scenes to a large home. Each invocation alternates morning and night,
+// so every run really changes state (about two writes per device) and notifies listeners.
+// The first apply after setup compiles the plans; the measured runs reuse them.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SceneBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int devices;
+
+    private SceneEngine scenes;
+    private boolean night;
+
+    @Setup
+    public void setup() {
+        Quiet.on();
+        EventLog.global().setLevel(EventLog.Level.WARN);
+        DeviceRegistry registry = new DeviceRegistry();
+        List<SmartDevice> generated = SnapshotBenchmark.generate(devices);
+        generated.forEach(registry::add);
+        scenes = SceneEngine.fromSystemProperties(registry);
+    }
+
+    @TearDown
+    public void tearDown() {
+        EventLog.global().flush();
+        EventLog.global().setLevel(EventLog.Level.INFO);
+        Quiet.off();
+    }
+
+    @Benchmark
+    public int applyScene() {
+        night = !night;
+        return scenes.apply(night ? "night" : "morning").changes;
+    }
+}
@@ -0,0 +1,33 @@
+package smarthome;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// getStatus() for each device type, as shown in every listing and on every GUI card.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatusRenderingBenchmark {
+    @Param({"light", "thermostat", "security"})
+    public String type;
+
+    private SmartDevice device;
+
+    @Setup
+    public void setup() {
+        switch (type) {
+            case "light": device = new SmartLight("Living Room Main Light", "Living Room"); break;
+            case "thermostat": device = new SmartThermostat("Main Thermostat", "Living Room"); break;
+            default: device = new SmartSecurity("Home Security", "Entrance");
+        }
+        device.applyOn(true);
+    }
+
+    @Benchmark
+    public String getStatus() {
+        return device.getStatus();
+    }
+}
@@ -0,0 +1,63 @@
+package smarthome;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Telemetry store costs: recording one sample, reading back a day of raw samples for one
+// thermostat, and a day of hourly rollups for a room of 20 thermostats. The store holds a
+// week of one-per-minute readings for 200 thermostats.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TelemetryStoreBenchmark {
+    private static final int THERMOSTATS = 200;
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private TelemetryStore store;
+    private SmartThermostat probe;
+    private long now;
+    private long next;
+    private double reading = 21;
+
+    @Setup
+    public void setup() {
+        store = TelemetryStore.fromSystemProperties();
+        Random random = new Random(42);
+        now = System.currentTimeMillis();
+        long start = now - 7 * DAY;
+        for (int t = 0; t < THERMOSTATS; t++) {
+            SmartThermostat thermostat = new SmartThermostat("Thermostat " + t, "Room " + (t % 10));
+            thermostat.id = t + 1;
+            double room = 20;
+            for (long time = start; time < now; time += 60_000) {
+                room += (21 - room) * 0.02 + random.nextGaussian() * 0.02;
+                store.record(thermostat, TelemetryStore.Metric.TEMPERATURE, time + random.nextInt(2000), room);
+            }
+        }
+        probe = new SmartThermostat("Probe", "Lab");
+        probe.id = THERMOSTATS + 1;
+        next = now;
+    }
+
+    @Benchmark
+    public boolean record() {
+        next += 1000;
+        reading += ((next / 1000) % 7 == 0) ? 0.1 : 0;
+        return store.record(probe, TelemetryStore.Metric.TEMPERATURE, next, reading);
+    }
+
+    @Benchmark
+    public List<TelemetryStore.Sample> dayOfRawSamples() {
+        return store.range(1, TelemetryStore.Metric.TEMPERATURE, now - DAY, now);
+    }
+
+    @Benchmark
+    public List<TelemetryStore.Rollup> roomDayOfHours() {
+        return store.roomRollups("Room 3", TelemetryStore.Metric.TEMPERATURE, TelemetryStore.Resolution.HOUR, now - DAY, now);
+    }
+}
@@ -0,0 +1,56 @@
+package smarthome;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Voice command throughput (commands per second) through the compiled intent engine.
+// parse() only tokenizes and matches; execute() also applies the command to the devices.
+// The home has the four default devices plus 100 generated rooms of lights and thermostats,
+// so room and device names go through realistically sized entity tries.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VoiceCommandBenchmark {
+    @Param({"turn on the lights", "dim bedroom lights to 30", "set living room temperature to 21.5",
+            "turn off everything except security", "good night", "play some jazz"})
+    public String command;
+
+    private DeviceRegistry registry;
+    private VoiceCommandEngine engine;
+
+    @Setup
+    public void setup() {
+        Quiet.on();
+        EventLog.global().setLevel(EventLog.Level.WARN);
+        registry = new DeviceRegistry();
+        registry.add(new SmartLight("Living Room Main Light", "Living Room"));
+        registry.add(new SmartLight("Bedroom Lamp", "Bedroom"));
+        registry.add(new SmartThermostat("Main Thermostat", "Living Room"));
+        registry.add(new SmartSecurity("Home Security", "Entrance"));
+        for (int i = 0; i < 100; i++) {
+            registry.add(new SmartLight("Ceiling Light " + i, "Room " + i));
+            registry.add(new SmartThermostat("Radiator " + i, "Room " + i));
+        }
+        engine = new VoiceCommandEngine(registry, SceneEngine.fromSystemProperties(registry));
+    }
+
+    @TearDown
+    public void tearDown() {
+        EventLog.global().flush();
+        EventLog.global().setLevel(EventLog.Level.INFO);
+        Quiet.off();
+    }
+
+    @Benchmark
+    public VoiceCommandEngine.Intent parse() {
+        return engine.parse(command);
+    }
+
+    @Benchmark
+    public String execute() {
+        return engine.execute(command);
+    }
+}
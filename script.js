@@ -1,35 +1,153 @@
-// Device Data
-const devices = [
-  { id: 1, name: "Living Room Light", room: "living", type: "💡", isOn: true, brightness: 80, power: 12 },
-  { id: 2, name: "AC Unit", room: "living", type: "❄️", isOn: true, temp: 22, power: 2500 },
-  { id: 3, name: "Smart TV", room: "living", type: "📺", isOn: false, input: "HDMI", power: 0 },
-  { id: 4, name: "Bedroom Light", room: "bedroom", type: "💡", isOn: false, brightness: 0, power: 0 },
-  { id: 5, name: "Fan", room: "bedroom", type: "🌀", isOn: true, speed: 3, power: 45 },
-  { id: 6, name: "Bedroom Security", room: "bedroom", type: "📷", isOn: true, recording: true, power: 8 },
-]
+// Device data comes from the Java system's embedded API (DeviceApiServer): the full list once,
+// then only the changes, pushed over server-sent events. The API only answers pages it served
+// itself, so open the dashboard from the server rather than from disk.
+const API = "/api"
+const REFRESH_MS = 3000
+const TYPE_ICONS = { Light: "💡", Thermostat: "❄️", Security: "📷" }
 
+let devices = []
 let currentRoom = "all"
+// Stream position the current list reflects; deltas at or before it are already applied
+let since = null
+let baseline = 0
+let stream = null
+const dirty = new Set()
+let frameRequested = false
 
 // Initialize App
 function init() {
-  renderDevices()
   setupFilterTabs()
+  refresh()
+  // Polls only while the stream is down
+  setInterval(() => {
+    if (!stream || stream.readyState !== EventSource.OPEN) refresh()
+  }, REFRESH_MS)
+}
+
+// EventSource reconnects by itself and resumes from the last event id it saw
+function connectStream() {
+  if (stream || !since) return
+  stream = new EventSource(`${API}/stream?since=${encodeURIComponent(since)}`)
+  stream.addEventListener("changed", (e) => {
+    const { seq, id, ...changes } = JSON.parse(e.data)
+    if (seq <= baseline) return
+    const device = devices.find((d) => d.id === id)
+    if (!device) return
+    Object.assign(device, changes)
+    dirty.add(id)
+    scheduleRender()
+  })
+  stream.addEventListener("added", (e) => {
+    const { seq, device } = JSON.parse(e.data)
+    if (seq <= baseline || devices.some((d) => d.id === device.id)) return
+    devices.push(device)
+    renderAll()
+  })
+  stream.addEventListener("removed", (e) => {
+    const { seq, id } = JSON.parse(e.data)
+    if (seq <= baseline) return
+    devices = devices.filter((d) => d.id !== id)
+    renderAll()
+  })
+  // Fell too far behind for deltas: start over from the full list
+  stream.addEventListener("resync", () => refresh())
+}
+
+function sequenceOf(position) {
+  return Number(position.slice(position.indexOf(":") + 1))
+}
+
+// Bursts of deltas repaint the touched cards once per frame
+function scheduleRender() {
+  if (frameRequested) return
+  frameRequested = true
+  requestAnimationFrame(() => {
+    frameRequested = false
+    dirty.forEach(updateCard)
+    dirty.clear()
+    renderStats(null)
+  })
+}
+
+async function api(path, options) {
+  const response = await fetch(API + path, options)
+  const body = await response.json()
+  if (!response.ok) throw new Error(body.error || response.statusText)
+  return body
+}
+
+async function refresh() {
+  try {
+    const [list, energy] = await Promise.all([api("/devices"), api("/energy").catch(() => null)])
+    devices = list.devices
+    since = list.since
+    baseline = sequenceOf(list.since)
+    dirty.clear()
+    renderRooms()
+    renderDevices()
+    renderStats(energy)
+    connectStream()
+  } catch (e) {
+    showNotification(`⚠️ Smart home unreachable: ${e.message}`)
+  }
+}
+
+// Names and rooms are user-entered text, not markup
+function escapeHtml(text) {
+  return String(text).replace(/[&<>"']/g, (c) => `&#${c.charCodeAt(0)};`)
+}
+
+function roomKey(room) {
+  return room.toLowerCase()
+}
+
+function renderStats(energy) {
+  document.getElementById("deviceCount").textContent = devices.filter((d) => d.on).length
+  const watts = energy ? energy.watts : devices.reduce((sum, d) => sum + d.power, 0)
+  document.getElementById("energyUsage").textContent = watts >= 1000 ? `${(watts / 1000).toFixed(1)} kW` : `${Math.round(watts)} W`
+}
+
+// One filter button per room the system knows about
+function renderRooms() {
+  const filters = document.querySelector(".filters")
+  const rooms = [...new Set(devices.map((d) => d.room))]
+  const wanted = ["all", ...rooms.map(roomKey)].join("|")
+  if (filters.dataset.rooms === wanted) return
+  filters.dataset.rooms = wanted
+  if (currentRoom !== "all" && !rooms.some((r) => roomKey(r) === currentRoom)) currentRoom = "all"
+  filters.innerHTML = [["all", "All Rooms"], ...rooms.map((r) => [roomKey(r), r])]
+    .map(([key, label]) => `<button class="filter-btn ${key === currentRoom ? "active" : ""}" data-room="${escapeHtml(key)}">${escapeHtml(label)}</button>`)
+    .join("")
+}
+
+function renderAll() {
+  renderRooms()
+  renderDevices()
+  renderStats(null)
 }
 
 function renderDevices() {
   const grid = document.getElementById("devicesGrid")
-  const filteredDevices = currentRoom === "all" ? devices : devices.filter((d) => d.room === currentRoom)
+  const filteredDevices = currentRoom === "all" ? devices : devices.filter((d) => roomKey(d.room) === currentRoom)
+  grid.innerHTML = filteredDevices.map(cardHtml).join("")
+}
 
-  grid.innerHTML = filteredDevices
-    .map(
-      (device) => `
-        <div class="device-card ${device.isOn ? "active" : ""}">
+// Replaces just this device's card, if it is showing
+function updateCard(id) {
+  const card = document.querySelector(`.device-card[data-id="${id}"]`)
+  const device = devices.find((d) => d.id === id)
+  if (card && device) card.outerHTML = cardHtml(device)
+}
+
+function cardHtml(device) {
+  return `
+        <div class="device-card ${device.on ? "active" : ""}" data-id="${device.id}">
             <div class="device-header">
                 <div class="device-info">
-                    <h3>${device.name}</h3>
-                    <span class="device-room">${device.room.charAt(0).toUpperCase() + device.room.slice(1)}</span>
+                    <h3>${escapeHtml(device.name)}</h3>
+                    <span class="device-room">${escapeHtml(device.room)}</span>
                 </div>
-                <div class="device-icon">${device.type}</div>
+                <div class="device-icon">${TYPE_ICONS[device.type] || "🔌"}</div>
             </div>
             
             <div class="device-stats">
@@ -37,12 +155,12 @@ function renderDevices() {
             </div>
             
             <div class="toggle-container">
-                <span class="toggle-label">${device.isOn ? "On" : "Off"}</span>
-                <div class="toggle-switch ${device.isOn ? "on" : ""}" onclick="toggleDevice(${device.id})"></div>
+                <span class="toggle-label">${device.on ? "On" : "Off"}</span>
+                <div class="toggle-switch ${device.on ? "on" : ""}" onclick="toggleDevice(${device.id})"></div>
             </div>
             
             <div style="margin-bottom: 1rem;">
-                ${device.isOn ? '<span class="status-indicator"><span class="status-dot"></span>Active</span>' : '<span class="status-indicator" style="background: rgba(100,116,139,0.15); border-color: rgba(100,116,139,0.3); color: #94a3b8;"><span class="status-dot" style="background: #64748b; animation: none;"></span>Inactive</span>'}
+                ${device.on ? '<span class="status-indicator"><span class="status-dot"></span>Active</span>' : '<span class="status-indicator" style="background: rgba(100,116,139,0.15); border-color: rgba(100,116,139,0.3); color: #94a3b8;"><span class="status-dot" style="background: #64748b; animation: none;"></span>Inactive</span>'}
             </div>
             
             <div class="device-actions">
@@ -50,9 +168,7 @@ function renderDevices() {
                 <button class="btn btn-secondary" onclick="openSettings(${device.id})">Settings</button>
             </div>
         </div>
-    `,
-    )
-    .join("")
+    `
 }
 
 // Get Device Stats
@@ -61,33 +177,43 @@ function getDeviceStats(device) {
 
   if (device.brightness !== undefined) {
     stats += `<div class="stat"><div class="stat-name">Brightness</div><div class="stat-val">${device.brightness}%</div></div>`
-  } else if (device.temp !== undefined) {
-    stats += `<div class="stat"><div class="stat-name">Temperature</div><div class="stat-val">${device.temp}°C</div></div>`
-  } else if (device.speed !== undefined) {
-    stats += `<div class="stat"><div class="stat-name">Speed</div><div class="stat-val">${device.speed}/5</div></div>`
+  } else if (device.temperature !== undefined) {
+    stats += `<div class="stat"><div class="stat-name">Temperature</div><div class="stat-val">${device.temperature}°C</div></div>`
+    stats += `<div class="stat"><div class="stat-name">Mode</div><div class="stat-val">${escapeHtml(device.mode)}</div></div>`
+  } else if (device.armed !== undefined) {
+    stats += `<div class="stat"><div class="stat-name">Armed</div><div class="stat-val">${device.armed ? "Yes" : "No"}</div></div>`
   }
 
   return stats
 }
 
 // Toggle Device
-function toggleDevice(id) {
+async function toggleDevice(id) {
   const device = devices.find((d) => d.id === id)
-  if (device) {
-    device.isOn = !device.isOn
-    renderDevices()
-    showNotification(`${device.name} turned ${device.isOn ? "ON" : "OFF"}`)
+  if (!device) return
+  try {
+    const updated = await api(`/devices/${id}`, {
+      method: "POST",
+      headers: { "Content-Type": "application/json" },
+      body: JSON.stringify({ on: !device.on }),
+    })
+    devices = devices.map((d) => (d.id === id ? updated : d))
+    updateCard(id)
+    renderStats(null)
+    showNotification(`${updated.name} turned ${updated.on ? "ON" : "OFF"}`)
+  } catch (e) {
+    showNotification(`❌ ${e.message}`)
   }
 }
 
+// Buttons are re-created as rooms come and go, so listen on their container
 function setupFilterTabs() {
-  document.querySelectorAll(".filter-btn").forEach((btn) => {
-    btn.addEventListener("click", (e) => {
-      document.querySelectorAll(".filter-btn").forEach((b) => b.classList.remove("active"))
-      e.target.classList.add("active")
-      currentRoom = e.target.dataset.room
-      renderDevices()
-    })
+  document.querySelector(".filters").addEventListener("click", (e) => {
+    if (!e.target.classList.contains("filter-btn")) return
+    document.querySelectorAll(".filter-btn").forEach((b) => b.classList.remove("active"))
+    e.target.classList.add("active")
+    currentRoom = e.target.dataset.room
+    renderDevices()
   })
 }
 